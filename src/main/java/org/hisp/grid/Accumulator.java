@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Primitive accumulators of the values of one column per group. Only the accumulators required by
+ * the requested aggregation types are allocated. Large inputs are accumulated in parallel with
+ * fork-join, where each worker accumulates a range of rows into partial accumulators which are then
+ * merged.
+ */
+class Accumulator {
+  /** Number of rows below which ranges are accumulated in the current thread. */
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+  private final int[] counts;
+
+  private final double[] sums;
+
+  private final double[] mins;
+
+  private final double[] maxs;
+
+  /**
+   * Constructor.
+   *
+   * @param groupCount the number of groups.
+   * @param types the aggregation types to accumulate.
+   */
+  private Accumulator(int groupCount, Set<AggregateType> types) {
+    this.counts = new int[groupCount];
+    this.sums =
+        types.contains(AggregateType.SUM) || types.contains(AggregateType.AVG)
+            ? new double[groupCount]
+            : null;
+    this.mins = types.contains(AggregateType.MIN) ? new double[groupCount] : null;
+    this.maxs = types.contains(AggregateType.MAX) ? new double[groupCount] : null;
+
+    if (mins != null) {
+      Arrays.fill(mins, Double.POSITIVE_INFINITY);
+    }
+
+    if (maxs != null) {
+      Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+    }
+  }
+
+  /**
+   * Accumulates the given values per group.
+   *
+   * @param groups the group identifier of each row.
+   * @param groupCount the number of groups.
+   * @param values the values, indexed by row, or null if only {@link AggregateType#COUNT} is
+   *     requested.
+   * @param nulls the rows which are null.
+   * @param types the aggregation types to accumulate.
+   * @return the {@link Accumulator}.
+   */
+  static Accumulator accumulate(
+      int[] groups, int groupCount, double[] values, BitSet nulls, Set<AggregateType> types) {
+    int height = groups.length;
+    int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism(), height / PARALLEL_THRESHOLD);
+
+    if (chunks <= 1 || (long) groupCount * chunks > height) {
+      Accumulator accumulator = new Accumulator(groupCount, types);
+      accumulator.add(groups, values, nulls, 0, height);
+      return accumulator;
+    }
+
+    int chunkSize = (height + chunks - 1) / chunks;
+
+    return ForkJoinPool.commonPool()
+        .invoke(new AccumulateTask(groups, groupCount, values, nulls, types, 0, height, chunkSize));
+  }
+
+  /**
+   * Returns the aggregate value of the given group.
+   *
+   * @param type the {@link AggregateType}.
+   * @param group the group identifier.
+   * @return an {@link Integer} for {@link AggregateType#COUNT}, otherwise a {@link Double}, or null
+   *     if the group has no values.
+   */
+  Object get(AggregateType type, int group) {
+    int count = counts[group];
+
+    if (type == AggregateType.COUNT) {
+      return count;
+    }
+
+    if (count == 0) {
+      return null;
+    }
+
+    return switch (type) {
+      case SUM -> sums[group];
+      case AVG -> sums[group] / count;
+      case MIN -> mins[group];
+      case MAX -> maxs[group];
+      default -> throw new IllegalArgumentException("Unsupported aggregate type: " + type);
+    };
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private void add(int[] groups, double[] values, BitSet nulls, int from, int to) {
+    for (int row = from; row < to; row++) {
+      if (nulls.get(row)) {
+        continue;
+      }
+
+      int group = groups[row];
+      counts[group]++;
+
+      if (sums != null) {
+        sums[group] += values[row];
+      }
+
+      if (mins != null && values[row] < mins[group]) {
+        mins[group] = values[row];
+      }
+
+      if (maxs != null && values[row] > maxs[group]) {
+        maxs[group] = values[row];
+      }
+    }
+  }
+
+  private Accumulator merge(Accumulator other) {
+    for (int group = 0; group < counts.length; group++) {
+      counts[group] += other.counts[group];
+
+      if (sums != null) {
+        sums[group] += other.sums[group];
+      }
+
+      if (mins != null) {
+        mins[group] = Math.min(mins[group], other.mins[group]);
+      }
+
+      if (maxs != null) {
+        maxs[group] = Math.max(maxs[group], other.maxs[group]);
+      }
+    }
+
+    return this;
+  }
+
+  /** Fork-join task which accumulates a range of rows into partial accumulators. */
+  private static class AccumulateTask extends RecursiveTask<Accumulator> {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] groups;
+
+    private final int groupCount;
+
+    private final double[] values;
+
+    private final BitSet nulls;
+
+    private final Set<AggregateType> types;
+
+    private final int from;
+
+    private final int to;
+
+    private final int chunkSize;
+
+    AccumulateTask(
+        int[] groups,
+        int groupCount,
+        double[] values,
+        BitSet nulls,
+        Set<AggregateType> types,
+        int from,
+        int to,
+        int chunkSize) {
+      this.groups = groups;
+      this.groupCount = groupCount;
+      this.values = values;
+      this.nulls = nulls;
+      this.types = types;
+      this.from = from;
+      this.to = to;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected Accumulator compute() {
+      if (to - from <= chunkSize) {
+        Accumulator accumulator = new Accumulator(groupCount, types);
+        accumulator.add(groups, values, nulls, from, to);
+        return accumulator;
+      }
+
+      int mid = (from + to) >>> 1;
+
+      AccumulateTask left =
+          new AccumulateTask(groups, groupCount, values, nulls, types, from, mid, chunkSize);
+      AccumulateTask right =
+          new AccumulateTask(groups, groupCount, values, nulls, types, mid, to, chunkSize);
+
+      left.fork();
+
+      Accumulator result = right.compute();
+
+      return left.join().merge(result);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+/** Specification of an aggregate column for {@link GroupBy#aggregate(Aggregate...)}. */
+public class Aggregate {
+  /** The aggregation type. */
+  private final AggregateType type;
+
+  /** Index of the column to aggregate, starting on 0. */
+  private final int columnIndex;
+
+  /**
+   * Constructor.
+   *
+   * @param type the {@link AggregateType}.
+   * @param columnIndex the column index, starting on 0.
+   */
+  private Aggregate(AggregateType type, int columnIndex) {
+    this.type = type;
+    this.columnIndex = columnIndex;
+  }
+
+  /**
+   * Returns a specification for aggregating the given column with the given type.
+   *
+   * @param type the {@link AggregateType}.
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate of(AggregateType type, int columnIndex) {
+    return new Aggregate(type, columnIndex);
+  }
+
+  /**
+   * Returns a specification for the sum of the given column.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate sum(int columnIndex) {
+    return new Aggregate(AggregateType.SUM, columnIndex);
+  }
+
+  /**
+   * Returns a specification for the number of non-null values of the given column.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate count(int columnIndex) {
+    return new Aggregate(AggregateType.COUNT, columnIndex);
+  }
+
+  /**
+   * Returns a specification for the average of the given column.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate avg(int columnIndex) {
+    return new Aggregate(AggregateType.AVG, columnIndex);
+  }
+
+  /**
+   * Returns a specification for the minimum of the given column.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate min(int columnIndex) {
+    return new Aggregate(AggregateType.MIN, columnIndex);
+  }
+
+  /**
+   * Returns a specification for the maximum of the given column.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return an {@link Aggregate}.
+   */
+  public static Aggregate max(int columnIndex) {
+    return new Aggregate(AggregateType.MAX, columnIndex);
+  }
+
+  public AggregateType getType() {
+    return type;
+  }
+
+  public int getColumnIndex() {
+    return columnIndex;
+  }
+
+  /**
+   * Returns the header of the aggregate column, based on the header of the source column.
+   *
+   * @param header the {@link GridHeader} of the source column.
+   * @return a {@link GridHeader}.
+   */
+  GridHeader getHeader(GridHeader header) {
+    String suffix = "_" + type.name().toLowerCase();
+    ValueType valueType = type == AggregateType.COUNT ? ValueType.INTEGER : ValueType.DOUBLE;
+
+    return new GridHeader(
+        header.getName() + suffix, header.getColumn() + suffix, valueType, false, false);
+  }
+
+  @Override
+  public String toString() {
+    return "[Type: " + type + ", column: " + columnIndex + "]";
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bitmap index of the rows of a grid on the values of one column, created with {@link
+ * Grid#createBitmapIndex(String)}. The rows of each distinct value are held in a compressed {@link
+ * RowBitmap}, which suits low-cardinality columns such as meta columns. Filters and counts over
+ * several indexed columns are answered by combining bitmaps, without reading row values.
+ *
+ * <p>Unlike other indexes, bitmap indexes are retained by the grid, and are used by {@link
+ * Grid#getUniqueValues(String)} and by {@link Grid#filter(GridPredicate)} for equality, membership
+ * and null predicates on the indexed column. The index is kept up to date with the grid as
+ * described for {@link GridIndex}.
+ */
+public class BitmapIndex extends GridIndex {
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to index.
+   * @param column the column to index.
+   * @throws IllegalArgumentException if the grid does not contain the column.
+   */
+  BitmapIndex(Grid grid, String column) {
+    super(grid, new String[] {column}, new HashMap<>(), key -> true, BitmapRows::new);
+  }
+
+  /**
+   * Returns the indexed column.
+   *
+   * @return the indexed column.
+   */
+  public String getColumn() {
+    return getColumns().get(0);
+  }
+
+  /**
+   * Returns the bitmap of the rows with the given value.
+   *
+   * @param value the value.
+   * @return a {@link RowBitmap}, which is empty if no row has the value.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public RowBitmap getBitmap(Object value) {
+    Rows rows = getRowsByKey().get(value);
+    return rows != null ? ((BitmapRows) rows).bitmap.copy() : new RowBitmap();
+  }
+
+  /**
+   * Returns the bitmap of the rows with any of the given values.
+   *
+   * @param values the values.
+   * @return a {@link RowBitmap}, which is empty if no row has any of the values.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public RowBitmap getBitmap(Collection<?> values) {
+    Map<Object, Rows> rowsByKey = getRowsByKey();
+    RowBitmap result = new RowBitmap();
+
+    for (Object value : new HashSet<>(values)) {
+      Rows rows = rowsByKey.get(value);
+
+      if (rows != null) {
+        result = result.or(((BitmapRows) rows).bitmap);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the distinct values of the indexed column, including null if any row has a null value.
+   *
+   * @return a new set of values.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public Set<Object> getValues() {
+    return new HashSet<>(getRowsByKey().keySet());
+  }
+
+  /**
+   * Returns the number of rows of each distinct value of the indexed column.
+   *
+   * @return a new map of values to number of rows.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public Map<Object, Integer> getCounts() {
+    Map<Object, Rows> rowsByKey = getRowsByKey();
+    Map<Object, Integer> counts = new HashMap<>((int) (rowsByKey.size() / 0.75f) + 1);
+
+    rowsByKey.forEach((value, rows) -> counts.put(value, rows.size()));
+
+    return counts;
+  }
+
+  /**
+   * Returns the number of rows of each distinct value of the indexed column among the given rows,
+   * such as the rows of a value of another bitmap index. Values without rows are not included.
+   *
+   * @param rows the {@link RowBitmap} of the rows to count.
+   * @return a new map of values to number of rows.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public Map<Object, Integer> getCounts(RowBitmap rows) {
+    Map<Object, Integer> counts = new HashMap<>();
+
+    getRowsByKey()
+        .forEach(
+            (value, valueRows) -> {
+              int count = ((BitmapRows) valueRows).bitmap.andCardinality(rows);
+
+              if (count > 0) {
+                counts.put(value, count);
+              }
+            });
+
+    return counts;
+  }
+
+  /**
+   * Returns the rows with any of the given values as a {@link BitSet}.
+   *
+   * @param values the values.
+   * @return a new {@link BitSet}.
+   */
+  BitSet toBitSet(Collection<?> values) {
+    Map<Object, Rows> rowsByKey = getRowsByKey();
+    BitSet result = new BitSet();
+
+    for (Object value : values) {
+      Rows rows = rowsByKey.get(value);
+
+      if (rows != null) {
+        result.or(((BitmapRows) rows).bitmap.toBitSet());
+      }
+    }
+
+    return result;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /** Row indexes held in a {@link RowBitmap}. */
+  private static class BitmapRows extends Rows {
+    private final RowBitmap bitmap = new RowBitmap();
+
+    @Override
+    void add(int row) {
+      bitmap.add(row);
+    }
+
+    @Override
+    int truncate(int height) {
+      bitmap.truncate(height);
+      return size();
+    }
+
+    @Override
+    int size() {
+      return bitmap.getCardinality();
+    }
+
+    @Override
+    int[] toArray() {
+      return bitmap.toArray();
+    }
+  }
+}
@@ -0,0 +1,1313 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.hisp.grid.column.Column;
+import org.hisp.grid.column.ColumnFactory;
+import org.hisp.grid.column.DictionaryColumn;
+import org.hisp.grid.column.HeapColumnFactory;
+import org.hisp.grid.column.NumericColumn;
+import org.hisp.grid.column.ObjectColumn;
+import org.hisp.grid.serializer.JacksonRowDataSerializer;
+
+/**
+ * Implementation of the {@link Grid} interface which stores values per column. The storage of each
+ * column is chosen from the {@link ValueType} of the corresponding {@link GridHeader} at the time
+ * the column is created, so that numeric and boolean values are held in primitive arrays instead of
+ * as boxed objects in one list per row. Columns of meta headers are dictionary encoded, so that
+ * meta data substitution rewrites the dictionary only. A column falls back to object storage when a
+ * value of another type is written to it.
+ *
+ * <p>Rows and columns are exposed as views backed by the column storage. All rows have the width of
+ * the grid, cells which have not been written hold null. This implementation is annotated with
+ * {@code Jackson} annotations and hence can be rendered as JSON and XML using Jackson.
+ */
+public class ColumnarGrid implements Grid {
+  /** The title of the grid. */
+  private String title;
+
+  /** The subtitle of the grid. */
+  private String subtitle;
+
+  /** The name of a potential corresponding table. */
+  private String table;
+
+  /** A List which represents the headers of the grid. */
+  private List<GridHeader> headers;
+
+  /** Index of the headers by name and by column. */
+  private final HeaderIndex headerLookup;
+
+  /** The indexes created on this grid. */
+  private final GridIndexes indexes = new GridIndexes();
+
+  /** A Map which can hold arbitrary meta-data. */
+  private Map<String, Object> metaData;
+
+  /** The factory for the column storage. */
+  private final ColumnFactory columnFactory;
+
+  /** The columns of the grid. */
+  private List<Column> columns;
+
+  /** The number of rows in the grid. */
+  private int height;
+
+  /** Indicating the current row in the grid for writing data. */
+  private int currentRowWriteIndex = -1;
+
+  /** Indicating the column in the current row for writing data. */
+  private int currentColumnWriteIndex;
+
+  /** Default constructor. */
+  public ColumnarGrid() {
+    this(new HashMap<>());
+  }
+
+  /**
+   * @param metaData meta data.
+   */
+  public ColumnarGrid(Map<String, Object> metaData) {
+    this(metaData, new HeapColumnFactory());
+  }
+
+  /**
+   * @param metaData meta data.
+   * @param columnFactory the factory for the column storage.
+   */
+  protected ColumnarGrid(Map<String, Object> metaData, ColumnFactory columnFactory) {
+    this.headers = new ArrayList<>();
+    this.headerLookup = new HeaderIndex(headers);
+    this.metaData = metaData;
+    this.columns = new ArrayList<>();
+    this.columnFactory = columnFactory;
+  }
+
+  // ---------------------------------------------------------------------
+  // Public methods
+  // ---------------------------------------------------------------------
+
+  @Override
+  @JsonProperty
+  public String getTitle() {
+    return title;
+  }
+
+  @Override
+  public Grid setTitle(String title) {
+    this.title = title;
+
+    return this;
+  }
+
+  @Override
+  @JsonProperty
+  public String getSubtitle() {
+    return subtitle;
+  }
+
+  @Override
+  public Grid setSubtitle(String subtitle) {
+    this.subtitle = subtitle;
+
+    return this;
+  }
+
+  @Override
+  @JsonProperty
+  public String getTable() {
+    return table;
+  }
+
+  @Override
+  public Grid setTable(String table) {
+    this.table = table;
+
+    return this;
+  }
+
+  @Override
+  public Grid addHeader(GridHeader header) {
+    headers.add(header);
+
+    headerLookup.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid addHeader(String name) {
+    return addHeader(new GridHeader(name));
+  }
+
+  @Override
+  public Grid addHeader(int headerIndex, GridHeader header) {
+    headers.add(headerIndex, header);
+
+    headerLookup.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid addHeaders(int headerIndex, List<GridHeader> gridHeaders) {
+    if (gridHeaders == null || gridHeaders.isEmpty()) {
+      return this;
+    }
+
+    headers.addAll(headerIndex, gridHeaders);
+
+    headerLookup.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid addEmptyHeaders(int number) {
+    for (int i = 0; i < number; i++) {
+      headers.add(new GridHeader("", false, false));
+    }
+
+    headerLookup.invalidate();
+
+    return this;
+  }
+
+  @Override
+  @JsonProperty
+  public List<GridHeader> getHeaders() {
+    return headers;
+  }
+
+  @Override
+  @JsonIgnore
+  public List<GridHeader> getVisibleHeaders() {
+    return new ProjectedList<>(
+        headers,
+        IntStream.range(0, headers.size()).filter(i -> !headers.get(i).isHidden()).toArray());
+  }
+
+  @Override
+  @JsonIgnore
+  public int getIndexOfHeader(String name) {
+    return headerLookup.getIndexOfName(name);
+  }
+
+  @Override
+  @JsonIgnore
+  public int getIndexOfColumn(String column) {
+    return headerLookup.getIndexOfColumn(column);
+  }
+
+  @Override
+  @JsonProperty
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  @JsonProperty
+  public int getWidth() {
+    return columns.size();
+  }
+
+  @Override
+  @JsonProperty
+  public Map<String, Object> getMetaData() {
+    return metaData;
+  }
+
+  @Override
+  public Grid setMetaData(Map<String, Object> metaData) {
+    this.metaData = metaData;
+    return this;
+  }
+
+  @Override
+  public Grid addMetaData(String key, Object value) {
+    this.metaData.put(key, value);
+    return this;
+  }
+
+  @Override
+  @JsonIgnore
+  public int getVisibleWidth() {
+    return height > 0 ? getVisibleColumnIndexes().length : 0;
+  }
+
+  @Override
+  public Grid addRow() {
+    height++;
+
+    currentRowWriteIndex++;
+    currentColumnWriteIndex = 0;
+
+    return this;
+  }
+
+  @Override
+  public Grid addRows(Grid grid) {
+    for (List<Object> row : grid.getRows()) {
+      addRow();
+
+      for (Object value : row) {
+        addValue(value);
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid addValue(Object value) {
+    if (currentRowWriteIndex < 0) {
+      throw new IndexOutOfBoundsException("No row has been added to the grid");
+    }
+
+    setCell(currentRowWriteIndex, currentColumnWriteIndex++, value);
+
+    return this;
+  }
+
+  @Override
+  public Grid addValues(Object[] values) {
+    for (Object value : values) {
+      addValue(value);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid addValuesVar(Object... values) {
+    return addValues(values);
+  }
+
+  @Override
+  public Grid addValuesAsList(List<Object> values) {
+    for (Object value : values) {
+      addValue(value);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid addEmptyValue() {
+    addValue("");
+
+    return this;
+  }
+
+  @Override
+  public Grid addEmptyValues(int number) {
+    for (int i = 0; i < number; i++) {
+      addEmptyValue();
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid addNullValues(int number) {
+    for (int i = 0; i < number; i++) {
+      addValue(null);
+    }
+
+    return this;
+  }
+
+  @Override
+  public List<Object> getRow(int rowIndex) {
+    if (rowIndex < 0 || rowIndex >= height) {
+      throw new IndexOutOfBoundsException("Row index out of bounds: " + rowIndex);
+    }
+
+    return new RowView(rowIndex);
+  }
+
+  @Override
+  @JsonProperty
+  @JsonSerialize(using = JacksonRowDataSerializer.class)
+  public List<List<Object>> getRows() {
+    return new AbstractList<>() {
+      @Override
+      public List<Object> get(int index) {
+        return getRow(index);
+      }
+
+      @Override
+      public int size() {
+        return height;
+      }
+    };
+  }
+
+  @Override
+  @JsonIgnore
+  public List<List<Object>> getVisibleRows() {
+    if (headers.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    final int[] visibleIndexes = getVisibleColumnIndexes();
+
+    return new AbstractList<>() {
+      @Override
+      public List<Object> get(int index) {
+        return new RowView(index, visibleIndexes);
+      }
+
+      @Override
+      public int size() {
+        return height;
+      }
+    };
+  }
+
+  @Override
+  public List<Object> getColumn(int columnIndex) {
+    final Column column = columns.get(columnIndex);
+
+    return new AbstractList<>() {
+      @Override
+      public Object get(int index) {
+        if (index < 0 || index >= height) {
+          throw new IndexOutOfBoundsException("Row index out of bounds: " + index);
+        }
+
+        return column.get(index);
+      }
+
+      @Override
+      public int size() {
+        return height;
+      }
+    };
+  }
+
+  @Override
+  public Object getValue(int rowIndex, int columnIndex) {
+    if (rowIndex < 0 || rowIndex >= height || columnIndex < 0 || columnIndex >= columns.size()) {
+      throw new IllegalArgumentException("Grid does not contain the requested row / column");
+    }
+
+    return columns.get(columnIndex).get(rowIndex);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getValue(int rowIndex, String column) {
+    int columnIndex = getIndexOfColumn(column);
+
+    if (columnIndex == -1) {
+      throw new IllegalArgumentException("Grid does not contain column: " + column);
+    }
+
+    return (T) getValue(rowIndex, columnIndex);
+  }
+
+  @Override
+  public Grid addColumn(List<Object> columnValues) {
+    return addColumn(columns.size(), columnValues);
+  }
+
+  @Override
+  public Grid addColumn(int columnIndex, List<Object> columnValues) {
+    if (height != columnValues.size()) {
+      throw new IllegalStateException(
+          String.format(
+              "Number of column values (%d) is not equal to number of rows (%d)",
+              columnValues.size(), height));
+    }
+
+    columns.add(columnIndex, createColumn(columnIndex));
+
+    int row = 0;
+
+    for (Object value : columnValues) {
+      setCell(row++, columnIndex, value);
+    }
+
+    indexes.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid addAndPopulateColumn(Object columnValue) {
+    int columnIndex = columns.size();
+
+    columns.add(createColumn(columnIndex));
+
+    for (int row = 0; row < height; row++) {
+      setCell(row, columnIndex, columnValue);
+    }
+
+    indexes.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid addAndPopulateColumns(int columns, Object columnValue) {
+    for (int i = 0; i < columns; i++) {
+      addAndPopulateColumn(columnValue);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid removeEmptyColumns() {
+    int[] nonEmptyColumns =
+        IntStream.range(0, columns.size()).filter(i -> !columnIsEmpty(i)).toArray();
+
+    if (nonEmptyColumns.length == columns.size()) {
+      return this;
+    }
+
+    return retainColumns(nonEmptyColumns);
+  }
+
+  @Override
+  public boolean columnIsEmpty(int columnIndex) {
+    Column column = columns.get(columnIndex);
+
+    for (int row = 0; row < height; row++) {
+      if (!column.isNull(row)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public Grid removeColumn(int columnIndex) {
+    if (headers.size() > 0) {
+      headers.remove(columnIndex);
+    }
+
+    headerLookup.invalidate();
+    indexes.invalidate();
+
+    if (columnIndex < columns.size()) {
+      columns.remove(columnIndex).release();
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid removeColumn(GridHeader header) {
+    int index = headers.indexOf(header);
+
+    if (index != -1) {
+      removeColumn(index);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid retainColumns(int... columnIndexes) {
+    int width = Math.max(columns.size(), headers.size());
+    boolean[] retained = new boolean[width];
+
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+
+      if (retained[columnIndex]) {
+        throw new IllegalArgumentException("Column index given more than once: " + columnIndex);
+      }
+
+      retained[columnIndex] = true;
+    }
+
+    while (columns.size() < width) {
+      columns.add(createColumn(columns.size()));
+    }
+
+    List<Column> retainedColumns = new ArrayList<>(columnIndexes.length);
+
+    for (int columnIndex : columnIndexes) {
+      retainedColumns.add(columns.get(columnIndex));
+    }
+
+    if (!headers.isEmpty()) {
+      List<GridHeader> retainedHeaders = new ArrayList<>(columnIndexes.length);
+
+      for (int columnIndex : columnIndexes) {
+        retainedHeaders.add(headers.get(columnIndex));
+      }
+
+      headers.clear();
+      headers.addAll(retainedHeaders);
+    }
+
+    for (int i = 0; i < columns.size(); i++) {
+      if (!retained[i]) {
+        columns.get(i).release();
+      }
+    }
+
+    columns = retainedColumns;
+    headerLookup.invalidate();
+    indexes.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid removeColumns(Set<Integer> columnIndexes) {
+    int width = Math.max(columns.size(), headers.size());
+
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+    }
+
+    return retainColumns(
+        IntStream.range(0, width).filter(i -> !columnIndexes.contains(i)).toArray());
+  }
+
+  @Override
+  public Grid removeCurrentWriteRow() {
+    if (currentRowWriteIndex == height - 1) {
+      truncate(currentRowWriteIndex);
+    } else {
+      int[] rows = new int[height - 1];
+
+      for (int i = 0, row = 0; row < height; row++) {
+        if (row != currentRowWriteIndex) {
+          rows[i++] = row;
+        }
+      }
+
+      select(rows);
+    }
+
+    currentRowWriteIndex--;
+    currentColumnWriteIndex = columns.size();
+
+    return this;
+  }
+
+  @Override
+  public boolean hasMetaDataKey(String key) {
+    return metaData != null && metaData.containsKey(key);
+  }
+
+  @Override
+  public Grid limitGrid(int limit) {
+    if (limit < 0) {
+      throw new IllegalStateException("Illegal limit: " + limit);
+    }
+
+    if (limit > 0 && limit <= height) {
+      truncate(limit);
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid limitGrid(int startPos, int endPos) {
+    if (startPos < 0 || endPos < startPos || endPos > height) {
+      throw new IllegalStateException(
+          "Illegal start or end pos: " + startPos + ", " + endPos + ", " + height);
+    }
+
+    int[] rows = new int[endPos - startPos];
+
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = startPos + i;
+    }
+
+    select(rows);
+
+    return this;
+  }
+
+  @Override
+  public Grid sortGrid(int columnIndex, int order) {
+    if (order == 0 || height == 0 || columns.isEmpty()) {
+      return this;
+    }
+
+    columnIndex--;
+
+    if (columnIndex < 0 || columnIndex >= columns.size()) {
+      throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+    }
+
+    return sortGrid(order > 0 ? SortSpec.desc(columnIndex) : SortSpec.asc(columnIndex));
+  }
+
+  @Override
+  public Grid sortGrid(SortSpec... specs) {
+    if (specs.length == 0 || height == 0 || columns.isEmpty()) {
+      return this;
+    }
+
+    select(RowSorter.sort(height, getSortKeys(specs)));
+
+    return this;
+  }
+
+  @Override
+  public Grid sortAndLimit(int columnIndex, int order, int limit) {
+    if (order == 0 || height == 0 || columns.isEmpty()) {
+      return limitGrid(limit);
+    }
+
+    columnIndex--;
+
+    SortSpec spec = order > 0 ? SortSpec.desc(columnIndex) : SortSpec.asc(columnIndex);
+
+    return sortAndLimit(limit, spec);
+  }
+
+  @Override
+  public Grid sortAndLimit(int limit, SortSpec... specs) {
+    if (limit < 0) {
+      throw new IllegalStateException("Illegal limit: " + limit);
+    }
+
+    if (limit == 0 || limit >= height || specs.length == 0 || columns.isEmpty()) {
+      return sortGrid(specs).limitGrid(limit);
+    }
+
+    select(RowSorter.top(height, getSortKeys(specs), limit));
+
+    return this;
+  }
+
+  @Override
+  public Grid addCumulativeColumn(int columnIndex, boolean addHeader) {
+    return addWindowColumns(addHeader, WindowFunction.cumulativeSum(columnIndex));
+  }
+
+  @Override
+  public Grid addCumulativesToGrid(int startColumnIndex, int numberOfColumns) {
+    WindowFunction[] functions = new WindowFunction[numberOfColumns];
+
+    for (int i = 0; i < numberOfColumns; i++) {
+      functions[i] = WindowFunction.cumulativeSum(i + startColumnIndex);
+    }
+
+    return addWindowColumns(true, functions);
+  }
+
+  @Override
+  public Grid addWindowColumns(WindowFunction... functions) {
+    return addWindowColumns(true, functions);
+  }
+
+  @Override
+  public GroupBy groupBy(int... columnIndexes) {
+    return new GroupBy(this, columnIndexes);
+  }
+
+  @Override
+  public Grid pivot(int[] rowColumns, int[] columnColumns, int valueColumn, AggregateType type) {
+    return Pivot.pivot(this, rowColumns, columnColumns, valueColumn, type);
+  }
+
+  @Override
+  public Grid join(Grid other, JoinSpec spec) {
+    return Join.join(this, other, spec);
+  }
+
+  @Override
+  public GridSelection filter(GridPredicate predicate) {
+    BitSet selection = new BitSet(getHeight());
+    selection.set(0, getHeight());
+    predicate.retain(this, selection);
+    return new GridSelection(this, selection);
+  }
+
+  @Override
+  public GridQuery query() {
+    return new GridQuery(this);
+  }
+
+  @Override
+  public GridIndex createIndex(String... columns) {
+    return indexes.add(new GridIndex(this, columns));
+  }
+
+  @Override
+  public SortedGridIndex createSortedIndex(String column) {
+    return indexes.add(new SortedGridIndex(this, column));
+  }
+
+  @Override
+  public BitmapIndex createBitmapIndex(String column) {
+    return indexes.addBitmapIndex(new BitmapIndex(this, column));
+  }
+
+  @Override
+  public Grid createBitmapIndexes() {
+    for (GridHeader header : headers) {
+      if (header.isMeta() && header.getColumn() != null) {
+        createBitmapIndex(header.getColumn());
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public BitmapIndex getBitmapIndex(String column) {
+    return indexes.getBitmapIndex(column);
+  }
+
+  @Override
+  public Grid substituteMetaData(Map<?, ?> metaDataMap) {
+    if (metaDataMap == null || headers == null || headers.isEmpty()) {
+      return this;
+    }
+
+    for (int colIndex = 0; colIndex < headers.size(); colIndex++) {
+      GridHeader header = headers.get(colIndex);
+
+      // Header
+
+      Object headerMetaName = metaDataMap.get(header.getName());
+
+      if (headerMetaName != null) {
+        header.setName(String.valueOf(headerMetaName));
+        headerLookup.invalidate();
+      }
+
+      if (header.isMeta() && colIndex < columns.size()) {
+        // Column cells
+
+        substituteMetaData(colIndex, colIndex, metaDataMap);
+      }
+    }
+
+    return this;
+  }
+
+  @Override
+  public Grid substituteMetaData(
+      int sourceColumnIndex, int targetColumnIndex, Map<?, ?> metaDataMap) {
+    if (metaDataMap == null) {
+      return this;
+    }
+
+    Column sourceColumn = columns.get(sourceColumnIndex);
+
+    if (sourceColumnIndex == targetColumnIndex
+        && sourceColumn instanceof DictionaryColumn dictionaryColumn) {
+      dictionaryColumn.substitute(metaDataMap);
+      indexes.invalidate();
+
+      return this;
+    }
+
+    for (int row = 0; row < height; row++) {
+      Object metaValue = metaDataMap.get(sourceColumn.get(row));
+
+      if (metaValue != null) {
+        setCell(row, targetColumnIndex, metaValue);
+      }
+    }
+
+    indexes.invalidate();
+
+    return this;
+  }
+
+  @Override
+  @JsonIgnore
+  public List<Integer> getMetaColumnIndexes() {
+    List<Integer> indexes = new ArrayList<>();
+
+    for (int i = 0; i < headers.size(); i++) {
+      GridHeader header = headers.get(i);
+
+      if (header != null && header.isMeta()) {
+        indexes.add(i);
+      }
+    }
+
+    return indexes;
+  }
+
+  @Override
+  public Set<Object> getUniqueValues(String columnName) {
+    return getUniqueValues(getIndexOfHeader(columnName));
+  }
+
+  @Override
+  public Map<String, Set<Object>> getUniqueValues(List<String> columnNames) {
+    Map<String, Set<Object>> values = new LinkedHashMap<>();
+
+    for (String columnName : columnNames) {
+      values.put(columnName, getUniqueValues(getIndexOfHeader(columnName)));
+    }
+
+    return values;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Map<String, T> getAsMap(int valueIndex, String keySeparator) {
+    Map<String, T> map = new HashMap<>((int) (height / 0.75f) + 1);
+
+    StringBuilder key = new StringBuilder();
+
+    for (int row = 0; row < height; row++) {
+      key.setLength(0);
+
+      boolean first = true;
+
+      for (int col = 0; col < columns.size(); col++) {
+        if (col == valueIndex) {
+          continue;
+        }
+
+        if (!first && keySeparator != null) {
+          key.append(keySeparator);
+        }
+
+        Object value = columns.get(col).get(row);
+
+        if (value != null) {
+          key.append(value);
+        }
+
+        first = false;
+      }
+
+      map.put(key.toString(), (T) columns.get(valueIndex).get(row));
+    }
+
+    return map;
+  }
+
+  @Override
+  public <T> Map<RowKey, T> getAsMap(int valueIndex, boolean parallel) {
+    if (height > 0 && (valueIndex < 0 || valueIndex >= columns.size())) {
+      throw new IllegalArgumentException("Column index out of bounds: " + valueIndex);
+    }
+
+    return RowKey.asMap(getRows(), valueIndex, parallel);
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Returns the indexes created on this grid.
+   *
+   * @return the {@link GridIndexes}.
+   */
+  GridIndexes getIndexes() {
+    return indexes;
+  }
+
+  /**
+   * Returns the unique values of the given column, read from the bitmap index of the column if
+   * present, and otherwise from the column storage in place.
+   *
+   * @param columnIndex the column index, or -1.
+   * @return a set of unique values, which is empty if the column does not exist.
+   */
+  private Set<Object> getUniqueValues(int columnIndex) {
+    BitmapIndex bitmapIndex = columnIndex != -1 ? indexes.getBitmapIndex(this, columnIndex) : null;
+
+    if (bitmapIndex != null) {
+      return bitmapIndex.getValues();
+    }
+
+    if (columnIndex == -1 || columnIndex >= columns.size()) {
+      return new HashSet<>();
+    }
+
+    return UniqueValues.of(columns.get(columnIndex), height);
+  }
+
+  /**
+   * Returns the storage of the given column, or null if the column has no storage.
+   *
+   * @param columnIndex the column index.
+   * @return a {@link Column}, or null.
+   */
+  Column getColumnStorage(int columnIndex) {
+    return columnIndex < columns.size() ? columns.get(columnIndex) : null;
+  }
+
+  /** Releases the storage of all columns and removes all rows and columns from the grid. */
+  protected void releaseColumns() {
+    columns.forEach(Column::release);
+    columns.clear();
+    height = 0;
+    currentRowWriteIndex = -1;
+    currentColumnWriteIndex = 0;
+  }
+
+  /**
+   * Sets the value of the given cell, creating columns up to the given column index if required.
+   * Replaces the column with an object column if the value is not supported by it.
+   *
+   * @param row the row index.
+   * @param columnIndex the column index.
+   * @param value the value.
+   */
+  private void setCell(int row, int columnIndex, Object value) {
+    while (columns.size() <= columnIndex) {
+      columns.add(createColumn(columns.size()));
+    }
+
+    Column column = columns.get(columnIndex);
+
+    if (!column.set(row, value)) {
+      Column objectColumn = columnFactory.createObjectColumn();
+
+      if (!column.copyTo(objectColumn) || !objectColumn.set(row, value)) {
+        objectColumn.release();
+        objectColumn = new ObjectColumn(column.size());
+        column.copyTo(objectColumn);
+        objectColumn.set(row, value);
+      }
+
+      column.release();
+      columns.set(columnIndex, objectColumn);
+    }
+  }
+
+  /**
+   * Adds a column for each of the given window functions. Numeric source columns are read as
+   * primitive values, and each source column is read once.
+   *
+   * @param addHeaders whether to add headers for columns with a source header.
+   * @param functions the {@link WindowFunction} instances.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private Grid addWindowColumns(boolean addHeaders, WindowFunction... functions) {
+    int width = Math.max(columns.size(), headers.size());
+    double[][] values = new double[width][];
+    BitSet[] nulls = new BitSet[width];
+    WindowFunction.Values[] results = new WindowFunction.Values[functions.length];
+
+    for (WindowFunction function : functions) {
+      if (function.getColumnIndex() < 0 || function.getColumnIndex() >= width) {
+        throw new IllegalArgumentException(
+            "Column index out of bounds: " + function.getColumnIndex());
+      }
+    }
+
+    while (columns.size() < headers.size()) {
+      columns.add(createColumn(columns.size()));
+    }
+
+    for (int f = 0; f < functions.length; f++) {
+      int columnIndex = functions[f].getColumnIndex();
+
+      if (values[columnIndex] == null) {
+        values[columnIndex] = new double[height];
+        nulls[columnIndex] = new BitSet(height);
+        readDoubles(columnIndex, values[columnIndex], nulls[columnIndex]);
+      }
+
+      results[f] = functions[f].apply(values[columnIndex], nulls[columnIndex]);
+    }
+
+    List<GridHeader> sourceHeaders = new ArrayList<>(headers);
+
+    for (int f = 0; f < functions.length; f++) {
+      int sourceIndex = functions[f].getColumnIndex();
+
+      if (addHeaders && sourceIndex < sourceHeaders.size()) {
+        addHeader(functions[f].getHeader(sourceHeaders.get(sourceIndex)));
+      }
+
+      int columnIndex = columns.size();
+      columns.add(createColumn(columnIndex));
+
+      for (int row = 0; row < height; row++) {
+        setCell(row, columnIndex, results[f].get(row));
+      }
+    }
+
+    return this;
+  }
+
+  /**
+   * Reads the values of the given column as doubles. Numeric columns are read without boxing.
+   *
+   * @param columnIndex the column index.
+   * @param values the array to read values into.
+   * @param nulls the set to add null rows to.
+   */
+  private void readDoubles(int columnIndex, double[] values, BitSet nulls) {
+    if (columnIndex >= columns.size()) {
+      nulls.set(0, height);
+      return;
+    }
+
+    Column column = columns.get(columnIndex);
+
+    if (column instanceof NumericColumn numericColumn) {
+      for (int row = 0; row < height; row++) {
+        if (numericColumn.isNull(row)) {
+          nulls.set(row);
+        } else {
+          values[row] = numericColumn.getDouble(row);
+        }
+      }
+    } else {
+      for (int row = 0; row < height; row++) {
+        Object value = column.get(row);
+
+        if (value == null) {
+          nulls.set(row);
+        } else {
+          values[row] = WindowFunction.toDouble(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a column for the given column index based on the corresponding header.
+   *
+   * @param columnIndex the column index.
+   * @return a {@link Column}.
+   */
+  private Column createColumn(int columnIndex) {
+    return columnIndex < headers.size()
+        ? columnFactory.create(headers.get(columnIndex))
+        : columnFactory.createObjectColumn();
+  }
+
+  /**
+   * Returns sort keys for the given sort specifications.
+   *
+   * @param specs the {@link SortSpec} instances.
+   * @return the sort keys.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private SortKey[] getSortKeys(SortSpec[] specs) {
+    SortKey[] keys = new SortKey[specs.length];
+
+    for (int i = 0; i < specs.length; i++) {
+      int columnIndex = specs[i].getColumnIndex();
+
+      if (columnIndex < 0 || columnIndex >= columns.size()) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+
+      keys[i] = getSortKey(columns.get(columnIndex), specs[i]);
+    }
+
+    return keys;
+  }
+
+  /**
+   * Returns a sort key for the given column. Numeric columns are read in primitive form, and
+   * dictionary columns are compared by the rank of their dictionary codes.
+   *
+   * @param column the {@link Column}.
+   * @param spec the {@link SortSpec}.
+   * @return a {@link SortKey}.
+   */
+  private SortKey getSortKey(Column column, SortSpec spec) {
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      return SortKey.ofDictionary(dictionaryColumn, height, spec);
+    }
+
+    if (column instanceof NumericColumn numericColumn) {
+      BitSet nulls = new BitSet();
+
+      if (numericColumn.isIntegral()) {
+        long[] values = new long[height];
+
+        for (int row = 0; row < height; row++) {
+          if (numericColumn.isNull(row)) {
+            nulls.set(row);
+          } else {
+            values[row] = numericColumn.getLong(row);
+          }
+        }
+
+        return SortKey.ofLongs(values, nulls, spec);
+      }
+
+      double[] values = new double[height];
+
+      for (int row = 0; row < height; row++) {
+        if (numericColumn.isNull(row)) {
+          nulls.set(row);
+        } else {
+          values[row] = numericColumn.getDouble(row);
+        }
+      }
+
+      return SortKey.ofDoubles(values, nulls, spec);
+    }
+
+    Object[] values = new Object[height];
+
+    for (int row = 0; row < height; row++) {
+      values[row] = column.get(row);
+    }
+
+    return SortKey.of(values, spec);
+  }
+
+  /**
+   * Replaces the rows of the grid with the given rows in the given order.
+   *
+   * @param rows the row indexes.
+   */
+  private void select(int[] rows) {
+    for (int i = 0; i < columns.size(); i++) {
+      Column column = columns.get(i);
+      columns.set(i, column.select(rows));
+      column.release();
+    }
+
+    height = rows.length;
+    indexes.invalidate();
+  }
+
+  /**
+   * Truncates the grid to the given number of rows.
+   *
+   * @param size the number of rows to keep.
+   */
+  private void truncate(int size) {
+    for (Column column : columns) {
+      column.truncate(size);
+    }
+
+    height = size;
+    indexes.truncate(size);
+  }
+
+  /**
+   * Returns the indexes of columns with a corresponding header which is not hidden.
+   *
+   * @return an array of column indexes.
+   */
+  private int[] getVisibleColumnIndexes() {
+    int count = Math.min(headers.size(), columns.size());
+
+    return IntStream.range(0, count).filter(i -> !headers.get(i).isHidden()).toArray();
+  }
+
+  // -------------------------------------------------------------------------
+  // toString
+  // -------------------------------------------------------------------------
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("[\n");
+
+    if (headers != null && headers.size() > 0) {
+      List<String> headerNames = new ArrayList<>();
+
+      for (GridHeader header : headers) {
+        headerNames.add(header.getName());
+      }
+
+      builder.append(headerNames).append("\n");
+    }
+
+    for (List<Object> row : getRows()) {
+      builder.append(row).append("\n");
+    }
+
+    return builder.append("]").toString();
+  }
+
+  // -------------------------------------------------------------------------
+  // Views
+  // -------------------------------------------------------------------------
+
+  /** View of a row backed by the column storage, optionally projected on a set of columns. */
+  private class RowView extends AbstractList<Object> {
+    private final int row;
+
+    private final int[] columnIndexes;
+
+    RowView(int row) {
+      this(row, null);
+    }
+
+    RowView(int row, int[] columnIndexes) {
+      this.row = row;
+      this.columnIndexes = columnIndexes;
+    }
+
+    @Override
+    public Object get(int index) {
+      return columns.get(columnIndex(index)).get(row);
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+      Object previous = get(index);
+      setCell(row, columnIndex(index), value);
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return columnIndexes != null ? columnIndexes.length : columns.size();
+    }
+
+    private int columnIndex(int index) {
+      return columnIndexes != null ? columnIndexes[index] : index;
+    }
+  }
+}
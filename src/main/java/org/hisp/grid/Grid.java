@@ -129,7 +129,8 @@ public interface Grid {
   Grid addMetaData(String key, Object value);
 
   /**
-   * Returns all visible {@link GridHeader}, i.e. headers which are not hidden.
+   * Returns all visible {@link GridHeader}, i.e. headers which are not hidden. The list is a
+   * read-only view of the headers which were visible when this method was called.
    *
    * @return a list of grid headers.
    */
@@ -143,6 +144,15 @@ public interface Grid {
    */
   int getIndexOfHeader(String name);
 
+  /**
+   * Returns the index of the header with the given column. If more than one header has the given
+   * column, the index of the first is returned.
+   *
+   * @param column the column of the grid header.
+   * @return the index, or -1 if no header has the given column.
+   */
+  int getIndexOfColumn(String column);
+
   /**
    * Adds a header value.
    *
@@ -292,7 +302,9 @@ public interface Grid {
   List<List<Object>> getRows();
 
   /**
-   * Returns all visible rows, ie. rows with a corresponding header that is not hidden.
+   * Returns all visible rows, ie. rows with a corresponding header that is not hidden. The list is
+   * a read-only view which projects the rows of the grid onto the columns which were visible when
+   * this method was called, without copying any values.
    *
    * @return a list of list of values.
    */
@@ -316,6 +328,17 @@ public interface Grid {
    */
   Object getValue(int rowIndex, int columnIndex);
 
+  /**
+   * Return the value at the given row index and the column of the header with the given column.
+   *
+   * @param rowIndex the row index.
+   * @param column the column of the grid header.
+   * @param <T> type.
+   * @return the column value.
+   * @throws IllegalArgumentException if the grid does not contain the requested row / column.
+   */
+  <T> T getValue(int rowIndex, String column);
+
   /**
    * Adds a new column at the end of the grid.
    *
@@ -371,6 +394,26 @@ public interface Grid {
    */
   Grid removeColumn(GridHeader header);
 
+  /**
+   * Retains the headers and columns at the given indexes in the given order and removes all other
+   * columns. Each row is rebuilt once, independent of the number of removed columns.
+   *
+   * @param columnIndexes the indexes of the columns to retain.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds or given more than once.
+   */
+  Grid retainColumns(int... columnIndexes);
+
+  /**
+   * Removes the headers and columns at the given indexes. Each row is rebuilt once, independent of
+   * the number of removed columns.
+   *
+   * @param columnIndexes the indexes of the columns to remove.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  Grid removeColumns(Set<Integer> columnIndexes);
+
   /**
    * Removes from the grid columns with corresponding headers which only contain null values.
    *
@@ -428,6 +471,40 @@ public interface Grid {
    */
   Grid sortGrid(int columnIndex, int order);
 
+  /**
+   * Sorts the grid on the given sort specifications, in order of precedence. Rows which are equal
+   * on all sort keys retain their relative order.
+   *
+   * @param specs the {@link SortSpec} instances.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  Grid sortGrid(SortSpec... specs);
+
+  /**
+   * Sorts the grid on the column at the given columnIndex and limits the grid from top by the given
+   * number of rows. The result is identical to {@link #sortGrid(int, int)} followed by {@link
+   * #limitGrid(int)}, but only the retained rows are sorted.
+   *
+   * @param columnIndex the column index, starting on 1.
+   * @param order a negative value indicates ascending order, a positive value indicates descending
+   *     order, zero value indicates no sorting.
+   * @param limit the top limit, must be greater than zero to have an effect.
+   * @return this grid.
+   */
+  Grid sortAndLimit(int columnIndex, int order, int limit);
+
+  /**
+   * Sorts the grid on the given sort specifications and limits the grid from top by the given
+   * number of rows. The result is identical to {@link #sortGrid(SortSpec...)} followed by {@link
+   * #limitGrid(int)}, but only the retained rows are sorted.
+   *
+   * @param limit the top limit, must be greater than zero to have an effect.
+   * @param specs the {@link SortSpec} instances.
+   * @return this grid.
+   */
+  Grid sortAndLimit(int limit, SortSpec... specs);
+
   /**
    * Adds a cumulative column to the grid. Column must hold numeric data.
    *
@@ -438,7 +515,8 @@ public interface Grid {
   Grid addCumulativeColumn(int columnIndex, boolean addHeader);
 
   /**
-   * Adds columns with cumulative values to the given grid.
+   * Adds columns with cumulative values to the given grid. The data columns are read in one pass
+   * over the rows.
    *
    * @param startColumnIndex the index of the first data column.
    * @param numberOfColumns the number of data columns.
@@ -446,6 +524,144 @@ public interface Grid {
    */
   Grid addCumulativesToGrid(int startColumnIndex, int numberOfColumns);
 
+  /**
+   * Adds a column for each of the given window functions, in the given order. Source columns are
+   * read as primitive values in one pass over the rows, and a header is added for each column when
+   * the source column has a header.
+   *
+   * @param functions the {@link WindowFunction} instances.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  Grid addWindowColumns(WindowFunction... functions);
+
+  /**
+   * Groups the rows of the grid on the given key columns. Aggregate the groups into a new grid with
+   * {@link GroupBy#aggregate(Aggregate...)}:
+   *
+   * <pre>{@code
+   * Grid totals = grid.groupBy(0, 1).aggregate(Aggregate.sum(3), Aggregate.count(3));
+   * }</pre>
+   *
+   * @param columnIndexes the indexes of the key columns, starting on 0.
+   * @return a {@link GroupBy}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  GroupBy groupBy(int... columnIndexes);
+
+  /**
+   * Pivots the grid into a new grid with one row per distinct combination of row dimension values
+   * and one column per distinct combination of column dimension values, in order of first
+   * appearance. The row dimension columns come first, followed by the generated columns, where each
+   * cell holds the aggregate of the values of the matching rows, or null if there are none, also
+   * for {@link AggregateType#COUNT}. Headers of generated columns are named after the column
+   * dimension values.
+   *
+   * @param rowColumns the indexes of the row dimension columns, starting on 0.
+   * @param columnColumns the indexes of the column dimension columns, starting on 0.
+   * @param valueColumn the index of the value column, starting on 0.
+   * @param type the {@link AggregateType}.
+   * @return a new {@link Grid}.
+   * @throws IllegalArgumentException if a column index is out of bounds or no column dimension is
+   *     given.
+   */
+  Grid pivot(int[] rowColumns, int[] columnColumns, int valueColumn, AggregateType type);
+
+  /**
+   * Joins the grid with the given grid into a new grid. Rows match when their key column values are
+   * equal. The joined rows hold all columns of this grid followed by the columns of the other grid
+   * which are not key columns, in the order of the rows of this grid, and for full outer joins
+   * followed by the unmatched rows of the other grid. Headers of the other grid which conflict with
+   * headers of this grid are renamed with a numeric suffix.
+   *
+   * @param other the right {@link Grid}.
+   * @param spec the {@link JoinSpec}.
+   * @return a new {@link Grid}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  Grid join(Grid other, JoinSpec spec);
+
+  /**
+   * Returns a selection of the rows of the grid which match the given predicate. Predicates are
+   * evaluated one column at a time into a bitmap of selected rows, and the grid is not copied. The
+   * selection can be filtered further, which combines the bitmaps:
+   *
+   * <pre>{@code
+   * GridSelection selection =
+   *     grid.filter(GridPredicate.between(2, 10, 20).and(GridPredicate.isNotNull(3)))
+   *         .filter(GridPredicate.matches(0, "a.*"));
+   * }</pre>
+   *
+   * @param predicate the {@link GridPredicate}.
+   * @return a {@link GridSelection}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  GridSelection filter(GridPredicate predicate);
+
+  /**
+   * Returns a lazy query on the grid. Operations added to the query are planned and executed
+   * together by {@link GridQuery#execute()}, which reads only the selected rows and required
+   * columns and returns a new grid, without modifying this grid:
+   *
+   * <pre>{@code
+   * Grid top = grid.query().filter(GridPredicate.isNotNull(3)).sort(SortSpec.desc(3)).limit(10)
+   *     .project(0, 3).execute();
+   * }</pre>
+   *
+   * @return a {@link GridQuery}.
+   */
+  GridQuery query();
+
+  /**
+   * Creates a hash index of the rows of the grid on the values of the given columns, for repeated
+   * lookups of rows by value without scanning the grid. The index is kept up to date as rows are
+   * added, and is rebuilt on the next lookup after operations which move or remove rows or columns.
+   *
+   * @param columns the columns to index, see {@link GridHeader#getColumn()}.
+   * @return a {@link GridIndex}.
+   * @throws IllegalArgumentException if no column is given or the grid does not contain a column.
+   */
+  GridIndex createIndex(String... columns);
+
+  /**
+   * Creates a sorted index of the rows of the grid on the values of the given column, for lookups
+   * of rows by value or by range of values without scanning the grid. The index is maintained as
+   * described for {@link #createIndex(String...)}.
+   *
+   * @param column the column to index, see {@link GridHeader#getColumn()}.
+   * @return a {@link SortedGridIndex}.
+   * @throws IllegalArgumentException if the grid does not contain the column.
+   */
+  SortedGridIndex createSortedIndex(String column);
+
+  /**
+   * Creates a bitmap index of the rows of the grid on the values of the given column, replacing any
+   * bitmap index on the column. Bitmap indexes suit columns with few distinct values, such as meta
+   * columns. The grid retains the index and uses it for {@link #getUniqueValues(String)} and for
+   * equality, membership and null predicates of {@link #filter(GridPredicate)} on the column.
+   *
+   * @param column the column to index, see {@link GridHeader#getColumn()}.
+   * @return a {@link BitmapIndex}.
+   * @throws IllegalArgumentException if the grid does not contain the column.
+   */
+  BitmapIndex createBitmapIndex(String column);
+
+  /**
+   * Creates a bitmap index for each meta column of the grid, see {@link
+   * #createBitmapIndex(String)}.
+   *
+   * @return this grid.
+   */
+  Grid createBitmapIndexes();
+
+  /**
+   * Returns the bitmap index on the given column.
+   *
+   * @param column the column, see {@link GridHeader#getColumn()}.
+   * @return the {@link BitmapIndex}, or null if the column has no bitmap index.
+   */
+  BitmapIndex getBitmapIndex(String column);
+
   /**
    * Substitutes the grid header names and the grid values for meta type columns based on the given
    * mapping. Values are left unchanged when there is not match in the given meta data map.
@@ -483,6 +699,18 @@ public interface Grid {
    */
   Set<Object> getUniqueValues(String columnName);
 
+  /**
+   * Returns the unique values of each of the given columns. The names refer to the names of the
+   * grid headers of the columns. Values are read in place, and for grids stored by row the values
+   * of all columns are collected in a single pass over the rows. Large grids are processed in
+   * parallel.
+   *
+   * @param columnNames the names of the column grid headers.
+   * @return a map of column names to sets of unique values, in the order of the given column names.
+   *     The set of a column which does not exist is empty.
+   */
+  Map<String, Set<Object>> getUniqueValues(List<String> columnNames);
+
   /**
    * Returns a map of each row in the grid.
    *
@@ -492,4 +720,17 @@ public interface Grid {
    * @return a map of each row.
    */
   <T> Map<String, T> getAsMap(int valueIndex, String keySeparator);
+
+  /**
+   * Returns a map of each row in the grid, keyed by a {@link RowKey} of the values of all columns
+   * except the value column, in order. Keys are not converted to strings, and the map is sized for
+   * the height of the grid. Look up values with {@link RowKey#of(Object...)}.
+   *
+   * @param valueIndex the index of the column to use as map values.
+   * @param parallel whether to create the keys in parallel for large grids.
+   * @param <T> type.
+   * @return a map of each row.
+   * @throws IllegalArgumentException if the value index is out of bounds.
+   */
+  <T> Map<RowKey, T> getAsMap(int valueIndex, boolean parallel);
 }
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Hash index of the rows of a grid on the values of one or more columns, created with {@link
+ * Grid#createIndex(String...)}. Lookups return the indexes of the matching rows without scanning
+ * the grid.
+ *
+ * <p>The index is kept up to date with the grid. Rows added to the grid are indexed on the next
+ * lookup, and the last row is indexed again on each lookup as values may still be added to it.
+ * Limiting the grid to its first rows removes the remaining rows from the index. Other operations
+ * which move or remove rows or columns or substitute values, such as sorting, invalidate the index,
+ * which is then rebuilt on the next lookup. Values modified directly through {@link
+ * Grid#getRow(int)} or {@link Grid#getRows()} after being indexed are not tracked.
+ */
+public class GridIndex {
+  /** The indexed grid. */
+  private final Grid grid;
+
+  /** The indexed columns. */
+  private final String[] columns;
+
+  /** The row indexes by value, or by {@link RowKey} for multiple columns. */
+  private final Map<Object, Rows> map;
+
+  /** Whether a key is held in the map. */
+  private final Predicate<Object> mapKeys;
+
+  /** The row indexes of keys which are not held in the map. */
+  private final Map<Object, Rows> otherKeys = new HashMap<>();
+
+  /** Creates the row indexes of a new key. */
+  private final Supplier<Rows> rowsFactory;
+
+  /** The number of rows which are indexed. */
+  private int indexedRows;
+
+  /** Whether the index reflects the rows of the grid. */
+  private boolean valid;
+
+  /** The key of the last indexed row, which is indexed again on the next update. */
+  private Object lastKey;
+
+  /** Whether the last indexed row is indexed again on the next update. */
+  private boolean lastRowPending;
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to index.
+   * @param columns the columns to index.
+   * @throws IllegalArgumentException if no column is given or the grid does not contain a column.
+   */
+  GridIndex(Grid grid, String[] columns) {
+    this(grid, columns, new HashMap<>(), key -> true, ArrayRows::new);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to index.
+   * @param columns the columns to index.
+   * @param map the map to hold the row indexes by value.
+   * @param mapKeys whether a key is held in the map, other keys are held separately.
+   * @param rowsFactory creates the row indexes of a new key.
+   * @throws IllegalArgumentException if no column is given or the grid does not contain a column.
+   */
+  GridIndex(
+      Grid grid,
+      String[] columns,
+      Map<Object, Rows> map,
+      Predicate<Object> mapKeys,
+      Supplier<Rows> rowsFactory) {
+    if (columns.length == 0) {
+      throw new IllegalArgumentException("No columns to index");
+    }
+
+    for (String column : columns) {
+      if (grid.getIndexOfColumn(column) == -1) {
+        throw new IllegalArgumentException("Grid does not contain column: " + column);
+      }
+    }
+
+    this.grid = grid;
+    this.columns = columns.clone();
+    this.map = map;
+    this.mapKeys = mapKeys;
+    this.rowsFactory = rowsFactory;
+    update();
+  }
+
+  /**
+   * Returns the indexed columns.
+   *
+   * @return the indexed columns.
+   */
+  public List<String> getColumns() {
+    return List.of(columns);
+  }
+
+  /**
+   * Returns the indexes of the rows with the given values in the indexed columns, in ascending
+   * order.
+   *
+   * @param values the values, one for each indexed column.
+   * @return the row indexes.
+   * @throws IllegalArgumentException if the number of values does not match the number of indexed
+   *     columns.
+   * @throws IllegalStateException if an indexed column has been removed from the grid.
+   */
+  public int[] getRowIndexes(Object... values) {
+    if (values.length != columns.length) {
+      throw new IllegalArgumentException(
+          "Expected " + columns.length + " values, got " + values.length);
+    }
+
+    update();
+
+    Object key = values.length == 1 ? values[0] : RowKey.of(values);
+    Rows rows = mapOf(key).get(key);
+
+    return rows != null ? rows.toArray() : new int[0];
+  }
+
+  /**
+   * Returns a read-only view of the rows with the given values in the indexed columns, in order of
+   * the grid.
+   *
+   * @param values the values, one for each indexed column.
+   * @return a list of rows.
+   * @throws IllegalArgumentException if the number of values does not match the number of indexed
+   *     columns.
+   * @throws IllegalStateException if an indexed column has been removed from the grid.
+   */
+  public List<List<Object>> getRows(Object... values) {
+    return new ProjectedList<>(grid.getRows(), getRowIndexes(values));
+  }
+
+  /**
+   * Returns the number of distinct values, or combinations of values, in the indexed columns.
+   *
+   * @return the number of distinct keys.
+   * @throws IllegalStateException if an indexed column has been removed from the grid.
+   */
+  public int getKeyCount() {
+    update();
+    return map.size() + otherKeys.size();
+  }
+
+  /**
+   * Returns the row indexes by key, after bringing the index up to date with the grid. Keys which
+   * are not held in the map are not included.
+   *
+   * @return the row indexes by key.
+   * @throws IllegalStateException if an indexed column has been removed from the grid.
+   */
+  Map<Object, Rows> getRowsByKey() {
+    update();
+    return map;
+  }
+
+  /**
+   * Returns the grid which is indexed.
+   *
+   * @return the {@link Grid}.
+   */
+  Grid getGrid() {
+    return grid;
+  }
+
+  /** Marks the index for rebuilding and releases the indexed rows. */
+  void invalidate() {
+    valid = false;
+    map.clear();
+    otherKeys.clear();
+    indexedRows = 0;
+    lastKey = null;
+    lastRowPending = false;
+  }
+
+  /**
+   * Removes rows at or after the given height from the index.
+   *
+   * @param height the number of rows to keep.
+   */
+  void truncate(int height) {
+    if (!valid || indexedRows <= height) {
+      return;
+    }
+
+    map.values().removeIf(rows -> rows.truncate(height) == 0);
+    otherKeys.values().removeIf(rows -> rows.truncate(height) == 0);
+    indexedRows = height;
+    lastKey = null;
+    lastRowPending = false;
+  }
+
+  /**
+   * Brings the index up to date with the grid, indexing rows added since the last update and the
+   * last row indexed by the previous update, or rebuilding the index if it has been invalidated.
+   *
+   * @throws IllegalStateException if an indexed column has been removed from the grid.
+   */
+  void update() {
+    int height = grid.getHeight();
+
+    if (!valid || indexedRows > height) {
+      invalidate();
+      valid = true;
+    } else if (lastRowPending) {
+      removeLastRow();
+    }
+
+    if (indexedRows == height) {
+      return;
+    }
+
+    int[] columnIndexes = new int[columns.length];
+
+    for (int i = 0; i < columns.length; i++) {
+      columnIndexes[i] = grid.getIndexOfColumn(columns[i]);
+
+      if (columnIndexes[i] == -1) {
+        invalidate();
+        throw new IllegalStateException("Grid does not contain column: " + columns[i]);
+      }
+    }
+
+    List<List<Object>> rows = grid.getRows();
+
+    for (int row = indexedRows; row < height; row++) {
+      List<Object> values = rows.get(row);
+      Object key;
+
+      if (columnIndexes.length == 1) {
+        key = getValue(values, columnIndexes[0]);
+      } else {
+        Object[] keyValues = new Object[columnIndexes.length];
+
+        for (int i = 0; i < columnIndexes.length; i++) {
+          keyValues[i] = getValue(values, columnIndexes[i]);
+        }
+
+        key = RowKey.of(keyValues);
+      }
+
+      mapOf(key).computeIfAbsent(key, k -> rowsFactory.get()).add(row);
+      lastKey = key;
+    }
+
+    indexedRows = height;
+    lastRowPending = true;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Removes the last indexed row from the index, so that values added to the row after it was
+   * indexed are reflected when it is indexed again.
+   */
+  private void removeLastRow() {
+    Map<Object, Rows> keyMap = mapOf(lastKey);
+    Rows rows = keyMap.get(lastKey);
+
+    if (rows != null && rows.truncate(indexedRows - 1) == 0) {
+      keyMap.remove(lastKey);
+    }
+
+    indexedRows--;
+    lastKey = null;
+    lastRowPending = false;
+  }
+
+  private Map<Object, Rows> mapOf(Object key) {
+    return mapKeys.test(key) ? map : otherKeys;
+  }
+
+  private static Object getValue(List<Object> row, int columnIndex) {
+    return columnIndex < row.size() ? row.get(columnIndex) : null;
+  }
+
+  /** Row indexes of one key, added in ascending order. */
+  abstract static class Rows {
+    /**
+     * Adds the given row, which is greater than all rows added before.
+     *
+     * @param row the row index.
+     */
+    abstract void add(int row);
+
+    /**
+     * Removes rows at or after the given height.
+     *
+     * @param height the number of rows to keep.
+     * @return the remaining number of rows.
+     */
+    abstract int truncate(int height);
+
+    abstract int size();
+
+    abstract int[] toArray();
+
+    void copyTo(int[] target, int offset) {
+      System.arraycopy(toArray(), 0, target, offset, size());
+    }
+  }
+
+  /** Growable array of row indexes. */
+  static class ArrayRows extends Rows {
+    private int[] rows = new int[4];
+
+    private int size;
+
+    @Override
+    void add(int row) {
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+
+      rows[size++] = row;
+    }
+
+    @Override
+    int truncate(int height) {
+      while (size > 0 && rows[size - 1] >= height) {
+        size--;
+      }
+
+      return size;
+    }
+
+    @Override
+    int size() {
+      return size;
+    }
+
+    @Override
+    int[] toArray() {
+      return Arrays.copyOf(rows, size);
+    }
+
+    @Override
+    void copyTo(int[] target, int offset) {
+      System.arraycopy(rows, 0, target, offset, size);
+    }
+  }
+}
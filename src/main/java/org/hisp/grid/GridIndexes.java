@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indexes created on a grid, which are notified by the grid of operations which move or remove
+ * rows. Indexes are held weakly, so that indexes which are no longer used are not retained by the
+ * grid, except for bitmap indexes which are used by the grid itself and are held until replaced or
+ * until their column is removed.
+ */
+class GridIndexes {
+  private final List<WeakReference<GridIndex>> indexes = new ArrayList<>();
+
+  private final List<BitmapIndex> bitmapIndexes = new ArrayList<>();
+
+  /**
+   * Adds the given index.
+   *
+   * @param index the {@link GridIndex}.
+   * @return the index.
+   */
+  <T extends GridIndex> T add(T index) {
+    indexes.removeIf(reference -> reference.get() == null);
+    indexes.add(new WeakReference<>(index));
+    return index;
+  }
+
+  /**
+   * Adds the given bitmap index, replacing any bitmap index on the same column.
+   *
+   * @param index the {@link BitmapIndex}.
+   * @return the index.
+   */
+  BitmapIndex addBitmapIndex(BitmapIndex index) {
+    bitmapIndexes.removeIf(bitmapIndex -> bitmapIndex.getColumn().equals(index.getColumn()));
+    bitmapIndexes.add(index);
+    return add(index);
+  }
+
+  /**
+   * Returns the bitmap index on the given column.
+   *
+   * @param column the column.
+   * @return the {@link BitmapIndex}, or null if the column has no bitmap index.
+   */
+  BitmapIndex getBitmapIndex(String column) {
+    for (BitmapIndex index : bitmapIndexes) {
+      if (index.getColumn().equals(column)) {
+        return index;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the bitmap index on the column with the given index in the given grid. Bitmap indexes
+   * on columns which have been removed from the grid are dropped.
+   *
+   * @param grid the {@link Grid}.
+   * @param columnIndex the column index.
+   * @return the {@link BitmapIndex}, or null if the column has no bitmap index.
+   */
+  BitmapIndex getBitmapIndex(Grid grid, int columnIndex) {
+    if (bitmapIndexes.isEmpty()) {
+      return null;
+    }
+
+    bitmapIndexes.removeIf(index -> grid.getIndexOfColumn(index.getColumn()) == -1);
+
+    for (BitmapIndex index : bitmapIndexes) {
+      if (grid.getIndexOfColumn(index.getColumn()) == columnIndex) {
+        return index;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the bitmap index on the column with the given index in the given grid, if the grid
+   * supports indexes.
+   *
+   * @param grid the {@link Grid}.
+   * @param columnIndex the column index.
+   * @return the {@link BitmapIndex}, or null if the column has no bitmap index.
+   */
+  static BitmapIndex findBitmapIndex(Grid grid, int columnIndex) {
+    GridIndexes indexes = null;
+
+    if (grid instanceof ListGrid listGrid) {
+      indexes = listGrid.getIndexes();
+    } else if (grid instanceof ColumnarGrid columnarGrid) {
+      indexes = columnarGrid.getIndexes();
+    }
+
+    return indexes != null ? indexes.getBitmapIndex(grid, columnIndex) : null;
+  }
+
+  /** Invalidates all indexes. */
+  void invalidate() {
+    for (WeakReference<GridIndex> reference : indexes) {
+      GridIndex index = reference.get();
+
+      if (index != null) {
+        index.invalidate();
+      }
+    }
+  }
+
+  /**
+   * Removes rows at or after the given height from all indexes.
+   *
+   * @param height the number of rows to keep.
+   */
+  void truncate(int height) {
+    for (WeakReference<GridIndex> reference : indexes) {
+      GridIndex index = reference.get();
+
+      if (index != null) {
+        index.truncate(height);
+      }
+    }
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.hisp.grid.column.Column;
+import org.hisp.grid.column.NumericColumn;
+
+/**
+ * Predicate on the rows of a grid for {@link Grid#filter(GridPredicate)}. Predicates are evaluated
+ * one column at a time against a bitmap of candidate rows, where rows which do not match are
+ * cleared, so that combined and chained predicates only test rows which are still selected.
+ */
+public abstract class GridPredicate {
+  private GridPredicate() {}
+
+  /**
+   * Returns a predicate which matches numeric values within the given inclusive range.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param min the minimum value.
+   * @param max the maximum value.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate between(int columnIndex, double min, double max) {
+    return new RangePredicate(columnIndex, min, max);
+  }
+
+  /**
+   * Returns a predicate which matches numeric values greater than or equal to the given value.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param min the minimum value.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate atLeast(int columnIndex, double min) {
+    return new RangePredicate(columnIndex, min, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Returns a predicate which matches numeric values less than or equal to the given value.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param max the maximum value.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate atMost(int columnIndex, double max) {
+    return new RangePredicate(columnIndex, Double.NEGATIVE_INFINITY, max);
+  }
+
+  /**
+   * Returns a predicate which matches values equal to the given value. A null value matches null
+   * values.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param value the value.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate eq(int columnIndex, Object value) {
+    return value != null
+        ? new InPredicate(columnIndex, Set.of(value))
+        : new NullPredicate(columnIndex, true);
+  }
+
+  /**
+   * Returns a predicate which matches non-null values contained in the given values.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param values the values.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate in(int columnIndex, Collection<?> values) {
+    return new InPredicate(columnIndex, new HashSet<>(values));
+  }
+
+  /**
+   * Returns a predicate which matches null values.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate isNull(int columnIndex) {
+    return new NullPredicate(columnIndex, true);
+  }
+
+  /**
+   * Returns a predicate which matches non-null values.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate isNotNull(int columnIndex) {
+    return new NullPredicate(columnIndex, false);
+  }
+
+  /**
+   * Returns a predicate which matches text values which match the given regular expression.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param regex the regular expression.
+   * @return a {@link GridPredicate}.
+   */
+  public static GridPredicate matches(int columnIndex, String regex) {
+    return new RegexPredicate(columnIndex, Pattern.compile(regex));
+  }
+
+  /**
+   * Returns a predicate which matches rows matched by both this and the given predicate.
+   *
+   * @param other the other {@link GridPredicate}.
+   * @return a {@link GridPredicate}.
+   */
+  public GridPredicate and(GridPredicate other) {
+    return new AndPredicate(this, other);
+  }
+
+  /**
+   * Returns a predicate which matches rows matched by this or the given predicate.
+   *
+   * @param other the other {@link GridPredicate}.
+   * @return a {@link GridPredicate}.
+   */
+  public GridPredicate or(GridPredicate other) {
+    return new OrPredicate(this, other);
+  }
+
+  /**
+   * Returns a predicate which matches rows not matched by this predicate.
+   *
+   * @return a {@link GridPredicate}.
+   */
+  public GridPredicate not() {
+    return new NotPredicate(this);
+  }
+
+  /**
+   * Clears the rows of the given selection which do not match this predicate.
+   *
+   * @param grid the {@link Grid}.
+   * @param selection the selected rows.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  abstract void retain(Grid grid, BitSet selection);
+
+  // -------------------------------------------------------------------------
+  // Implementations
+  // -------------------------------------------------------------------------
+
+  /** Predicate on the values of a single column. */
+  private abstract static class ColumnPredicate extends GridPredicate {
+    /** Index of the column to test, starting on 0. */
+    private final int columnIndex;
+
+    ColumnPredicate(int columnIndex) {
+      this.columnIndex = columnIndex;
+    }
+
+    @Override
+    void retain(Grid grid, BitSet selection) {
+      int width = grid.getHeight() > 0 ? grid.getWidth() : grid.getHeaders().size();
+
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+
+      BitmapIndex bitmapIndex = GridIndexes.findBitmapIndex(grid, columnIndex);
+
+      if (bitmapIndex != null && retain(bitmapIndex, selection)) {
+        return;
+      }
+
+      Column column =
+          grid instanceof ColumnarGrid columnarGrid
+              ? columnarGrid.getColumnStorage(columnIndex)
+              : null;
+
+      if (column != null) {
+        retain(column, selection);
+        return;
+      }
+
+      List<List<Object>> rows = grid.getRows();
+      Predicate<Object> tester = tester();
+
+      for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+        if (!tester.test(rows.get(row).get(columnIndex))) {
+          selection.clear(row);
+        }
+      }
+    }
+
+    /**
+     * Clears the rows of the given selection for which the value of the given column does not match
+     * this predicate.
+     *
+     * @param column the {@link Column}.
+     * @param selection the selected rows.
+     */
+    void retain(Column column, BitSet selection) {
+      Predicate<Object> tester = tester();
+
+      for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+        if (!tester.test(column.get(row))) {
+          selection.clear(row);
+        }
+      }
+    }
+
+    /**
+     * Clears the rows of the given selection which do not match this predicate based on the given
+     * bitmap index of the column, if supported by the predicate.
+     *
+     * @param index the {@link BitmapIndex}.
+     * @param selection the selected rows.
+     * @return true if the selection was updated, false if the index is not supported.
+     */
+    boolean retain(BitmapIndex index, BitSet selection) {
+      return false;
+    }
+
+    /**
+     * Returns a tester of values for one evaluation. The tester is used by a single thread.
+     *
+     * @return a {@link Predicate}.
+     */
+    abstract Predicate<Object> tester();
+  }
+
+  /** Predicate on a numeric range, which reads numeric columns as primitive values. */
+  private static class RangePredicate extends ColumnPredicate {
+    private final double min;
+
+    private final double max;
+
+    RangePredicate(int columnIndex, double min, double max) {
+      super(columnIndex);
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    void retain(Column column, BitSet selection) {
+      if (!(column instanceof NumericColumn numericColumn)) {
+        super.retain(column, selection);
+        return;
+      }
+
+      for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+        if (numericColumn.isNull(row) || !inRange(numericColumn.getDouble(row))) {
+          selection.clear(row);
+        }
+      }
+    }
+
+    @Override
+    Predicate<Object> tester() {
+      return value -> value instanceof Number number && inRange(number.doubleValue());
+    }
+
+    /**
+     * Indicates whether the given value is within the range. NaN is never within the range.
+     *
+     * @param value the value.
+     * @return true if the value is within the range.
+     */
+    private boolean inRange(double value) {
+      return value >= min && value <= max;
+    }
+  }
+
+  /** Predicate on equality with one of a set of values. */
+  private static class InPredicate extends ColumnPredicate {
+    private final Set<?> values;
+
+    InPredicate(int columnIndex, Set<?> values) {
+      super(columnIndex);
+      this.values = values;
+    }
+
+    @Override
+    boolean retain(BitmapIndex index, BitSet selection) {
+      Set<Object> keys = new HashSet<>(values);
+      keys.remove(null);
+      selection.and(index.toBitSet(keys));
+      return true;
+    }
+
+    @Override
+    Predicate<Object> tester() {
+      return value -> value != null && values.contains(value);
+    }
+  }
+
+  /** Predicate on null values. */
+  private static class NullPredicate extends ColumnPredicate {
+    private final boolean isNull;
+
+    NullPredicate(int columnIndex, boolean isNull) {
+      super(columnIndex);
+      this.isNull = isNull;
+    }
+
+    @Override
+    boolean retain(BitmapIndex index, BitSet selection) {
+      BitSet nulls = index.toBitSet(Collections.singleton(null));
+
+      if (isNull) {
+        selection.and(nulls);
+      } else {
+        selection.andNot(nulls);
+      }
+
+      return true;
+    }
+
+    @Override
+    void retain(Column column, BitSet selection) {
+      for (int row = selection.nextSetBit(0); row >= 0; row = selection.nextSetBit(row + 1)) {
+        if (column.isNull(row) != isNull) {
+          selection.clear(row);
+        }
+      }
+    }
+
+    @Override
+    Predicate<Object> tester() {
+      return value -> (value == null) == isNull;
+    }
+  }
+
+  /** Predicate on a regular expression, which reuses one matcher per evaluation. */
+  private static class RegexPredicate extends ColumnPredicate {
+    private final Pattern pattern;
+
+    RegexPredicate(int columnIndex, Pattern pattern) {
+      super(columnIndex);
+      this.pattern = pattern;
+    }
+
+    @Override
+    Predicate<Object> tester() {
+      Matcher matcher = pattern.matcher("");
+
+      return value -> value instanceof CharSequence text && matcher.reset(text).matches();
+    }
+  }
+
+  /** Predicate which matches rows matched by both predicates. */
+  private static class AndPredicate extends GridPredicate {
+    private final GridPredicate left;
+
+    private final GridPredicate right;
+
+    AndPredicate(GridPredicate left, GridPredicate right) {
+      this.left = Objects.requireNonNull(left);
+      this.right = Objects.requireNonNull(right);
+    }
+
+    @Override
+    void retain(Grid grid, BitSet selection) {
+      left.retain(grid, selection);
+      right.retain(grid, selection);
+    }
+  }
+
+  /** Predicate which matches rows matched by either predicate. */
+  private static class OrPredicate extends GridPredicate {
+    private final GridPredicate left;
+
+    private final GridPredicate right;
+
+    OrPredicate(GridPredicate left, GridPredicate right) {
+      this.left = Objects.requireNonNull(left);
+      this.right = Objects.requireNonNull(right);
+    }
+
+    @Override
+    void retain(Grid grid, BitSet selection) {
+      BitSet leftSelection = (BitSet) selection.clone();
+      left.retain(grid, leftSelection);
+
+      selection.andNot(leftSelection);
+      right.retain(grid, selection);
+      selection.or(leftSelection);
+    }
+  }
+
+  /** Predicate which matches rows not matched by a predicate. */
+  private static class NotPredicate extends GridPredicate {
+    private final GridPredicate predicate;
+
+    NotPredicate(GridPredicate predicate) {
+      this.predicate = Objects.requireNonNull(predicate);
+    }
+
+    @Override
+    void retain(Grid grid, BitSet selection) {
+      BitSet matching = (BitSet) selection.clone();
+      predicate.retain(grid, matching);
+      selection.andNot(matching);
+    }
+  }
+}
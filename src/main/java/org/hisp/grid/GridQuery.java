@@ -0,0 +1,627 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lazy query on a grid, created with {@link Grid#query()}. Operations are recorded and planned when
+ * the query is executed, and the grid is not modified. The result is identical to applying the
+ * operations in the order in which they are added to a copy of the grid, and the plan avoids the
+ * intermediate copies:
+ *
+ * <ul>
+ *   <li>Filters select rows by index. Consecutive filters are evaluated into one bitmap of selected
+ *       rows, and filters after a sort or limit keep the order of the rows.
+ *   <li>An aggregation groups the selected rows into a new set of rows, without copying the rows.
+ *   <li>A sort reads sort keys for the selected rows only, and a sort followed by a limit selects
+ *       the first rows with a bounded heap instead of sorting all rows.
+ *   <li>Projections and substitutions are applied while the returned rows are copied, in a single
+ *       pass which reads only the required columns. When a later filter, sort or aggregation
+ *       follows, the selected rows are copied with the projections and substitutions at that point.
+ * </ul>
+ *
+ * <p>Column indexes refer to the columns produced by the preceding operations, as when the
+ * operations are applied to a grid one after another.
+ *
+ * <pre>{@code
+ * Grid result = grid.query()
+ *   .filter(GridPredicate.atLeast(3, 100))
+ *   .sort(SortSpec.desc(3))
+ *   .limit(10)
+ *   .project(0, 1, 3)
+ *   .substituteMetaData(metaData)
+ *   .execute();
+ * }</pre>
+ */
+public class GridQuery {
+  /** The grid to query. */
+  private final Grid grid;
+
+  /** The operations, in the order in which they were added. */
+  private final List<Stage> stages = new ArrayList<>();
+
+  /** Whether the query is aggregated. */
+  private boolean aggregated;
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to query.
+   */
+  GridQuery(Grid grid) {
+    this.grid = grid;
+  }
+
+  /**
+   * Adds a filter on the rows. Rows must match all filters.
+   *
+   * @param predicate the {@link GridPredicate}.
+   * @return this query.
+   */
+  public GridQuery filter(GridPredicate predicate) {
+    Stage stage = new Stage(StageType.FILTER);
+    stage.predicate = predicate;
+    stages.add(stage);
+    return this;
+  }
+
+  /**
+   * Aggregates the selected rows, as with {@link GroupBy#aggregate(Aggregate...)}.
+   *
+   * @param columnIndexes the indexes of the key columns, starting on 0.
+   * @param aggregates the {@link Aggregate} instances.
+   * @return this query.
+   * @throws IllegalStateException if the query is already aggregated.
+   */
+  public GridQuery aggregate(int[] columnIndexes, Aggregate... aggregates) {
+    if (aggregated) {
+      throw new IllegalStateException("Query is already aggregated");
+    }
+
+    Stage stage = new Stage(StageType.AGGREGATE);
+    stage.columns = columnIndexes.clone();
+    stage.aggregates = aggregates.clone();
+    stages.add(stage);
+    aggregated = true;
+    return this;
+  }
+
+  /**
+   * Sorts the rows on the given sort specifications. The sort is stable, so that a subsequent sort
+   * takes precedence over an earlier sort, as when sorting a grid repeatedly.
+   *
+   * @param specs the {@link SortSpec} instances, in order of precedence.
+   * @return this query.
+   */
+  public GridQuery sort(SortSpec... specs) {
+    Stage last = getLastStage(StageType.SORT);
+
+    if (last != null) {
+      SortSpec[] combined = Arrays.copyOf(specs, specs.length + last.specs.length);
+      System.arraycopy(last.specs, 0, combined, specs.length, last.specs.length);
+      last.specs = combined;
+    } else {
+      Stage stage = new Stage(StageType.SORT);
+      stage.specs = specs.clone();
+      stages.add(stage);
+    }
+
+    return this;
+  }
+
+  /**
+   * Limits the number of rows to the first rows.
+   *
+   * @param limit the maximum number of rows.
+   * @return this query.
+   * @throws IllegalStateException if the limit is negative.
+   */
+  public GridQuery limit(int limit) {
+    if (limit < 0) {
+      throw new IllegalStateException("Illegal limit: " + limit);
+    }
+
+    Stage last = getLastStage(StageType.LIMIT);
+
+    if (last != null) {
+      last.limit = Math.min(last.limit, limit);
+    } else {
+      Stage stage = new Stage(StageType.LIMIT);
+      stage.limit = limit;
+      stages.add(stage);
+    }
+
+    return this;
+  }
+
+  /**
+   * Returns only the given columns, in the given order.
+   *
+   * @param columnIndexes the indexes of the columns to return, starting on 0.
+   * @return this query.
+   */
+  public GridQuery project(int... columnIndexes) {
+    Stage stage = new Stage(StageType.PROJECT);
+    stage.columns = columnIndexes.clone();
+    stages.add(stage);
+    return this;
+  }
+
+  /**
+   * Substitutes header names and the values of meta columns, as with {@link
+   * Grid#substituteMetaData(Map)}.
+   *
+   * @param metaDataMap meta data map of keys and value substitutions.
+   * @return this query.
+   */
+  public GridQuery substituteMetaData(Map<?, ?> metaDataMap) {
+    if (metaDataMap != null) {
+      addSubstitution(new Substitution(-1, -1, metaDataMap));
+    }
+
+    return this;
+  }
+
+  /**
+   * Substitutes values of the target column based on the values of the source column, as with
+   * {@link Grid#substituteMetaData(int, int, Map)}.
+   *
+   * @param sourceColumnIndex the index of the column to read values.
+   * @param targetColumnIndex the index of the column to substitute values.
+   * @param metaDataMap meta-data map of keys and substitutions.
+   * @return this query.
+   */
+  public GridQuery substituteMetaData(
+      int sourceColumnIndex, int targetColumnIndex, Map<?, ?> metaDataMap) {
+    if (metaDataMap != null) {
+      addSubstitution(new Substitution(sourceColumnIndex, targetColumnIndex, metaDataMap));
+    }
+
+    return this;
+  }
+
+  /**
+   * Executes the query and returns the result as a new grid. The grid to query is not modified.
+   *
+   * @return a new {@link Grid}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   * @throws NumberFormatException if a value to aggregate is not numeric.
+   */
+  public Grid execute() {
+    Plan plan = new Plan(grid);
+    int i = 0;
+
+    while (i < stages.size()) {
+      Stage stage = stages.get(i++);
+
+      switch (stage.type) {
+        case FILTER -> {
+          List<GridPredicate> predicates = new ArrayList<>();
+          predicates.add(stage.predicate);
+
+          while (i < stages.size() && stages.get(i).type == StageType.FILTER) {
+            predicates.add(stages.get(i++).predicate);
+          }
+
+          plan.filter(predicates);
+        }
+        case AGGREGATE -> plan.aggregate(stage.columns, stage.aggregates);
+        case SORT -> {
+          int limit = -1;
+
+          if (i < stages.size() && stages.get(i).type == StageType.LIMIT) {
+            limit = stages.get(i++).limit;
+          }
+
+          plan.sort(stage.specs, limit);
+        }
+        case LIMIT -> plan.limit(stage.limit);
+        case PROJECT -> plan.project(stage.columns);
+        case SUBSTITUTE -> plan.substitute(stage.substitution);
+      }
+    }
+
+    return plan.materialize();
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Returns the last stage if it is of the given type, so that consecutive operations of the same
+   * type can be combined.
+   *
+   * @param type the {@link StageType}.
+   * @return the last {@link Stage}, or null.
+   */
+  private Stage getLastStage(StageType type) {
+    Stage last = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+    return last != null && last.type == type ? last : null;
+  }
+
+  private void addSubstitution(Substitution substitution) {
+    Stage stage = new Stage(StageType.SUBSTITUTE);
+    stage.substitution = substitution;
+    stages.add(stage);
+  }
+
+  private static int getWidth(Grid grid) {
+    return grid.getHeight() > 0 ? grid.getWidth() : grid.getHeaders().size();
+  }
+
+  private static void validateColumnIndex(int columnIndex, int width) {
+    if (columnIndex < 0 || columnIndex >= width) {
+      throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+    }
+  }
+
+  private static int[] range(int size) {
+    int[] indexes = new int[size];
+
+    for (int i = 0; i < size; i++) {
+      indexes[i] = i;
+    }
+
+    return indexes;
+  }
+
+  /** Type of a query operation. */
+  private enum StageType {
+    FILTER,
+    AGGREGATE,
+    SORT,
+    LIMIT,
+    PROJECT,
+    SUBSTITUTE
+  }
+
+  /** Query operation, holding the arguments of its type. */
+  private static class Stage {
+    private final StageType type;
+
+    private GridPredicate predicate;
+
+    private int[] columns;
+
+    private Aggregate[] aggregates;
+
+    private SortSpec[] specs;
+
+    private int limit;
+
+    private Substitution substitution;
+
+    Stage(StageType type) {
+      this.type = type;
+    }
+  }
+
+  /**
+   * State of the execution of a query. Rows are selected by index into an input grid, which is the
+   * queried grid until an aggregation or a copy of the rows replaces it. Projections and
+   * substitutions are recorded against the columns of the input grid and are applied when the rows
+   * are copied.
+   */
+  private static class Plan {
+    /** The grid holding the rows. */
+    private Grid input;
+
+    /** The indexes of the selected rows in the input grid, in order. */
+    private int[] rows;
+
+    /** The indexes of the columns of the input grid to return, or null for all columns. */
+    private int[] columns;
+
+    /** The substitutions on the columns of the input grid, in order. */
+    private final List<Substitution> substitutions = new ArrayList<>();
+
+    Plan(Grid input) {
+      this.input = input;
+      this.rows = range(input.getHeight());
+    }
+
+    /**
+     * Retains the rows which match all given predicates, keeping the order of the rows.
+     *
+     * @param predicates the {@link GridPredicate} instances.
+     */
+    void filter(List<GridPredicate> predicates) {
+      copyRows();
+
+      BitSet selection = new BitSet(input.getHeight());
+
+      for (int row : rows) {
+        selection.set(row);
+      }
+
+      for (GridPredicate predicate : predicates) {
+        predicate.retain(input, selection);
+      }
+
+      rows = Arrays.stream(rows).filter(selection::get).toArray();
+    }
+
+    /**
+     * Aggregates the selected rows.
+     *
+     * @param groupColumns the indexes of the key columns.
+     * @param aggregates the {@link Aggregate} instances.
+     */
+    void aggregate(int[] groupColumns, Aggregate[] aggregates) {
+      copyRows();
+
+      input =
+          new GroupBy(input, new ProjectedList<>(input.getRows(), rows), groupColumns)
+              .aggregate(aggregates);
+      rows = range(input.getHeight());
+    }
+
+    /**
+     * Sorts the selected rows with a stable sort, up to the given limit.
+     *
+     * @param specs the {@link SortSpec} instances.
+     * @param limit the maximum number of rows, or -1 for no limit.
+     * @throws IllegalArgumentException if a column index is out of bounds.
+     */
+    void sort(SortSpec[] specs, int limit) {
+      copyRows();
+
+      int width = getWidth(input);
+
+      for (SortSpec spec : specs) {
+        validateColumnIndex(spec.getColumnIndex(), width);
+      }
+
+      if (specs.length == 0 || rows.length == 0 || limit == 0) {
+        limit(limit);
+        return;
+      }
+
+      List<List<Object>> source = input.getRows();
+      Object[][] values = new Object[specs.length][rows.length];
+
+      for (int i = 0; i < rows.length; i++) {
+        List<Object> row = source.get(rows[i]);
+
+        for (int s = 0; s < specs.length; s++) {
+          values[s][i] = row.get(specs[s].getColumnIndex());
+        }
+      }
+
+      SortKey[] keys = new SortKey[specs.length];
+
+      for (int s = 0; s < specs.length; s++) {
+        keys[s] = SortKey.of(values[s], specs[s]);
+      }
+
+      int[] positions =
+          limit >= 0 && limit < rows.length
+              ? RowSorter.top(rows.length, keys, limit)
+              : RowSorter.sort(rows.length, keys);
+      int[] sorted = new int[positions.length];
+
+      for (int i = 0; i < positions.length; i++) {
+        sorted[i] = rows[positions[i]];
+      }
+
+      rows = sorted;
+    }
+
+    /**
+     * Retains the first selected rows. Projections and substitutions apply to each row on its own,
+     * so the rows are not copied.
+     *
+     * @param limit the maximum number of rows, or -1 for no limit.
+     */
+    void limit(int limit) {
+      if (limit >= 0 && limit < rows.length) {
+        rows = Arrays.copyOf(rows, limit);
+      }
+    }
+
+    /**
+     * Records a projection on the columns returned by the preceding operations.
+     *
+     * @param projection the indexes of the columns to return.
+     * @throws IllegalArgumentException if a column index is out of bounds.
+     */
+    void project(int[] projection) {
+      int width = getOutputWidth();
+      int[] projected = new int[projection.length];
+
+      for (int i = 0; i < projection.length; i++) {
+        validateColumnIndex(projection[i], width);
+        projected[i] = getInputColumn(projection[i]);
+      }
+
+      columns = projected;
+    }
+
+    /**
+     * Records a substitution on the columns returned by the preceding operations.
+     *
+     * @param substitution the {@link Substitution}.
+     * @throws IllegalArgumentException if a column index is out of bounds.
+     */
+    void substitute(Substitution substitution) {
+      if (substitution.sourceColumnIndex < 0) {
+        substitutions.add(substitution);
+        return;
+      }
+
+      int width = getOutputWidth();
+      validateColumnIndex(substitution.sourceColumnIndex, width);
+      validateColumnIndex(substitution.targetColumnIndex, width);
+      substitutions.add(
+          new Substitution(
+              getInputColumn(substitution.sourceColumnIndex),
+              getInputColumn(substitution.targetColumnIndex),
+              substitution.metaDataMap));
+    }
+
+    /**
+     * Copies the selected rows with the recorded projection and substitutions, if any, so that
+     * subsequent operations read the projected and substituted values.
+     */
+    private void copyRows() {
+      if (columns != null || !substitutions.isEmpty()) {
+        input = materialize();
+        rows = range(input.getHeight());
+        columns = null;
+        substitutions.clear();
+      }
+    }
+
+    private int getOutputWidth() {
+      return columns != null ? columns.length : getWidth(input);
+    }
+
+    private int getInputColumn(int columnIndex) {
+      return columns != null ? columns[columnIndex] : columnIndex;
+    }
+
+    /**
+     * Copies the selected rows into a new grid, applying the projection and the substitutions. Only
+     * the columns which are returned or read by substitutions are read.
+     *
+     * @return a new {@link Grid}.
+     */
+    Grid materialize() {
+      int width = getWidth(input);
+      int[] returned = columns != null ? columns : range(width);
+      List<GridHeader> headers = input.getHeaders();
+      List<Substitution> columnSubstitutions = new ArrayList<>();
+      boolean[] read = new boolean[width];
+
+      for (int column : returned) {
+        read[column] = true;
+      }
+
+      for (Substitution substitution : substitutions) {
+        if (substitution.sourceColumnIndex >= 0) {
+          columnSubstitutions.add(substitution);
+          continue;
+        }
+
+        for (int column = 0; column < headers.size() && column < width; column++) {
+          if (headers.get(column).isMeta()) {
+            columnSubstitutions.add(new Substitution(column, column, substitution.metaDataMap));
+          }
+        }
+      }
+
+      for (Substitution substitution : columnSubstitutions) {
+        read[substitution.sourceColumnIndex] = true;
+        read[substitution.targetColumnIndex] = true;
+      }
+
+      Grid result = new ListGrid();
+
+      for (int column : returned) {
+        if (column < headers.size()) {
+          result.addHeader(getHeader(headers.get(column)));
+        }
+      }
+
+      List<List<Object>> source = input.getRows();
+      Object[] values = new Object[width];
+
+      for (int rowIndex : rows) {
+        List<Object> row = source.get(rowIndex);
+
+        for (int column = 0; column < width; column++) {
+          if (read[column]) {
+            values[column] = row.get(column);
+          }
+        }
+
+        for (Substitution substitution : columnSubstitutions) {
+          Object value = substitution.metaDataMap.get(values[substitution.sourceColumnIndex]);
+
+          if (value != null) {
+            values[substitution.targetColumnIndex] = value;
+          }
+        }
+
+        result.addRow();
+
+        for (int column : returned) {
+          result.addValue(values[column]);
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns a copy of the given header, with the name substituted by the meta data substitutions.
+     *
+     * @param header the {@link GridHeader}.
+     * @return a new {@link GridHeader}.
+     */
+    private GridHeader getHeader(GridHeader header) {
+      String name = header.getName();
+
+      for (Substitution substitution : substitutions) {
+        Object metaName =
+            substitution.sourceColumnIndex < 0 ? substitution.metaDataMap.get(name) : null;
+
+        if (metaName != null) {
+          name = String.valueOf(metaName);
+        }
+      }
+
+      return new GridHeader(
+          name, header.getColumn(), header.getValueType(), header.isHidden(), header.isMeta());
+    }
+  }
+
+  /**
+   * Substitution of values based on a meta data map. Source and target column indexes of -1 denote
+   * a substitution of header names and of the values of all meta columns.
+   */
+  private static class Substitution {
+    private final int sourceColumnIndex;
+
+    private final int targetColumnIndex;
+
+    private final Map<?, ?> metaDataMap;
+
+    Substitution(int sourceColumnIndex, int targetColumnIndex, Map<?, ?> metaDataMap) {
+      this.sourceColumnIndex = sourceColumnIndex;
+      this.targetColumnIndex = targetColumnIndex;
+      this.metaDataMap = metaDataMap;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Rows of a grid selected by predicates, created with {@link Grid#filter(GridPredicate)}. The
+ * selection is held as a bitmap over the rows of the grid, so that chained filters combine bitmaps
+ * and only test rows which are still selected, without creating intermediate grids. Selected rows
+ * are exposed as a view of the rows of the grid, or copied into a new grid with {@link #toGrid()}.
+ * The selection refers to the row positions at the time of filtering, and does not reflect rows
+ * which are later added, removed or reordered.
+ */
+public class GridSelection {
+  /** The grid to select rows from. */
+  private final Grid grid;
+
+  /** The selected rows. */
+  private final BitSet selection;
+
+  /** The indexes of the selected rows, created on demand. */
+  private int[] rowIndexes;
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid}.
+   * @param selection the selected rows.
+   */
+  GridSelection(Grid grid, BitSet selection) {
+    this.grid = grid;
+    this.selection = selection;
+  }
+
+  /**
+   * Returns a selection of the rows of this selection which match the given predicate.
+   *
+   * @param predicate the {@link GridPredicate}.
+   * @return a new {@link GridSelection}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  public GridSelection filter(GridPredicate predicate) {
+    BitSet filtered = (BitSet) selection.clone();
+    predicate.retain(grid, filtered);
+    return new GridSelection(grid, filtered);
+  }
+
+  /**
+   * Returns the number of selected rows.
+   *
+   * @return the number of selected rows.
+   */
+  public int size() {
+    return selection.cardinality();
+  }
+
+  /**
+   * Indicates whether the row at the given index is selected.
+   *
+   * @param rowIndex the row index.
+   * @return true if the row is selected.
+   */
+  public boolean isSelected(int rowIndex) {
+    return selection.get(rowIndex);
+  }
+
+  /**
+   * Returns the indexes of the selected rows in ascending order.
+   *
+   * @return the row indexes.
+   */
+  public int[] getRowIndexes() {
+    return getSelectedRows().clone();
+  }
+
+  /**
+   * Returns a read-only view of the selected rows. Rows are not copied, and can be written with
+   * {@link org.hisp.grid.writer.GridWriter#write(Grid, Iterable, java.io.Writer)}.
+   *
+   * @return a list of the selected rows.
+   */
+  public List<List<Object>> getRows() {
+    return new ProjectedList<>(grid.getRows(), getSelectedRows());
+  }
+
+  /**
+   * Returns a new grid with the headers of the grid and copies of the selected rows.
+   *
+   * @return a new {@link Grid}.
+   */
+  public Grid toGrid() {
+    Grid result = new ListGrid();
+
+    for (GridHeader header : grid.getHeaders()) {
+      result.addHeader(
+          new GridHeader(
+              header.getName(),
+              header.getColumn(),
+              header.getValueType(),
+              header.isHidden(),
+              header.isMeta()));
+    }
+
+    for (List<Object> row : getRows()) {
+      result.addRow().addValuesAsList(row);
+    }
+
+    return result;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private int[] getSelectedRows() {
+    if (rowIndexes == null) {
+      rowIndexes = selection.stream().toArray();
+    }
+
+    return rowIndexes;
+  }
+}
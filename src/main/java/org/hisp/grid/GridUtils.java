@@ -29,6 +29,7 @@ package org.hisp.grid;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Path;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -39,9 +40,11 @@ import java.util.List;
 import java.util.Map;
 import org.hisp.grid.options.CsvWriteOptions;
 import org.hisp.grid.options.HtmlWriteOptions;
+import org.hisp.grid.options.JsonWriteOptions;
 import org.hisp.grid.util.MapBuilder;
 import org.hisp.grid.writer.CsvGridWriter;
 import org.hisp.grid.writer.HtmlGridWriter;
+import org.hisp.grid.writer.JsonGridWriter;
 
 /** Utility methods for {@link Grid}. */
 public class GridUtils {
@@ -86,6 +89,63 @@ public class GridUtils {
     return grid;
   }
 
+  /**
+   * Creates a {@link SpillingGrid} based on the given SQL {@link ResultSet}. Rows are spilled to
+   * temporary files once their estimated heap size exceeds the given memory budget. The grid must
+   * be closed to delete the temporary files.
+   *
+   * @param rs the {@link ResultSet}.
+   * @param memoryBudget the memory budget in bytes for rows on the heap.
+   * @return a {@link SpillingGrid}.
+   */
+  public static SpillingGrid fromResultSet(ResultSet rs, long memoryBudget) {
+    SpillingGrid grid = new SpillingGrid(memoryBudget);
+
+    try {
+      addHeaders(grid, rs);
+      addRows(grid, rs);
+    } catch (RuntimeException ex) {
+      grid.close();
+      throw ex;
+    }
+
+    return grid;
+  }
+
+  /**
+   * Sorts the rows of the given {@link Grid} with an external merge sort. Rows are sorted in runs
+   * within the given memory budget, and runs are written to a temporary file and merged while
+   * iterating. The grid is not modified. The returned {@link SortedRows} must be closed to delete
+   * the temporary file.
+   *
+   * @param grid the grid.
+   * @param memoryBudget the memory budget in bytes for rows sorted on the heap.
+   * @param specs the {@link SortSpec} instances.
+   * @return the {@link SortedRows}.
+   * @throws IllegalArgumentException if runs are written to disk and a sort column contains values
+   *     of a type which cannot be written, such as enums.
+   */
+  public static SortedRows sortExternally(Grid grid, long memoryBudget, SortSpec... specs) {
+    return SortedRows.sort(grid, memoryBudget, null, specs);
+  }
+
+  /**
+   * Sorts the rows of the given {@link Grid} with an external merge sort, writing runs to a
+   * temporary file in the given directory.
+   *
+   * @param grid the grid.
+   * @param memoryBudget the memory budget in bytes for rows sorted on the heap.
+   * @param directory the directory for the temporary file.
+   * @param specs the {@link SortSpec} instances.
+   * @return the {@link SortedRows}.
+   * @throws IllegalArgumentException if runs are written to disk and a sort column contains values
+   *     of a type which cannot be written, such as enums.
+   */
+  public static SortedRows sortExternally(
+      Grid grid, long memoryBudget, Path directory, SortSpec... specs) {
+    return SortedRows.sort(grid, memoryBudget, directory, specs);
+  }
+
   /**
    * Renders the given {@link Grid} in CSV format. Writes the content to the given {@link Writer}.
    *
@@ -112,6 +172,22 @@ public class GridUtils {
     new CsvGridWriter(options).write(grid, writer);
   }
 
+  /**
+   * Renders the given {@link Grid} in CSV format, taking the rows from the given iterable, such as
+   * {@link SortedRows}. Writes the content to the given {@link Writer}.
+   *
+   * @param grid the grid which provides the headers.
+   * @param rows the rows.
+   * @param writer the writer.
+   * @param options the {@link CsvWriteOptions}.
+   * @throws IOException for errors during rendering.
+   */
+  public static void toCsv(
+      Grid grid, Iterable<List<Object>> rows, Writer writer, CsvWriteOptions options)
+      throws IOException {
+    new CsvGridWriter(options).write(grid, rows, writer);
+  }
+
   /**
    * Renders the given {@link Grid} in HTML format. Writes the content to the given {@link Writer}.
    *
@@ -138,6 +214,49 @@ public class GridUtils {
     new HtmlGridWriter(options).write(grid, writer);
   }
 
+  /**
+   * Renders the given {@link Grid} in JSON format. Writes the content to the given {@link Writer}.
+   *
+   * @param grid the grid.
+   * @param writer the writer.
+   * @throws IOException for errors during rendering.
+   */
+  public static void toJson(Grid grid, Writer writer) throws IOException {
+    toJson(grid, writer, JsonWriteOptions.standard());
+  }
+
+  /**
+   * Renders the given {@link Grid} in JSON format. Writes the content to the given {@link Writer}.
+   *
+   * @param grid the grid.
+   * @param writer the writer.
+   * @param options the {@link JsonWriteOptions}.
+   * @throws IOException for errors during rendering.
+   */
+  public static void toJson(Grid grid, Writer writer, JsonWriteOptions options) throws IOException {
+    if (grid == null) {
+      return;
+    }
+
+    new JsonGridWriter(options).write(grid, writer);
+  }
+
+  /**
+   * Renders the given {@link Grid} in JSON format, taking the rows from the given iterable, such as
+   * {@link SortedRows}. Writes the content to the given {@link Writer}.
+   *
+   * @param grid the grid which provides the headers and meta data.
+   * @param rows the rows.
+   * @param writer the writer.
+   * @param options the {@link JsonWriteOptions}.
+   * @throws IOException for errors during rendering.
+   */
+  public static void toJson(
+      Grid grid, Iterable<List<Object>> rows, Writer writer, JsonWriteOptions options)
+      throws IOException {
+    new JsonGridWriter(options).write(grid, rows, writer);
+  }
+
   /**
    * Returns a list based on the given variable arguments.
    *
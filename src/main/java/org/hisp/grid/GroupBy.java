@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Grouping of the rows of a grid on one or more key columns, created with {@link
+ * Grid#groupBy(int...)}. Key values are dictionary encoded into dense group identifiers without
+ * creating composite key objects, and aggregate values are accumulated in primitive arrays, in
+ * parallel for large grids.
+ */
+public class GroupBy {
+  /** The grid to group. */
+  private final Grid grid;
+
+  /** The rows to group, or null for all rows of the grid. */
+  private final List<List<Object>> rows;
+
+  /** The indexes of the key columns. */
+  private final int[] columnIndexes;
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to group.
+   * @param columnIndexes the indexes of the key columns, starting on 0.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  GroupBy(Grid grid, int[] columnIndexes) {
+    this(grid, null, columnIndexes);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to group.
+   * @param rows the rows of the grid to group, or null for all rows.
+   * @param columnIndexes the indexes of the key columns, starting on 0.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  GroupBy(Grid grid, List<List<Object>> rows, int[] columnIndexes) {
+    this.grid = grid;
+    this.rows = rows;
+    this.columnIndexes = columnIndexes.clone();
+
+    for (int columnIndex : columnIndexes) {
+      validateColumnIndex(columnIndex);
+    }
+  }
+
+  /**
+   * Aggregates the rows of each group. The returned grid has one row per group, in order of first
+   * appearance of the group, with the key columns followed by a column for each of the given
+   * aggregates. When the grid has headers, key headers are copied and aggregate headers are named
+   * after the source column with the aggregation type as suffix, such as {@code value_sum}.
+   *
+   * @param aggregates the {@link Aggregate} instances.
+   * @return a new {@link Grid}.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   * @throws NumberFormatException if a value to sum, average, or compare is not numeric.
+   */
+  public Grid aggregate(Aggregate... aggregates) {
+    for (Aggregate aggregate : aggregates) {
+      validateColumnIndex(aggregate.getColumnIndex());
+    }
+
+    List<List<Object>> source = rows != null ? rows : grid.getRows();
+    int height = source.size();
+    int[] valueColumns =
+        Arrays.stream(aggregates).mapToInt(Aggregate::getColumnIndex).distinct().toArray();
+    Object[][] keys = new Object[columnIndexes.length][height];
+    double[][] values = new double[valueColumns.length][];
+    BitSet[] nulls = new BitSet[valueColumns.length];
+    List<Set<AggregateType>> types = new ArrayList<>();
+
+    for (int v = 0; v < valueColumns.length; v++) {
+      Set<AggregateType> columnTypes = EnumSet.noneOf(AggregateType.class);
+
+      for (Aggregate aggregate : aggregates) {
+        if (aggregate.getColumnIndex() == valueColumns[v]) {
+          columnTypes.add(aggregate.getType());
+        }
+      }
+
+      types.add(columnTypes);
+      nulls[v] = new BitSet(height);
+
+      if (!EnumSet.of(AggregateType.COUNT).containsAll(columnTypes)) {
+        values[v] = new double[height];
+      }
+    }
+
+    int r = 0;
+
+    for (List<Object> row : source) {
+      for (int k = 0; k < columnIndexes.length; k++) {
+        keys[k][r] = row.get(columnIndexes[k]);
+      }
+
+      for (int v = 0; v < valueColumns.length; v++) {
+        Object value = row.get(valueColumns[v]);
+
+        if (value == null) {
+          nulls[v].set(r);
+        } else if (values[v] != null) {
+          values[v][r] = WindowFunction.toDouble(value);
+        }
+      }
+
+      r++;
+    }
+
+    GroupKeys groupKeys = GroupKeys.encode(keys, height);
+    Accumulator[] accumulators = new Accumulator[aggregates.length];
+
+    for (int v = 0; v < valueColumns.length; v++) {
+      Accumulator accumulator =
+          Accumulator.accumulate(
+              groupKeys.getGroups(), groupKeys.getGroupCount(), values[v], nulls[v], types.get(v));
+
+      for (int a = 0; a < aggregates.length; a++) {
+        if (aggregates[a].getColumnIndex() == valueColumns[v]) {
+          accumulators[a] = accumulator;
+        }
+      }
+    }
+
+    Grid result = new ListGrid();
+
+    addHeaders(result, aggregates);
+
+    for (int group = 0; group < groupKeys.getGroupCount(); group++) {
+      int firstRow = groupKeys.getFirstRow(group);
+
+      result.addRow();
+
+      for (Object[] key : keys) {
+        result.addValue(key[firstRow]);
+      }
+
+      for (int a = 0; a < aggregates.length; a++) {
+        result.addValue(accumulators[a].get(aggregates[a].getType(), group));
+      }
+    }
+
+    return result;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds headers for the key and aggregate columns to the given grid, if the grid to group has
+   * headers.
+   *
+   * @param result the {@link Grid} to add headers to.
+   * @param aggregates the {@link Aggregate} instances.
+   */
+  private void addHeaders(Grid result, Aggregate[] aggregates) {
+    List<GridHeader> headers = grid.getHeaders();
+
+    if (headers.isEmpty()) {
+      return;
+    }
+
+    for (int columnIndex : columnIndexes) {
+      GridHeader header = headers.get(columnIndex);
+
+      result.addHeader(
+          new GridHeader(
+              header.getName(),
+              header.getColumn(),
+              header.getValueType(),
+              header.isHidden(),
+              header.isMeta()));
+    }
+
+    for (Aggregate aggregate : aggregates) {
+      result.addHeader(aggregate.getHeader(headers.get(aggregate.getColumnIndex())));
+    }
+  }
+
+  /**
+   * Validates that the given column index is within the width of the grid.
+   *
+   * @param columnIndex the column index.
+   * @throws IllegalArgumentException if the column index is out of bounds.
+   */
+  private void validateColumnIndex(int columnIndex) {
+    int width = grid.getHeight() > 0 ? grid.getWidth() : grid.getHeaders().size();
+
+    if (columnIndex < 0 || columnIndex >= width) {
+      throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+    }
+  }
+}
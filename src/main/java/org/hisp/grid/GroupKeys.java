@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense group identifiers for the rows of a grid based on the values of one or more key columns.
+ * The values of each key column are dictionary encoded into int codes, and the codes of successive
+ * key columns are combined into long keys which are mapped to dense group identifiers, so that no
+ * composite key objects or strings are created. Groups are numbered in order of first appearance.
+ * The dictionaries and combined keys are retained, so that the group of other key values can be
+ * looked up, such as when probing a hash join.
+ */
+class GroupKeys {
+  /** The group identifier of each row. */
+  private final int[] groups;
+
+  /** The number of groups. */
+  private final int groupCount;
+
+  /** The first row of each group. */
+  private final int[] firstRows;
+
+  /** The dictionary of each key column. */
+  private final List<Map<Object, Integer>> dictionaries;
+
+  /** The map of combined keys to groups after each key column. */
+  private final List<LongIntMap> levels;
+
+  private GroupKeys(
+      int[] groups,
+      int groupCount,
+      List<Map<Object, Integer>> dictionaries,
+      List<LongIntMap> levels) {
+    this.groups = groups;
+    this.groupCount = groupCount;
+    this.dictionaries = dictionaries;
+    this.levels = levels;
+    this.firstRows = new int[groupCount];
+
+    for (int row = groups.length - 1; row >= 0; row--) {
+      firstRows[groups[row]] = row;
+    }
+  }
+
+  /**
+   * Encodes the given key columns. Values are compared with {@link Object#equals(Object)}, and null
+   * values form a group of their own.
+   *
+   * @param columns the values of each key column, indexed by row.
+   * @param height the number of rows.
+   * @return the {@link GroupKeys}.
+   */
+  static GroupKeys encode(Object[][] columns, int height) {
+    int[] groups = new int[height];
+    int groupCount = height > 0 ? 1 : 0;
+    List<Map<Object, Integer>> dictionaries = new ArrayList<>(columns.length);
+    List<LongIntMap> levels = new ArrayList<>(columns.length);
+
+    for (Object[] column : columns) {
+      Map<Object, Integer> dictionary = new HashMap<>();
+      int[] codes = new int[height];
+
+      for (int row = 0; row < height; row++) {
+        Integer code = dictionary.putIfAbsent(column[row], dictionary.size());
+        codes[row] = code != null ? code : dictionary.size() - 1;
+      }
+
+      long cardinality = dictionary.size();
+      LongIntMap combined =
+          new LongIntMap((int) Math.min(height, (long) groupCount * dictionary.size()));
+
+      for (int row = 0; row < height; row++) {
+        long key = groups[row] * cardinality + codes[row];
+        groups[row] = combined.getOrPut(key, combined.size());
+      }
+
+      groupCount = combined.size();
+      dictionaries.add(dictionary);
+      levels.add(combined);
+    }
+
+    return new GroupKeys(groups, groupCount, dictionaries, levels);
+  }
+
+  /**
+   * Returns the group identifier of each row.
+   *
+   * @return the group identifiers, indexed by row.
+   */
+  int[] getGroups() {
+    return groups;
+  }
+
+  /**
+   * Returns the number of groups.
+   *
+   * @return the number of groups.
+   */
+  int getGroupCount() {
+    return groupCount;
+  }
+
+  /**
+   * Returns the first row of the given group.
+   *
+   * @param group the group identifier.
+   * @return the row index.
+   */
+  int getFirstRow(int group) {
+    return firstRows[group];
+  }
+
+  /**
+   * Returns the group of the key values of the given row of the given key columns. The key columns
+   * must correspond to the encoded key columns. This method does not modify the instance and may be
+   * called concurrently.
+   *
+   * @param columns the values of each key column, indexed by row.
+   * @param row the row index.
+   * @return the group identifier, or -1 if the key values do not form an encoded group.
+   */
+  int find(Object[][] columns, int row) {
+    int group = 0;
+
+    for (int i = 0; i < columns.length; i++) {
+      Map<Object, Integer> dictionary = dictionaries.get(i);
+      Integer code = dictionary.get(columns[i][row]);
+
+      if (code == null) {
+        return -1;
+      }
+
+      group = levels.get(i).get(group * (long) dictionary.size() + code);
+
+      if (group == -1) {
+        return -1;
+      }
+    }
+
+    return group;
+  }
+}
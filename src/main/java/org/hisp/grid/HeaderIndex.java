@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Index of grid headers by name and by column, which provides constant time lookup of column
+ * indexes. The index is rebuilt lazily after {@link #invalidate()} is called, and when the number
+ * of headers has changed. Headers are mutable and can be modified outside the grid, so each hit is
+ * verified against the header list, and misses fall back to a linear scan. When a name or column
+ * occurs more than once, the index of the first occurrence is returned.
+ */
+class HeaderIndex {
+  private final List<GridHeader> headers;
+
+  private final Map<String, Integer> nameIndexMap = new HashMap<>();
+
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+
+  /** Number of headers when the index was built, or -1 if the index must be rebuilt. */
+  private int indexedSize = -1;
+
+  /**
+   * Constructor.
+   *
+   * @param headers the list of headers to index.
+   */
+  HeaderIndex(List<GridHeader> headers) {
+    this.headers = headers;
+  }
+
+  /**
+   * Returns the index of the first header with the given name.
+   *
+   * @param name the header name.
+   * @return the index, or -1 if no header has the given name.
+   */
+  int getIndexOfName(String name) {
+    return getIndex(nameIndexMap, name, GridHeader::getName);
+  }
+
+  /**
+   * Returns the index of the first header with the given column.
+   *
+   * @param column the header column.
+   * @return the index, or -1 if no header has the given column.
+   */
+  int getIndexOfColumn(String column) {
+    return getIndex(columnIndexMap, column, GridHeader::getColumn);
+  }
+
+  /** Marks the index for rebuilding. Should be called whenever headers are modified. */
+  void invalidate() {
+    indexedSize = -1;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private int getIndex(
+      Map<String, Integer> map, String key, Function<GridHeader, String> property) {
+    if (indexedSize != headers.size()) {
+      rebuild();
+    }
+
+    Integer index = map.get(key);
+
+    if (index != null && Objects.equals(property.apply(headers.get(index)), key)) {
+      return index;
+    }
+
+    for (int i = 0; i < headers.size(); i++) {
+      if (Objects.equals(property.apply(headers.get(i)), key)) {
+        rebuild();
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private void rebuild() {
+    nameIndexMap.clear();
+    columnIndexMap.clear();
+
+    for (int i = 0; i < headers.size(); i++) {
+      GridHeader header = headers.get(i);
+      nameIndexMap.putIfAbsent(header.getName(), i);
+      columnIndexMap.putIfAbsent(header.getColumn(), i);
+    }
+
+    indexedSize = headers.size();
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Hash join of two grids. The key values of the smaller grid are encoded into dense groups, which
+ * act as the hash table, and the rows of the larger grid are probed against the groups, in parallel
+ * for large grids. Key values are compared with {@link Object#equals(Object)} without creating
+ * composite key objects or strings.
+ */
+class Join {
+  /** Number of rows below which rows are probed in the current thread. */
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+  /** Marker of rows without a matching group. */
+  private static final int NO_GROUP = -1;
+
+  private Join() {}
+
+  /**
+   * Joins the given grids. See {@link Grid#join(Grid, JoinSpec)}.
+   *
+   * @param left the left {@link Grid}.
+   * @param right the right {@link Grid}.
+   * @param spec the {@link JoinSpec}.
+   * @return a new {@link Grid}.
+   */
+  static Grid join(Grid left, Grid right, JoinSpec spec) {
+    int[] leftColumns = spec.getLeftColumns();
+    int[] rightColumns = spec.getRightColumns();
+    int leftWidth = getWidth(left);
+    int rightWidth = getWidth(right);
+
+    validateColumnIndexes(leftColumns, leftWidth);
+    validateColumnIndexes(rightColumns, rightWidth);
+
+    Object[][] leftKeys = readKeys(left, leftColumns);
+    Object[][] rightKeys = readKeys(right, rightColumns);
+    boolean buildLeft = left.getHeight() < right.getHeight();
+
+    Object[][] buildKeys = buildLeft ? leftKeys : rightKeys;
+    Object[][] probeKeys = buildLeft ? rightKeys : leftKeys;
+    int buildHeight = buildLeft ? left.getHeight() : right.getHeight();
+    int probeHeight = buildLeft ? right.getHeight() : left.getHeight();
+
+    GroupKeys build = GroupKeys.encode(buildKeys, buildHeight);
+    int[] buildGroups = build.getGroups().clone();
+
+    for (int row = 0; row < buildHeight; row++) {
+      if (hasNullKey(buildKeys, row)) {
+        buildGroups[row] = NO_GROUP;
+      }
+    }
+
+    int[] probeGroups = probe(build, probeKeys, probeHeight);
+    int[] leftGroups = buildLeft ? buildGroups : probeGroups;
+    int[] rightGroups = buildLeft ? probeGroups : buildGroups;
+    int groupCount = build.getGroupCount();
+
+    int[] offsets = new int[groupCount + 1];
+
+    for (int group : rightGroups) {
+      if (group != NO_GROUP) {
+        offsets[group + 1]++;
+      }
+    }
+
+    Arrays.parallelPrefix(offsets, Integer::sum);
+
+    int[] rightRows = new int[offsets[groupCount]];
+    int[] positions = Arrays.copyOf(offsets, groupCount);
+
+    for (int row = 0; row < rightGroups.length; row++) {
+      if (rightGroups[row] != NO_GROUP) {
+        rightRows[positions[rightGroups[row]]++] = row;
+      }
+    }
+
+    int[] rightValueColumns =
+        IntStream.range(0, rightWidth)
+            .filter(i -> Arrays.stream(rightColumns).noneMatch(c -> c == i))
+            .toArray();
+
+    Grid result = new ListGrid();
+
+    addHeaders(left, right, result, rightValueColumns);
+
+    boolean[] leftGroupPresent = new boolean[groupCount];
+
+    for (int l = 0; l < leftGroups.length; l++) {
+      int group = leftGroups[l];
+      List<Object> leftRow = left.getRow(l);
+
+      if (group == NO_GROUP || offsets[group] == offsets[group + 1]) {
+        if (spec.getType() != JoinType.INNER) {
+          addRow(result, leftRow, leftWidth, null, rightValueColumns);
+        }
+
+        continue;
+      }
+
+      leftGroupPresent[group] = true;
+
+      for (int i = offsets[group]; i < offsets[group + 1]; i++) {
+        addRow(result, leftRow, leftWidth, right.getRow(rightRows[i]), rightValueColumns);
+      }
+    }
+
+    if (spec.getType() == JoinType.FULL) {
+      for (int r = 0; r < rightGroups.length; r++) {
+        int group = rightGroups[r];
+
+        if (group == NO_GROUP || !leftGroupPresent[group]) {
+          List<Object> rightRow = right.getRow(r);
+          List<Object> leftRow = new ArrayList<>(leftWidth);
+
+          for (int i = 0; i < leftWidth; i++) {
+            leftRow.add(null);
+          }
+
+          for (int k = 0; k < leftColumns.length; k++) {
+            leftRow.set(leftColumns[k], rightRow.get(rightColumns[k]));
+          }
+
+          addRow(result, leftRow, leftWidth, rightRow, rightValueColumns);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Returns the group of each probe row, in parallel for large grids.
+   *
+   * @param build the {@link GroupKeys} of the build rows.
+   * @param keys the key values of the probe rows.
+   * @param height the number of probe rows.
+   * @return the group of each probe row, or -1 for rows without a match.
+   */
+  private static int[] probe(GroupKeys build, Object[][] keys, int height) {
+    int[] groups = new int[height];
+    IntStream rows = IntStream.range(0, height);
+
+    if (height >= PARALLEL_THRESHOLD) {
+      rows = rows.parallel();
+    }
+
+    rows.forEach(row -> groups[row] = hasNullKey(keys, row) ? NO_GROUP : build.find(keys, row));
+
+    return groups;
+  }
+
+  /**
+   * Adds a row with the given left values followed by the given right values to the given grid.
+   *
+   * @param result the {@link Grid}.
+   * @param leftRow the left row.
+   * @param leftWidth the width of the left grid.
+   * @param rightRow the right row, or null to add null values.
+   * @param rightValueColumns the indexes of the right columns to add.
+   */
+  private static void addRow(
+      Grid result,
+      List<Object> leftRow,
+      int leftWidth,
+      List<Object> rightRow,
+      int[] rightValueColumns) {
+    result.addRow();
+
+    for (int i = 0; i < leftWidth; i++) {
+      result.addValue(leftRow.get(i));
+    }
+
+    for (int columnIndex : rightValueColumns) {
+      result.addValue(rightRow != null ? rightRow.get(columnIndex) : null);
+    }
+  }
+
+  /**
+   * Adds headers to the given grid if both grids to join have headers. Headers of the right grid
+   * with a name or column which already exists are renamed with a numeric suffix.
+   *
+   * @param left the left {@link Grid}.
+   * @param right the right {@link Grid}.
+   * @param result the {@link Grid} to add headers to.
+   * @param rightValueColumns the indexes of the right columns to add.
+   */
+  private static void addHeaders(Grid left, Grid right, Grid result, int[] rightValueColumns) {
+    if (left.getHeaders().isEmpty() || right.getHeaders().isEmpty()) {
+      return;
+    }
+
+    Set<String> names = new HashSet<>();
+    Set<String> columns = new HashSet<>();
+
+    for (GridHeader header : left.getHeaders()) {
+      result.addHeader(copy(header, header.getName(), header.getColumn()));
+      names.add(header.getName());
+      columns.add(header.getColumn());
+    }
+
+    for (int columnIndex : rightValueColumns) {
+      GridHeader header = right.getHeaders().get(columnIndex);
+      String name = header.getName();
+      String column = header.getColumn();
+
+      for (int n = 2; names.contains(name) || columns.contains(column); n++) {
+        name = header.getName() + "_" + n;
+        column = header.getColumn() + "_" + n;
+      }
+
+      result.addHeader(copy(header, name, column));
+      names.add(name);
+      columns.add(column);
+    }
+  }
+
+  private static GridHeader copy(GridHeader header, String name, String column) {
+    return new GridHeader(name, column, header.getValueType(), header.isHidden(), header.isMeta());
+  }
+
+  private static Object[][] readKeys(Grid grid, int[] columnIndexes) {
+    Object[][] keys = new Object[columnIndexes.length][grid.getHeight()];
+    int r = 0;
+
+    for (List<Object> row : grid.getRows()) {
+      for (int k = 0; k < columnIndexes.length; k++) {
+        keys[k][r] = row.get(columnIndexes[k]);
+      }
+
+      r++;
+    }
+
+    return keys;
+  }
+
+  private static boolean hasNullKey(Object[][] keys, int row) {
+    for (Object[] key : keys) {
+      if (key[row] == null) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static int getWidth(Grid grid) {
+    return grid.getHeight() > 0 ? grid.getWidth() : grid.getHeaders().size();
+  }
+
+  /**
+   * Validates that the given column indexes are within the given width.
+   *
+   * @param columnIndexes the column indexes.
+   * @param width the width of the grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private static void validateColumnIndexes(int[] columnIndexes, int width) {
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+
+/**
+ * Specification of a join for {@link Grid#join(Grid, JoinSpec)}. Rows of the left grid and the
+ * right grid match when the values of the left key columns are equal to the values of the right key
+ * columns, in order. Rows with a null key value do not match any row.
+ */
+public class JoinSpec {
+  /** The join type. */
+  private final JoinType type;
+
+  /** Indexes of the key columns of the left grid, starting on 0. */
+  private final int[] leftColumns;
+
+  /** Indexes of the key columns of the right grid, starting on 0. */
+  private final int[] rightColumns;
+
+  /**
+   * Constructor.
+   *
+   * @param type the {@link JoinType}.
+   * @param leftColumns the indexes of the key columns of the left grid.
+   * @param rightColumns the indexes of the key columns of the right grid.
+   * @throws IllegalArgumentException if no key columns are given or the numbers of key columns
+   *     differ.
+   */
+  private JoinSpec(JoinType type, int[] leftColumns, int[] rightColumns) {
+    if (leftColumns.length == 0 || leftColumns.length != rightColumns.length) {
+      throw new IllegalArgumentException(
+          "Illegal key columns: "
+              + Arrays.toString(leftColumns)
+              + ", "
+              + Arrays.toString(rightColumns));
+    }
+
+    this.type = type;
+    this.leftColumns = leftColumns.clone();
+    this.rightColumns = rightColumns.clone();
+  }
+
+  /**
+   * Returns a specification for a join of the given type.
+   *
+   * @param type the {@link JoinType}.
+   * @param leftColumns the indexes of the key columns of the left grid, starting on 0.
+   * @param rightColumns the indexes of the key columns of the right grid, starting on 0.
+   * @return a {@link JoinSpec}.
+   */
+  public static JoinSpec of(JoinType type, int[] leftColumns, int[] rightColumns) {
+    return new JoinSpec(type, leftColumns, rightColumns);
+  }
+
+  /**
+   * Returns a specification for an inner join.
+   *
+   * @param leftColumns the indexes of the key columns of the left grid, starting on 0.
+   * @param rightColumns the indexes of the key columns of the right grid, starting on 0.
+   * @return a {@link JoinSpec}.
+   */
+  public static JoinSpec inner(int[] leftColumns, int[] rightColumns) {
+    return new JoinSpec(JoinType.INNER, leftColumns, rightColumns);
+  }
+
+  /**
+   * Returns a specification for a left outer join.
+   *
+   * @param leftColumns the indexes of the key columns of the left grid, starting on 0.
+   * @param rightColumns the indexes of the key columns of the right grid, starting on 0.
+   * @return a {@link JoinSpec}.
+   */
+  public static JoinSpec left(int[] leftColumns, int[] rightColumns) {
+    return new JoinSpec(JoinType.LEFT, leftColumns, rightColumns);
+  }
+
+  /**
+   * Returns a specification for a full outer join.
+   *
+   * @param leftColumns the indexes of the key columns of the left grid, starting on 0.
+   * @param rightColumns the indexes of the key columns of the right grid, starting on 0.
+   * @return a {@link JoinSpec}.
+   */
+  public static JoinSpec full(int[] leftColumns, int[] rightColumns) {
+    return new JoinSpec(JoinType.FULL, leftColumns, rightColumns);
+  }
+
+  public JoinType getType() {
+    return type;
+  }
+
+  public int[] getLeftColumns() {
+    return leftColumns.clone();
+  }
+
+  public int[] getRightColumns() {
+    return rightColumns.clone();
+  }
+
+  @Override
+  public String toString() {
+    return "[Type: "
+        + type
+        + ", left columns: "
+        + Arrays.toString(leftColumns)
+        + ", right columns: "
+        + Arrays.toString(rightColumns)
+        + "]";
+  }
+}
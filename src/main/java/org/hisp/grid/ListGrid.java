@@ -30,17 +30,19 @@ package org.hisp.grid;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.stream.IntStream;
 import org.hisp.grid.serializer.JacksonRowDataSerializer;
 
 /**
@@ -49,7 +51,9 @@ import org.hisp.grid.serializer.JacksonRowDataSerializer;
  * Jackson.
  */
 public class ListGrid implements Grid {
-  private static final String CUMULATIVE_SUFFIX = "_cumulative";
+  /** Whether to verify the grid state by iterating all rows. */
+  private static final boolean STRICT_VALIDATION =
+      Boolean.getBoolean("org.hisp.grid.strictValidation");
 
   /** The title of the grid. */
   private String title;
@@ -75,12 +79,25 @@ public class ListGrid implements Grid {
   /** Indicating the current row in the grid for writing data. */
   private int currentRowWriteIndex = -1;
 
-  /** Represents a mapping between column names and the index of the column in the grid. */
-  private Map<String, Integer> columnIndexMap = new HashMap<>();
+  /**
+   * Number of rows per row width, used to verify that all rows have the same width without
+   * iterating the rows.
+   */
+  private int[] rowWidthCounts = new int[16];
+
+  /** Number of distinct row widths in the grid. */
+  private int distinctRowWidths;
+
+  /** Index of the headers by name and by column. */
+  private final HeaderIndex headerLookup;
+
+  /** The indexes created on this grid. */
+  private final GridIndexes indexes = new GridIndexes();
 
   /** Default constructor. */
   public ListGrid() {
     this.headers = new ArrayList<>();
+    this.headerLookup = new HeaderIndex(headers);
     this.metaData = new HashMap<>();
     this.grid = new ArrayList<>();
   }
@@ -89,9 +106,19 @@ public class ListGrid implements Grid {
    * @param metaData meta data.
    */
   public ListGrid(Map<String, Object> metaData) {
+    this(metaData, new ArrayList<>());
+  }
+
+  /**
+   * @param metaData meta data.
+   * @param rows the list to hold the rows of the grid.
+   */
+  protected ListGrid(Map<String, Object> metaData, List<List<Object>> rows) {
     this.headers = new ArrayList<>();
+    this.headerLookup = new HeaderIndex(headers);
     this.metaData = metaData;
-    this.grid = new ArrayList<>();
+    this.grid = rows;
+    this.resetRowWidths();
   }
 
   // ---------------------------------------------------------------------
@@ -141,7 +168,7 @@ public class ListGrid implements Grid {
   public Grid addHeader(GridHeader header) {
     headers.add(header);
 
-    updateColumnIndexMap();
+    headerLookup.invalidate();
 
     return this;
   }
@@ -155,7 +182,7 @@ public class ListGrid implements Grid {
   public Grid addHeader(int headerIndex, GridHeader header) {
     headers.add(headerIndex, header);
 
-    updateColumnIndexMap();
+    headerLookup.invalidate();
 
     return this;
   }
@@ -170,7 +197,7 @@ public class ListGrid implements Grid {
       headers.add(headerIndex, gridHeaders.get(i));
     }
 
-    updateColumnIndexMap();
+    headerLookup.invalidate();
 
     return this;
   }
@@ -181,7 +208,7 @@ public class ListGrid implements Grid {
       headers.add(new GridHeader("", false, false));
     }
 
-    updateColumnIndexMap();
+    headerLookup.invalidate();
 
     return this;
   }
@@ -195,21 +222,19 @@ public class ListGrid implements Grid {
   @Override
   @JsonIgnore
   public List<GridHeader> getVisibleHeaders() {
-    List<GridHeader> tempHeaders = new ArrayList<>();
-
-    for (GridHeader header : headers) {
-      if (!header.isHidden()) {
-        tempHeaders.add(header);
-      }
-    }
-
-    return tempHeaders;
+    return new ProjectedList<>(headers, getVisibleHeaderIndexes());
   }
 
   @Override
   @JsonIgnore
   public int getIndexOfHeader(String name) {
-    return headers.indexOf(new GridHeader(name, null));
+    return headerLookup.getIndexOfName(name);
+  }
+
+  @Override
+  @JsonIgnore
+  public int getIndexOfColumn(String column) {
+    return headerLookup.getIndexOfColumn(column);
   }
 
   @Override
@@ -249,12 +274,13 @@ public class ListGrid implements Grid {
   public int getVisibleWidth() {
     verifyGridState();
 
-    return grid != null && grid.size() > 0 ? getVisibleRows().get(0).size() : 0;
+    return grid != null && grid.size() > 0 ? getVisibleColumnIndexes().length : 0;
   }
 
   @Override
   public Grid addRow() {
     grid.add(new ArrayList<>());
+    trackRowWidth(0, 1);
 
     currentRowWriteIndex++;
 
@@ -267,6 +293,7 @@ public class ListGrid implements Grid {
 
     for (List<Object> row : rows) {
       this.grid.add(row);
+      trackRowWidth(row.size(), 1);
 
       currentRowWriteIndex++;
     }
@@ -276,7 +303,9 @@ public class ListGrid implements Grid {
 
   @Override
   public Grid addValue(Object value) {
-    grid.get(currentRowWriteIndex).add(value);
+    List<Object> row = grid.get(currentRowWriteIndex);
+    row.add(value);
+    resizeRowWidth(row.size() - 1, row.size());
 
     return this;
   }
@@ -284,11 +313,14 @@ public class ListGrid implements Grid {
   @Override
   public Grid addValues(Object[] values) {
     List<Object> row = grid.get(currentRowWriteIndex);
+    int width = row.size();
 
     for (Object value : values) {
       row.add(value);
     }
 
+    resizeRowWidth(width, row.size());
+
     return this;
   }
 
@@ -344,23 +376,23 @@ public class ListGrid implements Grid {
   public List<List<Object>> getVisibleRows() {
     verifyGridState();
 
-    List<List<Object>> tempGrid = new ArrayList<>();
-
-    if (headers != null && headers.size() > 0) {
-      for (List<Object> row : grid) {
-        List<Object> tempRow = new ArrayList<>();
+    if (headers == null || headers.isEmpty()) {
+      return new ArrayList<>();
+    }
 
-        for (int i = 0; i < row.size(); i++) {
-          if (!headers.get(i).isHidden()) {
-            tempRow.add(row.get(i));
-          }
-        }
+    final int[] visibleIndexes = getVisibleColumnIndexes();
 
-        tempGrid.add(tempRow);
+    return new AbstractList<>() {
+      @Override
+      public List<Object> get(int index) {
+        return new ProjectedList<>(grid.get(index), visibleIndexes);
       }
-    }
 
-    return tempGrid;
+      @Override
+      public int size() {
+        return grid.size();
+      }
+    };
   }
 
   @Override
@@ -385,6 +417,18 @@ public class ListGrid implements Grid {
     return grid.get(rowIndex).get(columnIndex);
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getValue(int rowIndex, String column) {
+    int columnIndex = getIndexOfColumn(column);
+
+    if (columnIndex == -1) {
+      throw new IllegalArgumentException("Grid does not contain column: " + column);
+    }
+
+    return (T) getValue(rowIndex, columnIndex);
+  }
+
   @Override
   public Grid addColumn(List<Object> columnValues) {
     verifyGridState();
@@ -403,6 +447,9 @@ public class ListGrid implements Grid {
       grid.get(currentRowIndex++).add(columnValues.get(currentColumnIndex++));
     }
 
+    resetRowWidths();
+    indexes.invalidate();
+
     return this;
   }
 
@@ -424,6 +471,9 @@ public class ListGrid implements Grid {
       grid.get(currentRowIndex++).add(columnIndex, columnValues.get(currentColumnIndex++));
     }
 
+    resetRowWidths();
+    indexes.invalidate();
+
     return this;
   }
 
@@ -435,6 +485,10 @@ public class ListGrid implements Grid {
       grid.get(i).add(columnValue);
     }
 
+    resetRowWidths();
+
+    indexes.invalidate();
+
     return this;
   }
 
@@ -455,15 +509,26 @@ public class ListGrid implements Grid {
       return this;
     }
 
-    int lastCol = getWidth() - 1;
+    int width = getWidth();
+    boolean[] nonEmpty = new boolean[width];
+    int emptyColumns = width;
 
-    for (int i = lastCol; i >= 0; i--) {
-      if (columnIsEmpty(i)) {
-        removeColumn(i);
+    for (int r = 0; r < grid.size() && emptyColumns > 0; r++) {
+      List<Object> row = grid.get(r);
+
+      for (int i = 0; i < width; i++) {
+        if (!nonEmpty[i] && row.get(i) != null) {
+          nonEmpty[i] = true;
+          emptyColumns--;
+        }
       }
     }
 
-    return this;
+    if (emptyColumns == 0) {
+      return this;
+    }
+
+    return retainColumns(IntStream.range(0, width).filter(i -> nonEmpty[i]).toArray());
   }
 
   @Override
@@ -493,7 +558,9 @@ public class ListGrid implements Grid {
       row.remove(columnIndex);
     }
 
-    updateColumnIndexMap();
+    resetRowWidths();
+    headerLookup.invalidate();
+    indexes.invalidate();
 
     return this;
   }
@@ -509,11 +576,66 @@ public class ListGrid implements Grid {
     return this;
   }
 
+  @Override
+  public Grid retainColumns(int... columnIndexes) {
+    verifyGridState();
+
+    int width = grid.isEmpty() ? headers.size() : getWidth();
+    validateColumnIndexes(columnIndexes, width);
+
+    Object[] values = new Object[columnIndexes.length];
+
+    for (List<Object> row : grid) {
+      for (int i = 0; i < columnIndexes.length; i++) {
+        values[i] = row.get(columnIndexes[i]);
+      }
+
+      for (int i = 0; i < columnIndexes.length; i++) {
+        row.set(i, values[i]);
+      }
+
+      row.subList(columnIndexes.length, row.size()).clear();
+    }
+
+    if (!headers.isEmpty()) {
+      List<GridHeader> retainedHeaders = new ArrayList<>(columnIndexes.length);
+
+      for (int columnIndex : columnIndexes) {
+        retainedHeaders.add(headers.get(columnIndex));
+      }
+
+      headers.clear();
+      headers.addAll(retainedHeaders);
+    }
+
+    resetRowWidths();
+    headerLookup.invalidate();
+    indexes.invalidate();
+
+    return this;
+  }
+
+  @Override
+  public Grid removeColumns(Set<Integer> columnIndexes) {
+    int width = grid.isEmpty() ? headers.size() : getWidth();
+
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+    }
+
+    return retainColumns(
+        IntStream.range(0, width).filter(i -> !columnIndexes.contains(i)).toArray());
+  }
+
   @Override
   public Grid removeCurrentWriteRow() {
-    grid.remove(currentRowWriteIndex);
+    List<Object> row = grid.remove(currentRowWriteIndex);
+    trackRowWidth(row.size(), -1);
 
     currentRowWriteIndex--;
+    indexes.invalidate();
 
     return this;
   }
@@ -530,7 +652,8 @@ public class ListGrid implements Grid {
     }
 
     if (limit > 0 && limit <= getHeight()) {
-      grid = grid.subList(0, limit);
+      retainRows(0, limit);
+      indexes.truncate(limit);
     }
 
     return this;
@@ -543,7 +666,13 @@ public class ListGrid implements Grid {
           "Illegal start or end pos: " + startPos + ", " + endPos + ", " + getHeight());
     }
 
-    grid = grid.subList(startPos, endPos);
+    retainRows(startPos, endPos);
+
+    if (startPos == 0) {
+      indexes.truncate(endPos);
+    } else {
+      indexes.invalidate();
+    }
 
     return this;
   }
@@ -560,61 +689,144 @@ public class ListGrid implements Grid {
       throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
     }
 
-    Collections.sort(grid, new GridRowComparator(columnIndex, order));
-
-    return this;
+    return sortGrid(order > 0 ? SortSpec.desc(columnIndex) : SortSpec.asc(columnIndex));
   }
 
   @Override
-  public Grid addCumulativeColumn(int columnIndex, boolean addHeader) {
-    verifyGridState();
-
-    List<Object> column = getColumn(columnIndex);
+  public Grid sortGrid(SortSpec... specs) {
+    if (specs.length == 0 || !hasValues()) {
+      return this;
+    }
 
-    List<Object> cumulativeColumn = new ArrayList<>();
+    int[] sortedRows = RowSorter.sort(grid.size(), getSortKeys(specs));
+    List<List<Object>> rows = new ArrayList<>(grid);
 
-    double sum = 0d;
+    for (int i = 0; i < sortedRows.length; i++) {
+      grid.set(i, rows.get(sortedRows[i]));
+    }
 
-    for (Object value : column) {
-      double number = value != null ? Double.parseDouble(String.valueOf(value)) : 0d;
+    indexes.invalidate();
 
-      sum += number;
+    return this;
+  }
 
-      cumulativeColumn.add(sum);
+  @Override
+  public Grid sortAndLimit(int columnIndex, int order, int limit) {
+    if (order == 0 || !hasValues()) {
+      return limitGrid(limit);
     }
 
-    addColumn(cumulativeColumn);
+    columnIndex--;
 
-    if (addHeader && columnIndex < headers.size()) {
-      GridHeader header = headers.get(columnIndex);
+    SortSpec spec = order > 0 ? SortSpec.desc(columnIndex) : SortSpec.asc(columnIndex);
 
-      if (header != null) {
-        GridHeader regressionHeader =
-            new GridHeader(
-                header.getName() + CUMULATIVE_SUFFIX,
-                header.getColumn() + CUMULATIVE_SUFFIX,
-                header.getValueType(),
-                header.isHidden(),
-                header.isMeta());
+    return sortAndLimit(limit, spec);
+  }
 
-        addHeader(regressionHeader);
-      }
+  @Override
+  public Grid sortAndLimit(int limit, SortSpec... specs) {
+    if (limit < 0) {
+      throw new IllegalStateException("Illegal limit: " + limit);
+    }
+
+    if (limit == 0 || limit >= getHeight() || specs.length == 0 || !hasValues()) {
+      return sortGrid(specs).limitGrid(limit);
+    }
+
+    int[] topRows = RowSorter.top(grid.size(), getSortKeys(specs), limit);
+    List<List<Object>> rows = new ArrayList<>(topRows.length);
+
+    for (int row : topRows) {
+      rows.add(grid.get(row));
     }
 
+    grid = rows;
+    resetRowWidths();
+    indexes.invalidate();
+
     return this;
   }
 
+  @Override
+  public Grid addCumulativeColumn(int columnIndex, boolean addHeader) {
+    return addWindowColumns(addHeader, WindowFunction.cumulativeSum(columnIndex));
+  }
+
   @Override
   public Grid addCumulativesToGrid(int startColumnIndex, int numberOfColumns) {
+    WindowFunction[] functions = new WindowFunction[numberOfColumns];
+
     for (int i = 0; i < numberOfColumns; i++) {
-      int columnIndex = i + startColumnIndex;
+      functions[i] = WindowFunction.cumulativeSum(i + startColumnIndex);
+    }
 
-      this.addCumulativeColumn(columnIndex, true);
+    return addWindowColumns(true, functions);
+  }
+
+  @Override
+  public Grid addWindowColumns(WindowFunction... functions) {
+    return addWindowColumns(true, functions);
+  }
+
+  @Override
+  public GroupBy groupBy(int... columnIndexes) {
+    return new GroupBy(this, columnIndexes);
+  }
+
+  @Override
+  public Grid pivot(int[] rowColumns, int[] columnColumns, int valueColumn, AggregateType type) {
+    return Pivot.pivot(this, rowColumns, columnColumns, valueColumn, type);
+  }
+
+  @Override
+  public Grid join(Grid other, JoinSpec spec) {
+    return Join.join(this, other, spec);
+  }
+
+  @Override
+  public GridSelection filter(GridPredicate predicate) {
+    BitSet selection = new BitSet(getHeight());
+    selection.set(0, getHeight());
+    predicate.retain(this, selection);
+    return new GridSelection(this, selection);
+  }
+
+  @Override
+  public GridQuery query() {
+    return new GridQuery(this);
+  }
+
+  @Override
+  public GridIndex createIndex(String... columns) {
+    return indexes.add(new GridIndex(this, columns));
+  }
+
+  @Override
+  public SortedGridIndex createSortedIndex(String column) {
+    return indexes.add(new SortedGridIndex(this, column));
+  }
+
+  @Override
+  public BitmapIndex createBitmapIndex(String column) {
+    return indexes.addBitmapIndex(new BitmapIndex(this, column));
+  }
+
+  @Override
+  public Grid createBitmapIndexes() {
+    for (GridHeader header : headers) {
+      if (header.isMeta() && header.getColumn() != null) {
+        createBitmapIndex(header.getColumn());
+      }
     }
 
     return this;
   }
 
+  @Override
+  public BitmapIndex getBitmapIndex(String column) {
+    return indexes.getBitmapIndex(column);
+  }
+
   @Override
   public Grid substituteMetaData(Map<? extends Object, ? extends Object> metaDataMap) {
     if (metaDataMap == null || headers == null || headers.isEmpty()) {
@@ -630,6 +842,7 @@ public class ListGrid implements Grid {
 
       if (headerMetaName != null) {
         header.setName(String.valueOf(headerMetaName));
+        headerLookup.invalidate();
       }
 
       if (header.isMeta()) {
@@ -663,6 +876,8 @@ public class ListGrid implements Grid {
       }
     }
 
+    indexes.invalidate();
+
     return this;
   }
 
@@ -684,13 +899,38 @@ public class ListGrid implements Grid {
 
   @Override
   public Set<Object> getUniqueValues(String columnName) {
-    int columnIndex = getIndexOfHeader(columnName);
+    return getUniqueValues(Collections.singletonList(columnName)).get(columnName);
+  }
 
-    Set<Object> values = new HashSet<>();
+  @Override
+  public Map<String, Set<Object>> getUniqueValues(List<String> columnNames) {
+    Map<String, Set<Object>> values = new LinkedHashMap<>();
+    List<String> scanNames = new ArrayList<>();
+    List<Integer> scanIndexes = new ArrayList<>();
+
+    for (String columnName : columnNames) {
+      int columnIndex = getIndexOfHeader(columnName);
+      BitmapIndex bitmapIndex =
+          columnIndex != -1 ? indexes.getBitmapIndex(this, columnIndex) : null;
+
+      if (columnIndex == -1) {
+        values.put(columnName, new HashSet<>());
+      } else if (bitmapIndex != null) {
+        values.put(columnName, bitmapIndex.getValues());
+      } else {
+        values.put(columnName, null);
+        scanNames.add(columnName);
+        scanIndexes.add(columnIndex);
+      }
+    }
+
+    if (!scanNames.isEmpty()) {
+      List<Set<Object>> scanValues =
+          UniqueValues.of(grid, scanIndexes.stream().mapToInt(Integer::intValue).toArray());
 
-    if (columnIndex != -1) {
-      List<Object> column = getColumn(columnIndex);
-      values.addAll(column);
+      for (int i = 0; i < scanNames.size(); i++) {
+        values.put(scanNames.get(i), scanValues.get(i));
+      }
     }
 
     return values;
@@ -699,29 +939,142 @@ public class ListGrid implements Grid {
   @Override
   @SuppressWarnings("unchecked")
   public <T> Map<String, T> getAsMap(int valueIndex, String keySeparator) {
-    Map<String, T> map = new HashMap<>();
+    Map<String, T> map = new HashMap<>((int) (grid.size() / 0.75f) + 1);
+
+    StringBuilder key = new StringBuilder();
 
     for (List<Object> row : grid) {
-      List<Object> metaDataRow = new ArrayList<>(row);
+      key.setLength(0);
 
-      metaDataRow.remove(valueIndex);
+      boolean first = true;
 
-      String key = join(metaDataRow, keySeparator);
+      for (int col = 0; col < row.size(); col++) {
+        if (col == valueIndex) {
+          continue;
+        }
 
-      T value = (T) row.get(valueIndex);
+        if (!first && keySeparator != null) {
+          key.append(keySeparator);
+        }
 
-      map.put(key, value);
+        Object value = row.get(col);
+
+        if (value != null) {
+          key.append(value);
+        }
+
+        first = false;
+      }
+
+      map.put(key.toString(), (T) row.get(valueIndex));
     }
 
     return map;
   }
 
+  @Override
+  public <T> Map<RowKey, T> getAsMap(int valueIndex, boolean parallel) {
+    verifyGridState();
+
+    if (!grid.isEmpty() && (valueIndex < 0 || valueIndex >= getWidth())) {
+      throw new IllegalArgumentException("Column index out of bounds: " + valueIndex);
+    }
+
+    return RowKey.asMap(grid, valueIndex, parallel);
+  }
+
   // -------------------------------------------------------------------------
   // Supportive methods
   // -------------------------------------------------------------------------
 
-  /** Verifies that all grid rows are of the same length. */
+  /**
+   * Returns the indexes created on this grid.
+   *
+   * @return the {@link GridIndexes}.
+   */
+  GridIndexes getIndexes() {
+    return indexes;
+  }
+
+  /**
+   * Returns sort keys for the given sort specifications, extracting the key values of all rows in
+   * one pass.
+   *
+   * @param specs the {@link SortSpec} instances.
+   * @return the sort keys.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private SortKey[] getSortKeys(SortSpec[] specs) {
+    int width = getWidth();
+    int height = grid.size();
+
+    for (SortSpec spec : specs) {
+      if (spec.getColumnIndex() < 0 || spec.getColumnIndex() >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + spec.getColumnIndex());
+      }
+    }
+
+    Object[][] values = new Object[specs.length][height];
+    int rowIndex = 0;
+
+    for (List<Object> row : grid) {
+      for (int i = 0; i < specs.length; i++) {
+        values[i][rowIndex] = row.get(specs[i].getColumnIndex());
+      }
+
+      rowIndex++;
+    }
+
+    SortKey[] keys = new SortKey[specs.length];
+
+    for (int i = 0; i < specs.length; i++) {
+      keys[i] = SortKey.of(values[i], specs[i]);
+    }
+
+    return keys;
+  }
+
+  /**
+   * Returns the indexes of headers which are not hidden.
+   *
+   * @return the indexes of the visible headers.
+   */
+  private int[] getVisibleHeaderIndexes() {
+    return getVisibleIndexes(headers.size());
+  }
+
+  /**
+   * Returns the indexes of columns with headers which are not hidden, limited to the width of the
+   * rows.
+   *
+   * @return the indexes of the visible columns.
+   */
+  private int[] getVisibleColumnIndexes() {
+    int width = grid.isEmpty() ? 0 : grid.get(0).size();
+
+    return getVisibleIndexes(Math.min(headers.size(), width));
+  }
+
+  private int[] getVisibleIndexes(int count) {
+    return IntStream.range(0, count).filter(i -> !headers.get(i).isHidden()).toArray();
+  }
+
+  /**
+   * Verifies that all grid rows are of the same length. The row widths are tracked as rows and
+   * values are added through the grid, so the verification does not iterate the rows unless the
+   * tracked widths differ, or strict validation is enabled with the {@code
+   * org.hisp.grid.strictValidation} system property. Strict validation also detects rows which were
+   * modified directly through {@link #getRow(int)} or {@link #getRows()}.
+   */
   private void verifyGridState() {
+    if (STRICT_VALIDATION || distinctRowWidths > 1) {
+      verifyRowWidths();
+      resetRowWidths();
+    }
+  }
+
+  /** Verifies that all grid rows are of the same length by iterating the rows. */
+  private void verifyRowWidths() {
     Integer rowLength = null;
 
     int rowPos = 0;
@@ -740,72 +1093,197 @@ public class ListGrid implements Grid {
   }
 
   /**
-   * Updates the mapping between header columns and grid indexes. This method should be invoked
-   * whenever the columns are manipulated.
+   * Retains the rows within the given range. The tracked row widths are updated for the removed
+   * rows only, and are not read at all when all rows have the same width, so that retained rows
+   * which are spilled to disk are not read.
+   *
+   * @param from the index of the first row to retain, inclusive.
+   * @param to the index of the last row to retain, exclusive.
    */
-  private void updateColumnIndexMap() {
-    columnIndexMap.clear();
+  private void retainRows(int from, int to) {
+    if (distinctRowWidths <= 1) {
+      for (int width = 0; width < rowWidthCounts.length; width++) {
+        if (rowWidthCounts[width] > 0) {
+          trackRowWidth(width, (to - from) - rowWidthCounts[width]);
+          break;
+        }
+      }
+    } else {
+      for (List<Object> row : grid.subList(0, from)) {
+        trackRowWidth(row.size(), -1);
+      }
 
-    for (int i = 0; i < headers.size(); i++) {
-      columnIndexMap.put(headers.get(i).getColumn(), i);
+      for (List<Object> row : grid.subList(to, grid.size())) {
+        trackRowWidth(row.size(), -1);
+      }
     }
+
+    grid = grid.subList(from, to);
   }
 
   /**
-   * Indicates whether the grid has any values, i.e. at least one column and one row.
+   * Updates the tracked number of rows with the given width.
    *
-   * @return true if grid has any values.
+   * @param width the row width.
+   * @param delta the change in the number of rows.
    */
-  private boolean hasValues() {
-    return getWidth() > 0 && getHeight() > 0;
+  private void trackRowWidth(int width, int delta) {
+    if (width >= rowWidthCounts.length) {
+      rowWidthCounts =
+          Arrays.copyOf(rowWidthCounts, Math.max(width + 1, rowWidthCounts.length * 2));
+    }
+
+    int count = rowWidthCounts[width];
+
+    rowWidthCounts[width] = count + delta;
+
+    if (count == 0 && delta > 0) {
+      distinctRowWidths++;
+    } else if (count > 0 && count + delta == 0) {
+      distinctRowWidths--;
+    }
+  }
+
+  /**
+   * Updates the tracked row widths for a row which changed width.
+   *
+   * @param from the previous row width.
+   * @param to the current row width.
+   */
+  private void resizeRowWidth(int from, int to) {
+    if (from != to) {
+      trackRowWidth(from, -1);
+      trackRowWidth(to, 1);
+    }
   }
 
   /**
-   * Joins the elements of the given iterator using the given separator to separate the items.
+   * Adds a column for each of the given window functions. Source columns are read in one pass over
+   * the rows, and the computed values are appended in one pass over the rows.
    *
-   * @param iterator the iterator.
-   * @param separator the separator.
-   * @return the joined string.
+   * @param addHeaders whether to add headers for columns with a source header.
+   * @param functions the {@link WindowFunction} instances.
+   * @return this grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
    */
-  private static String join(final Collection<?> collection, final String separator) {
-    if (collection == null) {
-      return null;
+  private Grid addWindowColumns(boolean addHeaders, WindowFunction... functions) {
+    verifyGridState();
+
+    int width = grid.isEmpty() ? headers.size() : getWidth();
+    int height = grid.size();
+    int[] columnIndexes = getWindowColumnIndexes(functions, width);
+    double[][] values = new double[columnIndexes.length][height];
+    BitSet[] nulls = new BitSet[columnIndexes.length];
+
+    for (int i = 0; i < columnIndexes.length; i++) {
+      nulls[i] = new BitSet(height);
+    }
+
+    for (int r = 0; r < height; r++) {
+      List<Object> row = grid.get(r);
+
+      for (int i = 0; i < columnIndexes.length; i++) {
+        Object value = row.get(columnIndexes[i]);
+
+        if (value == null) {
+          nulls[i].set(r);
+        } else {
+          values[i][r] = WindowFunction.toDouble(value);
+        }
+      }
     }
 
-    Iterator<?> iterator = collection.iterator();
+    WindowFunction.Values[] results = new WindowFunction.Values[functions.length];
 
-    if (iterator == null || !iterator.hasNext()) {
-      return "";
+    for (int f = 0; f < functions.length; f++) {
+      int i = Arrays.binarySearch(columnIndexes, functions[f].getColumnIndex());
+      results[f] = functions[f].apply(values[i], nulls[i]);
     }
 
-    final Object first = iterator.next();
+    for (int r = 0; r < height; r++) {
+      List<Object> row = grid.get(r);
 
-    if (!iterator.hasNext()) {
-      final String result = Objects.toString(first, "");
-      return result;
+      for (WindowFunction.Values result : results) {
+        row.add(result.get(r));
+      }
     }
 
-    // Two or more elements
+    resetRowWidths();
 
-    final StringBuilder buffer = new StringBuilder();
+    List<GridHeader> sourceHeaders = new ArrayList<>(headers);
 
-    if (first != null) {
-      buffer.append(first);
+    for (WindowFunction function : functions) {
+      if (addHeaders && function.getColumnIndex() < sourceHeaders.size()) {
+        addHeader(function.getHeader(sourceHeaders.get(function.getColumnIndex())));
+      }
     }
 
-    while (iterator.hasNext()) {
-      if (separator != null) {
-        buffer.append(separator);
+    return this;
+  }
+
+  /**
+   * Returns the sorted, distinct source column indexes of the given window functions.
+   *
+   * @param functions the {@link WindowFunction} instances.
+   * @param width the width of the grid.
+   * @return the column indexes.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private static int[] getWindowColumnIndexes(WindowFunction[] functions, int width) {
+    for (WindowFunction function : functions) {
+      if (function.getColumnIndex() < 0 || function.getColumnIndex() >= width) {
+        throw new IllegalArgumentException(
+            "Column index out of bounds: " + function.getColumnIndex());
       }
+    }
+
+    return Arrays.stream(functions)
+        .mapToInt(WindowFunction::getColumnIndex)
+        .distinct()
+        .sorted()
+        .toArray();
+  }
 
-      final Object obj = iterator.next();
+  /**
+   * Validates that the given column indexes are within the given width and unique.
+   *
+   * @param columnIndexes the column indexes.
+   * @param width the width of the grid.
+   * @throws IllegalArgumentException if a column index is out of bounds or given more than once.
+   */
+  private static void validateColumnIndexes(int[] columnIndexes, int width) {
+    boolean[] seen = new boolean[width];
 
-      if (obj != null) {
-        buffer.append(obj);
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
       }
+
+      if (seen[columnIndex]) {
+        throw new IllegalArgumentException("Column index given more than once: " + columnIndex);
+      }
+
+      seen[columnIndex] = true;
+    }
+  }
+
+  /** Recomputes the tracked row widths from the rows. */
+  private void resetRowWidths() {
+    Arrays.fill(rowWidthCounts, 0);
+    distinctRowWidths = 0;
+
+    for (List<Object> row : grid) {
+      trackRowWidth(row.size(), 1);
     }
+  }
 
-    return buffer.toString();
+  /**
+   * Indicates whether the grid has any values, i.e. at least one column and one row.
+   *
+   * @return true if grid has any values.
+   */
+  private boolean hasValues() {
+    return getWidth() > 0 && getHeight() > 0;
   }
 
   // -------------------------------------------------------------------------
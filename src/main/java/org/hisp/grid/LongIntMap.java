@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to non-negative int values, based on open addressing with
+ * linear probing. Keys and values are held in primitive arrays, so that lookups do not allocate.
+ */
+class LongIntMap {
+  /** Marker of empty slots in the value array. */
+  private static final int EMPTY = -1;
+
+  private long[] keys;
+
+  private int[] values;
+
+  private int mask;
+
+  private int size;
+
+  /**
+   * Constructor.
+   *
+   * @param expectedSize the expected number of entries.
+   */
+  LongIntMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.min(Math.max(expectedSize, 8), 1 << 28) * 2 - 1) << 1;
+    allocate(capacity);
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the number of entries.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value of the given key.
+   *
+   * @param key the key.
+   * @return the value, or -1 if the key is not present.
+   */
+  int get(long key) {
+    for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+      if (values[slot] == EMPTY || keys[slot] == key) {
+        return values[slot];
+      }
+    }
+  }
+
+  /**
+   * Returns the value of the given key, or associates the key with the given value if the key is
+   * not present.
+   *
+   * @param key the key.
+   * @param value the non-negative value to associate with the key if not present.
+   * @return the existing value, or the given value if the key was added.
+   */
+  int getOrPut(long key, int value) {
+    int slot = slot(key);
+
+    while (values[slot] != EMPTY) {
+      if (keys[slot] == key) {
+        return values[slot];
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    keys[slot] = key;
+    values[slot] = value;
+
+    if (++size * 2 > keys.length) {
+      rehash();
+    }
+
+    return value;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private int slot(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    mask = capacity - 1;
+    Arrays.fill(values, EMPTY);
+  }
+
+  private void rehash() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+
+    allocate(oldKeys.length * 2);
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+
+        while (values[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.hisp.grid.column.OffHeapColumnFactory;
+
+/**
+ * {@link ColumnarGrid} which stores the cell values outside of the Java heap, in direct memory laid
+ * out per column based on the {@link ValueType} of the corresponding {@link GridHeader}. Large
+ * grids hence do not occupy the old generation of the heap. Values of types which cannot be encoded
+ * off-heap are kept in heap storage.
+ *
+ * <p>The memory is released when the grid is closed, after which the grid must not be used:
+ *
+ * <pre>{@code
+ * try (OffHeapGrid grid = new OffHeapGrid()) {
+ *   // Add headers and rows
+ *   GridUtils.toCsv(grid, writer);
+ * }
+ * }</pre>
+ */
+public class OffHeapGrid extends ColumnarGrid implements AutoCloseable {
+  /** Default constructor. */
+  public OffHeapGrid() {
+    this(new HashMap<>());
+  }
+
+  /**
+   * @param metaData meta data.
+   */
+  public OffHeapGrid(Map<String, Object> metaData) {
+    super(metaData, new OffHeapColumnFactory());
+  }
+
+  /** Releases the off-heap memory of the grid and removes all rows. */
+  @Override
+  public void close() {
+    releaseColumns();
+  }
+}
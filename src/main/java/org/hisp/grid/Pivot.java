@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Pivot of a grid into a crosstab. Row and column dimension values are dictionary encoded into
+ * dense group identifiers in one pass over the rows, and values are aggregated into a dense
+ * primitive matrix of row groups by column groups, so that cells are addressed by index without map
+ * lookups.
+ */
+class Pivot {
+  /** Separator of dimension values in generated header names. */
+  private static final String NAME_SEPARATOR = " ";
+
+  /** Separator of dimension values in generated header columns. */
+  private static final String COLUMN_SEPARATOR = "_";
+
+  private Pivot() {}
+
+  /**
+   * Pivots the given grid. See {@link Grid#pivot(int[], int[], int, AggregateType)}.
+   *
+   * @param grid the {@link Grid}.
+   * @param rowColumns the indexes of the row dimension columns.
+   * @param columnColumns the indexes of the column dimension columns.
+   * @param valueColumn the index of the value column.
+   * @param type the {@link AggregateType}.
+   * @return a new {@link Grid}.
+   */
+  static Grid pivot(
+      Grid grid, int[] rowColumns, int[] columnColumns, int valueColumn, AggregateType type) {
+    int width = grid.getHeight() > 0 ? grid.getWidth() : grid.getHeaders().size();
+
+    if (columnColumns.length == 0) {
+      throw new IllegalArgumentException("At least one column dimension must be specified");
+    }
+
+    validateColumnIndexes(rowColumns, width);
+    validateColumnIndexes(columnColumns, width);
+    validateColumnIndexes(new int[] {valueColumn}, width);
+
+    int height = grid.getHeight();
+    Object[][] rowKeys = new Object[rowColumns.length][height];
+    Object[][] columnKeys = new Object[columnColumns.length][height];
+    double[] values = type != AggregateType.COUNT ? new double[height] : null;
+    BitSet nulls = new BitSet(height);
+    int r = 0;
+
+    for (List<Object> row : grid.getRows()) {
+      for (int i = 0; i < rowColumns.length; i++) {
+        rowKeys[i][r] = row.get(rowColumns[i]);
+      }
+
+      for (int i = 0; i < columnColumns.length; i++) {
+        columnKeys[i][r] = row.get(columnColumns[i]);
+      }
+
+      Object value = row.get(valueColumn);
+
+      if (value == null) {
+        nulls.set(r);
+      } else if (values != null) {
+        values[r] = WindowFunction.toDouble(value);
+      }
+
+      r++;
+    }
+
+    GroupKeys rowGroups = GroupKeys.encode(rowKeys, height);
+    GroupKeys columnGroups = GroupKeys.encode(columnKeys, height);
+    long cellCount = (long) rowGroups.getGroupCount() * columnGroups.getGroupCount();
+
+    if (cellCount > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Pivot has too many cells: " + cellCount);
+    }
+
+    int[] cells = new int[height];
+    BitSet filledCells = new BitSet((int) cellCount);
+
+    for (int row = 0; row < height; row++) {
+      cells[row] =
+          rowGroups.getGroups()[row] * columnGroups.getGroupCount() + columnGroups.getGroups()[row];
+      filledCells.set(cells[row]);
+    }
+
+    Accumulator matrix =
+        Accumulator.accumulate(cells, (int) cellCount, values, nulls, EnumSet.of(type));
+
+    Grid result = new ListGrid();
+
+    addHeaders(grid, result, rowColumns, columnKeys, columnGroups, type);
+
+    for (int rowGroup = 0; rowGroup < rowGroups.getGroupCount(); rowGroup++) {
+      int firstRow = rowGroups.getFirstRow(rowGroup);
+      int offset = rowGroup * columnGroups.getGroupCount();
+
+      result.addRow();
+
+      for (Object[] key : rowKeys) {
+        result.addValue(key[firstRow]);
+      }
+
+      for (int columnGroup = 0; columnGroup < columnGroups.getGroupCount(); columnGroup++) {
+        int cell = offset + columnGroup;
+        result.addValue(filledCells.get(cell) ? matrix.get(type, cell) : null);
+      }
+    }
+
+    return result;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds headers for the row dimension columns and the generated columns to the given grid. Row
+   * dimension headers are copied from the grid to pivot if present. Generated headers are named
+   * after the column dimension values of each column.
+   *
+   * @param grid the {@link Grid} to pivot.
+   * @param result the {@link Grid} to add headers to.
+   * @param rowColumns the indexes of the row dimension columns.
+   * @param columnKeys the values of the column dimension columns, indexed by row.
+   * @param columnGroups the column dimension groups.
+   * @param type the {@link AggregateType}.
+   */
+  private static void addHeaders(
+      Grid grid,
+      Grid result,
+      int[] rowColumns,
+      Object[][] columnKeys,
+      GroupKeys columnGroups,
+      AggregateType type) {
+    List<GridHeader> headers = grid.getHeaders();
+
+    for (int columnIndex : rowColumns) {
+      GridHeader header =
+          columnIndex < headers.size()
+              ? headers.get(columnIndex)
+              : new GridHeader(String.valueOf(columnIndex));
+
+      result.addHeader(
+          new GridHeader(
+              header.getName(),
+              header.getColumn(),
+              header.getValueType(),
+              header.isHidden(),
+              header.isMeta()));
+    }
+
+    ValueType valueType = type == AggregateType.COUNT ? ValueType.INTEGER : ValueType.DOUBLE;
+
+    for (int columnGroup = 0; columnGroup < columnGroups.getGroupCount(); columnGroup++) {
+      int firstRow = columnGroups.getFirstRow(columnGroup);
+      StringJoiner name = new StringJoiner(NAME_SEPARATOR);
+      StringJoiner column = new StringJoiner(COLUMN_SEPARATOR);
+
+      for (Object[] key : columnKeys) {
+        name.add(String.valueOf(key[firstRow]));
+        column.add(String.valueOf(key[firstRow]));
+      }
+
+      result.addHeader(new GridHeader(name.toString(), column.toString(), valueType, false, false));
+    }
+  }
+
+  /**
+   * Validates that the given column indexes are within the given width.
+   *
+   * @param columnIndexes the column indexes.
+   * @param width the width of the grid.
+   * @throws IllegalArgumentException if a column index is out of bounds.
+   */
+  private static void validateColumnIndexes(int[] columnIndexes, int width) {
+    for (int columnIndex : columnIndexes) {
+      if (columnIndex < 0 || columnIndex >= width) {
+        throw new IllegalArgumentException("Column index out of bounds: " + columnIndex);
+      }
+    }
+  }
+}
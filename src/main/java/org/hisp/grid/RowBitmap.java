@@ -0,0 +1,707 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compressed bitmap of row indexes, in the style of Roaring bitmaps. Row indexes are partitioned
+ * into chunks of 65536 by their upper 16 bits, and each chunk is stored either as a sorted array of
+ * the lower 16 bits, when it holds at most 4096 rows, or as a fixed bitmap of 65536 bits otherwise.
+ * Sparse and dense sets of rows hence both take little space, and set operations process one chunk
+ * at a time. Bitmaps are returned by {@link BitmapIndex} and are immutable through the public API.
+ */
+public final class RowBitmap {
+  /** Maximum number of values of an array container. */
+  private static final int ARRAY_MAX_SIZE = 4096;
+
+  /** Number of words of a bitmap container. */
+  private static final int BITMAP_WORDS = 1024;
+
+  /** The upper 16 bits of the rows of each container, in ascending order. */
+  private char[] keys;
+
+  /** The containers, in the order of the keys. */
+  private Container[] containers;
+
+  /** The number of containers. */
+  private int size;
+
+  /** Creates an empty bitmap. */
+  RowBitmap() {
+    this(new char[4], new Container[4], 0);
+  }
+
+  private RowBitmap(char[] keys, Container[] containers, int size) {
+    this.keys = keys;
+    this.containers = containers;
+    this.size = size;
+  }
+
+  /**
+   * Returns a bitmap of the given row indexes.
+   *
+   * @param rows the row indexes, which must not be negative.
+   * @return a {@link RowBitmap}.
+   */
+  public static RowBitmap of(int... rows) {
+    RowBitmap bitmap = new RowBitmap();
+
+    for (int row : rows) {
+      bitmap.add(row);
+    }
+
+    return bitmap;
+  }
+
+  /**
+   * Indicates whether the given row is in the bitmap.
+   *
+   * @param row the row index.
+   * @return true if the row is in the bitmap.
+   */
+  public boolean contains(int row) {
+    int index = indexOf((char) (row >>> 16));
+    return index >= 0 && containers[index].contains((char) row);
+  }
+
+  /**
+   * Returns the number of rows in the bitmap.
+   *
+   * @return the number of rows.
+   */
+  public int getCardinality() {
+    int cardinality = 0;
+
+    for (int i = 0; i < size; i++) {
+      cardinality += containers[i].cardinality();
+    }
+
+    return cardinality;
+  }
+
+  /**
+   * Indicates whether the bitmap is empty.
+   *
+   * @return true if the bitmap holds no rows.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the rows which are in both this and the given bitmap.
+   *
+   * @param other the other {@link RowBitmap}.
+   * @return a new {@link RowBitmap}.
+   */
+  public RowBitmap and(RowBitmap other) {
+    RowBitmap result = new RowBitmap();
+    int i = 0;
+    int j = 0;
+
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        result.append(keys[i], containers[i++].and(other.containers[j++]));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the number of rows which are in both this and the given bitmap, without creating the
+   * intersection.
+   *
+   * @param other the other {@link RowBitmap}.
+   * @return the number of rows.
+   */
+  public int andCardinality(RowBitmap other) {
+    int cardinality = 0;
+    int i = 0;
+    int j = 0;
+
+    while (i < size && j < other.size) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        cardinality += containers[i++].andCardinality(other.containers[j++]);
+      }
+    }
+
+    return cardinality;
+  }
+
+  /**
+   * Returns the rows which are in this or the given bitmap.
+   *
+   * @param other the other {@link RowBitmap}.
+   * @return a new {@link RowBitmap}.
+   */
+  public RowBitmap or(RowBitmap other) {
+    RowBitmap result = new RowBitmap();
+    int i = 0;
+    int j = 0;
+
+    while (i < size || j < other.size) {
+      if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+        result.append(keys[i], containers[i++].copy());
+      } else if (i == size || keys[i] > other.keys[j]) {
+        result.append(other.keys[j], other.containers[j++].copy());
+      } else {
+        result.append(keys[i], containers[i++].or(other.containers[j++]));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the rows which are in this bitmap but not in the given bitmap.
+   *
+   * @param other the other {@link RowBitmap}.
+   * @return a new {@link RowBitmap}.
+   */
+  public RowBitmap andNot(RowBitmap other) {
+    RowBitmap result = new RowBitmap();
+    int j = 0;
+
+    for (int i = 0; i < size; i++) {
+      while (j < other.size && other.keys[j] < keys[i]) {
+        j++;
+      }
+
+      boolean overlaps = j < other.size && other.keys[j] == keys[i];
+
+      result.append(
+          keys[i], overlaps ? containers[i].andNot(other.containers[j]) : containers[i].copy());
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the rows of the bitmap in ascending order.
+   *
+   * @return the row indexes.
+   */
+  public int[] toArray() {
+    int[] rows = new int[getCardinality()];
+    int offset = 0;
+
+    for (int i = 0; i < size; i++) {
+      offset = containers[i].copyTo(rows, offset, keys[i] << 16);
+    }
+
+    return rows;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(toArray());
+  }
+
+  /**
+   * Returns a copy of the bitmap.
+   *
+   * @return a new {@link RowBitmap}.
+   */
+  RowBitmap copy() {
+    Container[] copies = new Container[Math.max(size, 1)];
+
+    for (int i = 0; i < size; i++) {
+      copies[i] = containers[i].copy();
+    }
+
+    return new RowBitmap(Arrays.copyOf(keys, copies.length), copies, size);
+  }
+
+  /**
+   * Adds the given row to the bitmap. Adding rows in ascending order is most efficient.
+   *
+   * @param row the row index, which must not be negative.
+   */
+  void add(int row) {
+    char key = (char) (row >>> 16);
+    int index = size > 0 && keys[size - 1] == key ? size - 1 : indexOf(key);
+
+    if (index >= 0) {
+      containers[index] = containers[index].add((char) row);
+      return;
+    }
+
+    index = -index - 1;
+    ensureCapacity(size + 1);
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(containers, index, containers, index + 1, size - index);
+    keys[index] = key;
+    containers[index] = new ArrayContainer().add((char) row);
+    size++;
+  }
+
+  /**
+   * Removes rows at or after the given height from the bitmap.
+   *
+   * @param height the number of rows to keep.
+   */
+  void truncate(int height) {
+    char key = (char) (height >>> 16);
+    char limit = (char) height;
+
+    while (size > 0 && keys[size - 1] > key) {
+      containers[--size] = null;
+    }
+
+    if (size > 0 && keys[size - 1] == key) {
+      Container container = limit == 0 ? null : containers[size - 1].truncate(limit);
+
+      if (container == null) {
+        containers[--size] = null;
+      } else {
+        containers[size - 1] = container;
+      }
+    }
+  }
+
+  /**
+   * Returns the rows of the bitmap as a {@link BitSet}.
+   *
+   * @return a new {@link BitSet}.
+   */
+  BitSet toBitSet() {
+    BitSet bitSet = new BitSet();
+
+    for (int i = 0; i < size; i++) {
+      containers[i].copyTo(bitSet, keys[i] << 16);
+    }
+
+    return bitSet;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private int indexOf(char key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  /** Appends a container with a key greater than all keys, unless the container is null. */
+  private void append(char key, Container container) {
+    if (container == null) {
+      return;
+    }
+
+    ensureCapacity(size + 1);
+    keys[size] = key;
+    containers[size++] = container;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > keys.length) {
+      int length = Math.max(capacity, keys.length * 2);
+      keys = Arrays.copyOf(keys, length);
+      containers = Arrays.copyOf(containers, length);
+    }
+  }
+
+  /**
+   * Returns a container of the given words, or null if no bit is set. Uses an array container if
+   * the number of set bits is small enough.
+   */
+  private static Container toContainer(long[] words) {
+    int cardinality = 0;
+
+    for (long word : words) {
+      cardinality += Long.bitCount(word);
+    }
+
+    if (cardinality == 0) {
+      return null;
+    }
+
+    if (cardinality > ARRAY_MAX_SIZE) {
+      return new BitmapContainer(words, cardinality);
+    }
+
+    char[] values = new char[cardinality];
+    int n = 0;
+
+    for (int w = 0; w < words.length; w++) {
+      for (long word = words[w]; word != 0; word &= word - 1) {
+        values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+      }
+    }
+
+    return new ArrayContainer(values, cardinality);
+  }
+
+  // -------------------------------------------------------------------------
+  // Containers
+  // -------------------------------------------------------------------------
+
+  /**
+   * Set of the lower 16 bits of the rows of one chunk. Operations which return a container return
+   * null for an empty result, and do not modify their operands, except {@link #add(char)}.
+   */
+  private abstract static class Container {
+    /** Adds the given value and returns the resulting container, which may be a new container. */
+    abstract Container add(char value);
+
+    abstract boolean contains(char value);
+
+    abstract int cardinality();
+
+    abstract Container and(Container other);
+
+    abstract int andCardinality(Container other);
+
+    abstract Container or(Container other);
+
+    abstract Container andNot(Container other);
+
+    /** Returns the container with only the values below the given limit. */
+    abstract Container truncate(char limit);
+
+    abstract Container copy();
+
+    abstract long[] toWords();
+
+    abstract int copyTo(int[] rows, int offset, int base);
+
+    abstract void copyTo(BitSet bitSet, int base);
+  }
+
+  /** Container of a sorted array of values. */
+  private static class ArrayContainer extends Container {
+    private char[] values;
+
+    private int size;
+
+    ArrayContainer() {
+      this(new char[4], 0);
+    }
+
+    ArrayContainer(char[] values, int size) {
+      this.values = values;
+      this.size = size;
+    }
+
+    @Override
+    Container add(char value) {
+      int index = size > 0 && values[size - 1] < value ? -size - 1 : indexOf(value);
+
+      if (index >= 0) {
+        return this;
+      }
+
+      if (size == ARRAY_MAX_SIZE) {
+        return new BitmapContainer(toWords(), size).add(value);
+      }
+
+      index = -index - 1;
+
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_MAX_SIZE));
+      }
+
+      System.arraycopy(values, index, values, index + 1, size - index);
+      values[index] = value;
+      size++;
+
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return indexOf(value) >= 0;
+    }
+
+    @Override
+    int cardinality() {
+      return size;
+    }
+
+    @Override
+    Container and(Container other) {
+      char[] result = new char[size];
+      int n = 0;
+
+      for (int i = 0; i < size; i++) {
+        if (other.contains(values[i])) {
+          result[n++] = values[i];
+        }
+      }
+
+      return n > 0 ? new ArrayContainer(result, n) : null;
+    }
+
+    @Override
+    int andCardinality(Container other) {
+      int n = 0;
+
+      for (int i = 0; i < size; i++) {
+        if (other.contains(values[i])) {
+          n++;
+        }
+      }
+
+      return n;
+    }
+
+    @Override
+    Container or(Container other) {
+      if (!(other instanceof ArrayContainer array) || size + array.size > ARRAY_MAX_SIZE) {
+        long[] words = other.toWords();
+
+        for (int i = 0; i < size; i++) {
+          words[values[i] >>> 6] |= 1L << values[i];
+        }
+
+        return toContainer(words);
+      }
+
+      char[] result = new char[size + array.size];
+      int i = 0;
+      int j = 0;
+      int n = 0;
+
+      while (i < size || j < array.size) {
+        if (j == array.size || (i < size && values[i] < array.values[j])) {
+          result[n++] = values[i++];
+        } else if (i == size || values[i] > array.values[j]) {
+          result[n++] = array.values[j++];
+        } else {
+          result[n++] = values[i++];
+          j++;
+        }
+      }
+
+      return new ArrayContainer(result, n);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      char[] result = new char[size];
+      int n = 0;
+
+      for (int i = 0; i < size; i++) {
+        if (!other.contains(values[i])) {
+          result[n++] = values[i];
+        }
+      }
+
+      return n > 0 ? new ArrayContainer(result, n) : null;
+    }
+
+    @Override
+    Container truncate(char limit) {
+      int index = indexOf(limit);
+      size = index >= 0 ? index : -index - 1;
+      return size > 0 ? this : null;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(values, Math.max(size, 1)), size);
+    }
+
+    @Override
+    long[] toWords() {
+      long[] words = new long[BITMAP_WORDS];
+
+      for (int i = 0; i < size; i++) {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+
+      return words;
+    }
+
+    @Override
+    int copyTo(int[] rows, int offset, int base) {
+      for (int i = 0; i < size; i++) {
+        rows[offset++] = base | values[i];
+      }
+
+      return offset;
+    }
+
+    @Override
+    void copyTo(BitSet bitSet, int base) {
+      for (int i = 0; i < size; i++) {
+        bitSet.set(base | values[i]);
+      }
+    }
+
+    private int indexOf(char value) {
+      return Arrays.binarySearch(values, 0, size, value);
+    }
+  }
+
+  /** Container of a fixed bitmap of 65536 bits. */
+  private static class BitmapContainer extends Container {
+    private final long[] words;
+
+    private int cardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    Container add(char value) {
+      long word = words[value >>> 6];
+      long updated = word | (1L << value);
+
+      if (updated != word) {
+        words[value >>> 6] = updated;
+        cardinality++;
+      }
+
+      return this;
+    }
+
+    @Override
+    boolean contains(char value) {
+      return (words[value >>> 6] & (1L << value)) != 0;
+    }
+
+    @Override
+    int cardinality() {
+      return cardinality;
+    }
+
+    @Override
+    Container and(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.and(this);
+      }
+
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[BITMAP_WORDS];
+
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        result[w] = words[w] & otherWords[w];
+      }
+
+      return toContainer(result);
+    }
+
+    @Override
+    int andCardinality(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.andCardinality(this);
+      }
+
+      long[] otherWords = ((BitmapContainer) other).words;
+      int n = 0;
+
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        n += Long.bitCount(words[w] & otherWords[w]);
+      }
+
+      return n;
+    }
+
+    @Override
+    Container or(Container other) {
+      if (other instanceof ArrayContainer) {
+        return other.or(this);
+      }
+
+      long[] otherWords = ((BitmapContainer) other).words;
+      long[] result = new long[BITMAP_WORDS];
+
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        result[w] = words[w] | otherWords[w];
+      }
+
+      return toContainer(result);
+    }
+
+    @Override
+    Container andNot(Container other) {
+      long[] result = other.toWords();
+
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        result[w] = words[w] & ~result[w];
+      }
+
+      return toContainer(result);
+    }
+
+    @Override
+    Container truncate(char limit) {
+      long[] result = words.clone();
+      int w = limit >>> 6;
+
+      result[w] &= (1L << limit) - 1;
+      Arrays.fill(result, w + 1, BITMAP_WORDS, 0L);
+
+      return toContainer(result);
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    long[] toWords() {
+      return words.clone();
+    }
+
+    @Override
+    int copyTo(int[] rows, int offset, int base) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = words[w]; word != 0; word &= word - 1) {
+          rows[offset++] = base | ((w << 6) + Long.numberOfTrailingZeros(word));
+        }
+      }
+
+      return offset;
+    }
+
+    @Override
+    void copyTo(BitSet bitSet, int base) {
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = words[w]; word != 0; word &= word - 1) {
+          bitSet.set(base | ((w << 6) + Long.numberOfTrailingZeros(word)));
+        }
+      }
+    }
+  }
+}
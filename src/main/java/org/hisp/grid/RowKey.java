@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable composite key of cell values, used as map key by {@link Grid#getAsMap(int, boolean)}.
+ * The hash code is computed once on creation, and keys are equal when their values are equal in
+ * order according to {@link Object#equals(Object)}. Create keys for lookups with {@link
+ * #of(Object...)}.
+ */
+public final class RowKey {
+  /** Number of rows above which keys are created in parallel. */
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+  private final Object[] values;
+
+  private final int hash;
+
+  private RowKey(Object[] values) {
+    this.values = values;
+    this.hash = Arrays.hashCode(values);
+  }
+
+  /**
+   * Returns a key of the given values.
+   *
+   * @param values the values.
+   * @return a {@link RowKey}.
+   */
+  public static RowKey of(Object... values) {
+    return new RowKey(values.clone());
+  }
+
+  /**
+   * Returns the value at the given position.
+   *
+   * @param index the position, starting on 0.
+   * @return the value.
+   */
+  public Object get(int index) {
+    return values[index];
+  }
+
+  /**
+   * Returns the number of values.
+   *
+   * @return the number of values.
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Returns a map of the given rows, where each key holds the values of all columns except the
+   * value column, in order. The map is sized for the number of rows. When parallel, keys are
+   * created and hashed in parallel, and are then inserted in row order, so that later rows replace
+   * earlier rows with equal keys as when building sequentially.
+   *
+   * @param rows the rows.
+   * @param valueIndex the index of the value column.
+   * @param parallel whether to create keys in parallel.
+   * @param <T> type.
+   * @return a map of each row.
+   */
+  @SuppressWarnings("unchecked")
+  static <T> Map<RowKey, T> asMap(List<List<Object>> rows, int valueIndex, boolean parallel) {
+    int height = rows.size();
+    RowKey[] keys = new RowKey[height];
+    IntStream indexes = IntStream.range(0, height);
+
+    if (parallel && height > PARALLEL_THRESHOLD) {
+      indexes = indexes.parallel();
+    }
+
+    indexes.forEach(row -> keys[row] = of(rows.get(row), valueIndex));
+
+    Map<RowKey, T> map = new HashMap<>((int) (height / 0.75f) + 1);
+
+    for (int row = 0; row < height; row++) {
+      map.put(keys[row], (T) rows.get(row).get(valueIndex));
+    }
+
+    return map;
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+
+    return object instanceof RowKey other
+        && hash == other.hash
+        && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(values);
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Returns a key of the values of the given row except the value at the given index.
+   *
+   * @param row the row.
+   * @param valueIndex the index of the value to exclude.
+   * @return a {@link RowKey}.
+   */
+  private static RowKey of(List<Object> row, int valueIndex) {
+    Object[] values = new Object[row.size() - 1];
+
+    for (int i = 0, k = 0; i < row.size(); i++) {
+      if (i != valueIndex) {
+        values[k++] = row.get(i);
+      }
+    }
+
+    return new RowKey(values);
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.IntStream;
+
+/**
+ * Stable merge sort of row indexes based on {@link SortKey} instances. Row values are not moved
+ * during sorting; the resulting permutation is applied to the grid once. Large arrays are sorted in
+ * parallel with fork-join, where halves are sorted concurrently and then merged. The first rows of
+ * the sort order can be selected with bounded heaps, without sorting all rows.
+ */
+class RowSorter {
+  /** Number of rows below which ranges are sorted in the current thread. */
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+  /** Number of rows below which ranges are sorted with insertion sort. */
+  private static final int INSERTION_THRESHOLD = 32;
+
+  private RowSorter() {}
+
+  /**
+   * Returns the row indexes of a grid with the given height, sorted on the given keys.
+   *
+   * @param height the number of rows.
+   * @param keys the sort keys, in order of precedence.
+   * @return the sorted row indexes.
+   */
+  static int[] sort(int height, SortKey[] keys) {
+    int[] rows = new int[height];
+
+    for (int i = 0; i < height; i++) {
+      rows[i] = i;
+    }
+
+    sort(rows, keys);
+
+    return rows;
+  }
+
+  /**
+   * Sorts the given row indexes on the given keys. The sort is stable.
+   *
+   * @param rows the row indexes.
+   * @param keys the sort keys, in order of precedence.
+   */
+  static void sort(int[] rows, SortKey[] keys) {
+    int[] buffer = new int[rows.length];
+
+    if (rows.length < PARALLEL_THRESHOLD) {
+      mergeSort(rows, buffer, 0, rows.length, keys);
+    } else {
+      ForkJoinPool.commonPool().invoke(new SortTask(rows, buffer, 0, rows.length, keys));
+    }
+  }
+
+  /**
+   * Returns the first rows of the sort order of a grid with the given height, in sorted order. The
+   * result is identical to the first rows of {@link #sort(int, SortKey[])}. Rows are selected with
+   * a bounded heap in O(n log limit) time, and large grids are split into chunks which are
+   * processed in parallel and merged.
+   *
+   * @param height the number of rows.
+   * @param keys the sort keys, in order of precedence.
+   * @param limit the maximum number of rows to return.
+   * @return the sorted row indexes, at most limit.
+   */
+  static int[] top(int height, SortKey[] keys, int limit) {
+    if (limit >= height / 2) {
+      int[] rows = sort(height, keys);
+      return limit < height ? Arrays.copyOf(rows, limit) : rows;
+    }
+
+    int[] candidates;
+
+    if (height < PARALLEL_THRESHOLD) {
+      candidates = top(0, height, keys, limit);
+    } else {
+      int chunkSize = Math.max(PARALLEL_THRESHOLD, limit * 4);
+      int chunks = (height + chunkSize - 1) / chunkSize;
+
+      candidates =
+          IntStream.range(0, chunks)
+              .parallel()
+              .mapToObj(c -> top(c * chunkSize, Math.min(height, (c + 1) * chunkSize), keys, limit))
+              .flatMapToInt(Arrays::stream)
+              .toArray();
+    }
+
+    Arrays.sort(candidates);
+    sort(candidates, keys);
+
+    return candidates.length > limit ? Arrays.copyOf(candidates, limit) : candidates;
+  }
+
+  /**
+   * Compares the given rows on the given keys.
+   *
+   * @param keys the sort keys, in order of precedence.
+   * @param row1 the first row index.
+   * @param row2 the second row index.
+   * @return the comparison result.
+   */
+  static int compare(SortKey[] keys, int row1, int row2) {
+    for (SortKey key : keys) {
+      int result = key.compare(row1, row2);
+
+      if (result != 0) {
+        return result;
+      }
+    }
+
+    return 0;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private static void mergeSort(int[] rows, int[] buffer, int from, int to, SortKey[] keys) {
+    if (to - from <= INSERTION_THRESHOLD) {
+      insertionSort(rows, from, to, keys);
+      return;
+    }
+
+    int mid = (from + to) >>> 1;
+
+    mergeSort(rows, buffer, from, mid, keys);
+    mergeSort(rows, buffer, mid, to, keys);
+    merge(rows, buffer, from, mid, to, keys);
+  }
+
+  private static void insertionSort(int[] rows, int from, int to, SortKey[] keys) {
+    for (int i = from + 1; i < to; i++) {
+      int row = rows[i];
+      int j = i - 1;
+
+      while (j >= from && compare(keys, rows[j], row) > 0) {
+        rows[j + 1] = rows[j];
+        j--;
+      }
+
+      rows[j + 1] = row;
+    }
+  }
+
+  /** Merges the sorted ranges [from, mid) and [mid, to), preferring the first range on ties. */
+  private static void merge(int[] rows, int[] buffer, int from, int mid, int to, SortKey[] keys) {
+    if (compare(keys, rows[mid - 1], rows[mid]) <= 0) {
+      return;
+    }
+
+    System.arraycopy(rows, from, buffer, from, to - from);
+
+    int i = from;
+    int j = mid;
+    int k = from;
+
+    while (i < mid && j < to) {
+      rows[k++] = compare(keys, buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+    }
+
+    while (i < mid) {
+      rows[k++] = buffer[i++];
+    }
+
+    while (j < to) {
+      rows[k++] = buffer[j++];
+    }
+  }
+
+  /**
+   * Returns the first rows of the sort order within the given range of rows, in no particular
+   * order. Uses a max-heap of the selected rows, where ties on the keys are broken by row index so
+   * that the selection is identical to a stable sort.
+   */
+  private static int[] top(int from, int to, SortKey[] keys, int limit) {
+    int[] heap = new int[Math.min(limit, to - from)];
+    int size = 0;
+
+    for (int row = from; row < to; row++) {
+      if (size < heap.length) {
+        heap[size] = row;
+        siftUp(heap, size++, keys);
+      } else if (size > 0 && compareStable(keys, row, heap[0]) < 0) {
+        heap[0] = row;
+        siftDown(heap, size, keys);
+      }
+    }
+
+    return heap;
+  }
+
+  private static int compareStable(SortKey[] keys, int row1, int row2) {
+    int result = compare(keys, row1, row2);
+    return result != 0 ? result : Integer.compare(row1, row2);
+  }
+
+  private static void siftUp(int[] heap, int index, SortKey[] keys) {
+    int row = heap[index];
+
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+
+      if (compareStable(keys, row, heap[parent]) <= 0) {
+        break;
+      }
+
+      heap[index] = heap[parent];
+      index = parent;
+    }
+
+    heap[index] = row;
+  }
+
+  private static void siftDown(int[] heap, int size, SortKey[] keys) {
+    int row = heap[0];
+    int index = 0;
+    int child;
+
+    while ((child = 2 * index + 1) < size) {
+      if (child + 1 < size && compareStable(keys, heap[child + 1], heap[child]) > 0) {
+        child++;
+      }
+
+      if (compareStable(keys, row, heap[child]) >= 0) {
+        break;
+      }
+
+      heap[index] = heap[child];
+      index = child;
+    }
+
+    heap[index] = row;
+  }
+
+  /** Fork-join task which sorts a range of row indexes. */
+  private static class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] rows;
+
+    private final int[] buffer;
+
+    private final int from;
+
+    private final int to;
+
+    private final SortKey[] keys;
+
+    SortTask(int[] rows, int[] buffer, int from, int to, SortKey[] keys) {
+      this.rows = rows;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.keys = keys;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from < PARALLEL_THRESHOLD) {
+        mergeSort(rows, buffer, from, to, keys);
+        return;
+      }
+
+      int mid = (from + to) >>> 1;
+
+      invokeAll(
+          new SortTask(rows, buffer, from, mid, keys), new SortTask(rows, buffer, mid, to, keys));
+
+      merge(rows, buffer, from, mid, to, keys);
+    }
+  }
+}
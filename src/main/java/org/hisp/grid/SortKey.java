@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.BitSet;
+import java.util.List;
+import org.hisp.grid.column.DictionaryColumn;
+
+/**
+ * Sort key which compares rows by index, based on the values of one column extracted before
+ * sorting. Numeric values are held and compared in primitive form.
+ */
+abstract class SortKey {
+  /** Whether to sort in descending order. */
+  private final boolean descending;
+
+  /** Whether to place null values first. */
+  private final boolean nullsFirst;
+
+  /**
+   * Constructor.
+   *
+   * @param spec the {@link SortSpec}.
+   */
+  protected SortKey(SortSpec spec) {
+    this.descending = spec.isDescending();
+    this.nullsFirst = spec.isNullsFirst();
+  }
+
+  /**
+   * Returns a sort key for the given column values. Integral values are compared as longs and
+   * floating point values as doubles if all values of the column are of such types. Otherwise,
+   * values are compared through {@link Comparable}, and values which are not comparable are placed
+   * as null values.
+   *
+   * @param values the column values, indexed by row.
+   * @param spec the {@link SortSpec}.
+   * @return a {@link SortKey}.
+   */
+  static SortKey of(Object[] values, SortSpec spec) {
+    boolean integral = true;
+    boolean floating = true;
+
+    for (Object value : values) {
+      if (value != null) {
+        integral &= isIntegral(value);
+        floating &= isFloatingPoint(value);
+      }
+    }
+
+    BitSet nulls = new BitSet();
+
+    if (integral) {
+      long[] longs = new long[values.length];
+
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null) {
+          nulls.set(i);
+        } else {
+          longs[i] = ((Number) values[i]).longValue();
+        }
+      }
+
+      return new LongKey(longs, nulls, spec);
+    } else if (floating) {
+      double[] doubles = new double[values.length];
+
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null) {
+          nulls.set(i);
+        } else {
+          doubles[i] = ((Number) values[i]).doubleValue();
+        }
+      }
+
+      return new DoubleKey(doubles, nulls, spec);
+    }
+
+    return new ComparableKey(values, spec);
+  }
+
+  /**
+   * Returns a sort key for the given long values.
+   *
+   * @param values the values, indexed by row.
+   * @param nulls the rows which are null.
+   * @param spec the {@link SortSpec}.
+   * @return a {@link SortKey}.
+   */
+  static SortKey ofLongs(long[] values, BitSet nulls, SortSpec spec) {
+    return new LongKey(values, nulls, spec);
+  }
+
+  /**
+   * Returns a sort key for the given double values.
+   *
+   * @param values the values, indexed by row.
+   * @param nulls the rows which are null.
+   * @param spec the {@link SortSpec}.
+   * @return a {@link SortKey}.
+   */
+  static SortKey ofDoubles(double[] values, BitSet nulls, SortSpec spec) {
+    return new DoubleKey(values, nulls, spec);
+  }
+
+  /**
+   * Returns a sort key for the given dictionary column. The dictionary values are sorted once, and
+   * rows are compared by the rank of their dictionary code.
+   *
+   * @param column the {@link DictionaryColumn}.
+   * @param height the number of rows.
+   * @param spec the {@link SortSpec}.
+   * @return a {@link SortKey}.
+   */
+  static SortKey ofDictionary(DictionaryColumn column, int height, SortSpec spec) {
+    List<Object> dictionary = column.getDictionaryValues();
+    Object[] dictionaryValues = dictionary.toArray();
+    int[] codes = new int[dictionaryValues.length];
+
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = i;
+    }
+
+    SortKey dictionaryKey = new ComparableKey(dictionaryValues, SortSpec.asc(0).withNullsFirst());
+    RowSorter.sort(codes, new SortKey[] {dictionaryKey});
+
+    long[] codeRanks = new long[codes.length + 1];
+    BitSet nullCodes = new BitSet();
+    nullCodes.set(0);
+    long rank = 0;
+
+    for (int i = 0; i < codes.length; i++) {
+      if (i > 0 && dictionaryKey.compare(codes[i - 1], codes[i]) != 0) {
+        rank++;
+      }
+
+      int code = codes[i] + 1;
+      codeRanks[code] = rank;
+
+      if (!(dictionaryValues[codes[i]] instanceof Comparable<?>)) {
+        nullCodes.set(code);
+      }
+    }
+
+    long[] ranks = new long[height];
+    BitSet nulls = new BitSet();
+
+    for (int row = 0; row < height; row++) {
+      int code = column.getCode(row);
+      ranks[row] = codeRanks[code];
+
+      if (nullCodes.get(code)) {
+        nulls.set(row);
+      }
+    }
+
+    return new LongKey(ranks, nulls, spec);
+  }
+
+  /**
+   * Compares the given values with the same semantics as the sort keys returned by {@link
+   * #of(Object[], SortSpec)}.
+   *
+   * @param value1 the first value.
+   * @param value2 the second value.
+   * @param spec the {@link SortSpec}.
+   * @return a negative value, zero or a positive value if the first value is sorted before, equal
+   *     to or after the second value.
+   */
+  @SuppressWarnings("unchecked")
+  static int compare(Object value1, Object value2, SortSpec spec) {
+    boolean null1 = !(value1 instanceof Comparable<?>);
+    boolean null2 = !(value2 instanceof Comparable<?>);
+
+    if (null1 || null2) {
+      if (null1 && null2) {
+        return 0;
+      }
+
+      return null1 == spec.isNullsFirst() ? -1 : 1;
+    }
+
+    if (spec.isDescending()) {
+      Object value = value1;
+      value1 = value2;
+      value2 = value;
+    }
+
+    if (isIntegral(value1) && isIntegral(value2)) {
+      return Long.compare(((Number) value1).longValue(), ((Number) value2).longValue());
+    } else if (isFloatingPoint(value1) && isFloatingPoint(value2)) {
+      return Double.compare(((Number) value1).doubleValue(), ((Number) value2).doubleValue());
+    }
+
+    return ((Comparable<Object>) value1).compareTo(value2);
+  }
+
+  /**
+   * Compares the given rows.
+   *
+   * @param row1 the first row index.
+   * @param row2 the second row index.
+   * @return a negative value, zero or a positive value if the first row is sorted before, equal to
+   *     or after the second row.
+   */
+  final int compare(int row1, int row2) {
+    boolean null1 = isNull(row1);
+    boolean null2 = isNull(row2);
+
+    if (null1 || null2) {
+      if (null1 && null2) {
+        return 0;
+      }
+
+      return null1 == nullsFirst ? -1 : 1;
+    }
+
+    return descending ? compareValues(row2, row1) : compareValues(row1, row2);
+  }
+
+  /**
+   * Indicates whether the value of the given row is sorted as null.
+   *
+   * @param row the row index.
+   * @return true if the value is sorted as null.
+   */
+  protected abstract boolean isNull(int row);
+
+  /**
+   * Compares the non-null values of the given rows in ascending order.
+   *
+   * @param row1 the first row index.
+   * @param row2 the second row index.
+   * @return the comparison result.
+   */
+  protected abstract int compareValues(int row1, int row2);
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer
+        || value instanceof Long
+        || value instanceof Short
+        || value instanceof Byte;
+  }
+
+  private static boolean isFloatingPoint(Object value) {
+    return value instanceof Double || value instanceof Float;
+  }
+
+  // -------------------------------------------------------------------------
+  // Implementations
+  // -------------------------------------------------------------------------
+
+  private static class LongKey extends SortKey {
+    private final long[] values;
+
+    private final BitSet nulls;
+
+    LongKey(long[] values, BitSet nulls, SortSpec spec) {
+      super(spec);
+      this.values = values;
+      this.nulls = nulls;
+    }
+
+    @Override
+    protected boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    @Override
+    protected int compareValues(int row1, int row2) {
+      return Long.compare(values[row1], values[row2]);
+    }
+  }
+
+  private static class DoubleKey extends SortKey {
+    private final double[] values;
+
+    private final BitSet nulls;
+
+    DoubleKey(double[] values, BitSet nulls, SortSpec spec) {
+      super(spec);
+      this.values = values;
+      this.nulls = nulls;
+    }
+
+    @Override
+    protected boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    @Override
+    protected int compareValues(int row1, int row2) {
+      return Double.compare(values[row1], values[row2]);
+    }
+  }
+
+  private static class ComparableKey extends SortKey {
+    private final Object[] values;
+
+    ComparableKey(Object[] values, SortSpec spec) {
+      super(spec);
+      this.values = values;
+    }
+
+    @Override
+    protected boolean isNull(int row) {
+      return !(values[row] instanceof Comparable<?>);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected int compareValues(int row1, int row2) {
+      return ((Comparable<Object>) values[row1]).compareTo(values[row2]);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+/**
+ * Specification of a sort key for {@link Grid#sortGrid(SortSpec...)}. By default, null values and
+ * values which are not comparable are placed first in ascending order and last in descending order,
+ * as with {@link Grid#sortGrid(int, int)}.
+ */
+public class SortSpec {
+  /** Index of the column to sort on, starting on 0. */
+  private final int columnIndex;
+
+  /** Whether to sort in descending order. */
+  private final boolean descending;
+
+  /** Whether to place null values first, or null to use the default placement. */
+  private final Boolean nullsFirst;
+
+  /**
+   * Constructor.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param descending whether to sort in descending order.
+   * @param nullsFirst whether to place null values first, or null to use the default placement.
+   */
+  private SortSpec(int columnIndex, boolean descending, Boolean nullsFirst) {
+    this.columnIndex = columnIndex;
+    this.descending = descending;
+    this.nullsFirst = nullsFirst;
+  }
+
+  /**
+   * Returns a specification for sorting on the given column in ascending order.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link SortSpec}.
+   */
+  public static SortSpec asc(int columnIndex) {
+    return new SortSpec(columnIndex, false, null);
+  }
+
+  /**
+   * Returns a specification for sorting on the given column in descending order.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link SortSpec}.
+   */
+  public static SortSpec desc(int columnIndex) {
+    return new SortSpec(columnIndex, true, null);
+  }
+
+  public int getColumnIndex() {
+    return columnIndex;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  /**
+   * Indicates whether null values are placed before other values.
+   *
+   * @return true if null values are placed first.
+   */
+  public boolean isNullsFirst() {
+    return nullsFirst != null ? nullsFirst : !descending;
+  }
+
+  /**
+   * Returns a copy of this specification which places null values first.
+   *
+   * @return a new {@link SortSpec}.
+   */
+  public SortSpec withNullsFirst() {
+    return new SortSpec(columnIndex, descending, true);
+  }
+
+  /**
+   * Returns a copy of this specification which places null values last.
+   *
+   * @return a new {@link SortSpec}.
+   */
+  public SortSpec withNullsLast() {
+    return new SortSpec(columnIndex, descending, false);
+  }
+
+  @Override
+  public String toString() {
+    return "[Column: "
+        + columnIndex
+        + ", descending: "
+        + descending
+        + ", nulls first: "
+        + isNullsFirst()
+        + "]";
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Sorted index of the rows of a grid on the values of one column, created with {@link
+ * Grid#createSortedIndex(String)}. In addition to lookups of single values, the index returns the
+ * rows with values within a range, in sort order. Values are compared as by {@link
+ * Grid#sortGrid(SortSpec...)}, and range bounds should be of the same type as the column values.
+ * Rows with null values or values which are not comparable are not included in ranges. The index is
+ * kept up to date with the grid as described for {@link GridIndex}.
+ */
+public class SortedGridIndex extends GridIndex {
+  /** The order of the indexed values. */
+  private static final SortSpec ORDER = SortSpec.asc(0);
+
+  /** The row indexes by comparable value, in sort order. */
+  private final NavigableMap<Object, Rows> map;
+
+  /**
+   * Constructor.
+   *
+   * @param grid the {@link Grid} to index.
+   * @param column the column to index.
+   * @throws IllegalArgumentException if the grid does not contain the column.
+   */
+  SortedGridIndex(Grid grid, String column) {
+    this(grid, column, new TreeMap<>((value1, value2) -> SortKey.compare(value1, value2, ORDER)));
+  }
+
+  private SortedGridIndex(Grid grid, String column, NavigableMap<Object, Rows> map) {
+    super(grid, new String[] {column}, map, Comparable.class::isInstance, ArrayRows::new);
+    this.map = map;
+  }
+
+  /**
+   * Returns the indexes of the rows with values within the given inclusive range, in ascending
+   * order of value, and in ascending order of row index for equal values. Rows with null values or
+   * values which are not comparable are not included.
+   *
+   * @param min the minimum value, or null for no minimum.
+   * @param max the maximum value, or null for no maximum.
+   * @return the row indexes.
+   * @throws IllegalArgumentException if the minimum is greater than the maximum.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public int[] getRowIndexesInRange(Object min, Object max) {
+    update();
+
+    NavigableMap<Object, Rows> range = map;
+
+    if (min != null && max != null) {
+      range = map.subMap(min, true, max, true);
+    } else if (min != null) {
+      range = map.tailMap(min, true);
+    } else if (max != null) {
+      range = map.headMap(max, true);
+    }
+
+    int size = 0;
+
+    for (Rows rows : range.values()) {
+      size += rows.size();
+    }
+
+    int[] result = new int[size];
+    int offset = 0;
+
+    for (Rows rows : range.values()) {
+      rows.copyTo(result, offset);
+      offset += rows.size();
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns a read-only view of the rows with values within the given inclusive range, in sort
+   * order.
+   *
+   * @param min the minimum value, or null for no minimum.
+   * @param max the maximum value, or null for no maximum.
+   * @return a list of rows.
+   * @throws IllegalArgumentException if the minimum is greater than the maximum.
+   * @throws IllegalStateException if the indexed column has been removed from the grid.
+   */
+  public List<List<Object>> getRowsInRange(Object min, Object max) {
+    return new ProjectedList<>(getGrid().getRows(), getRowIndexesInRange(min, max));
+  }
+}
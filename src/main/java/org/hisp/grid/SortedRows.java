@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import org.hisp.grid.storage.SpillingRowList;
+import org.hisp.grid.storage.ValueCodec;
+import org.hisp.grid.util.BufferUtils;
+
+/**
+ * Rows of a grid sorted with an external merge sort. Rows are collected into runs within a memory
+ * budget. Each run is sorted in memory and written to a temporary file in the binary row encoding
+ * of {@link ValueCodec}, and the runs are merged while iterating. When all rows fit within the
+ * memory budget, rows are sorted in memory only. The sort is stable. Instances must be closed to
+ * delete the temporary file. Values in columns which are not sorted on are written as their string
+ * representation when not supported by {@link ValueCodec}, while values in sort columns must be
+ * supported for the sort order to survive the merge.
+ */
+public class SortedRows implements Iterable<List<Object>>, AutoCloseable {
+  /** Maximum estimated size of a run, which keeps each run within the size of a mapped buffer. */
+  private static final long MAX_RUN_BYTES = 1L << 29;
+
+  private final SortSpec[] specs;
+
+  /** Sorted rows when no runs were written to disk. */
+  private List<List<Object>> rows = Collections.emptyList();
+
+  /** Sorted runs written to disk. */
+  private final List<Run> runs = new ArrayList<>();
+
+  private final Path directory;
+
+  private Path file;
+
+  private FileChannel channel;
+
+  /** Whether the rows have been closed, after which runs can no longer be read. */
+  private volatile boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param specs the {@link SortSpec} instances.
+   * @param directory the directory for the temporary file, null for the default temporary
+   *     directory.
+   */
+  private SortedRows(SortSpec[] specs, Path directory) {
+    this.specs = specs;
+    this.directory = directory;
+  }
+
+  /**
+   * Sorts the rows of the given grid.
+   *
+   * @param grid the {@link Grid}.
+   * @param memoryBudget the memory budget in bytes for rows sorted on the heap.
+   * @param directory the directory for the temporary file, null for the default temporary
+   *     directory.
+   * @param specs the {@link SortSpec} instances.
+   * @return the {@link SortedRows}.
+   * @throws IllegalArgumentException if the memory budget is not positive, a column index is out of
+   *     bounds, or runs are written to disk and a sort column contains values which are not
+   *     supported by {@link ValueCodec}.
+   */
+  public static SortedRows sort(Grid grid, long memoryBudget, Path directory, SortSpec... specs) {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Illegal memory budget: " + memoryBudget);
+    }
+
+    int width = grid.getHeight() > 0 ? grid.getWidth() : 0;
+
+    for (SortSpec spec : specs) {
+      if (grid.getHeight() > 0 && (spec.getColumnIndex() < 0 || spec.getColumnIndex() >= width)) {
+        throw new IllegalArgumentException("Column index out of bounds: " + spec.getColumnIndex());
+      }
+    }
+
+    SortedRows sortedRows = new SortedRows(specs, directory);
+
+    try {
+      sortedRows.sort(grid.getRows(), Math.min(memoryBudget, MAX_RUN_BYTES));
+    } catch (RuntimeException ex) {
+      sortedRows.close();
+      throw ex;
+    }
+
+    return sortedRows;
+  }
+
+  /**
+   * Returns the number of sorted runs which were written to disk.
+   *
+   * @return the number of runs.
+   */
+  public int getRunCount() {
+    return runs.size();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException if the rows have been closed.
+   */
+  @Override
+  public Iterator<List<Object>> iterator() {
+    checkOpen();
+    return runs.isEmpty() ? Collections.unmodifiableList(rows).iterator() : new MergeIterator();
+  }
+
+  /** Deletes the temporary file and releases the mapped memory. */
+  @Override
+  public void close() {
+    closed = true;
+    runs.forEach(run -> BufferUtils.free(run.buffer));
+    runs.clear();
+    rows = Collections.emptyList();
+
+    try {
+      if (channel != null) {
+        channel.close();
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      channel = null;
+      file = null;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Sorted rows have been closed");
+    }
+  }
+
+  /**
+   * Collects the given rows into runs within the given budget and sorts each run.
+   *
+   * @param source the rows to sort.
+   * @param runBudget the memory budget in bytes for a run.
+   */
+  private void sort(Iterable<List<Object>> source, long runBudget) {
+    List<List<Object>> run = new ArrayList<>();
+    long runBytes = 0;
+
+    for (List<Object> row : source) {
+      run.add(row);
+      runBytes += SpillingRowList.estimateSize(row);
+
+      if (runBytes > runBudget) {
+        writeRun(sortRun(run));
+        run.clear();
+        runBytes = 0;
+      }
+    }
+
+    if (runs.isEmpty()) {
+      rows = sortRun(run);
+    } else if (!run.isEmpty()) {
+      writeRun(sortRun(run));
+    }
+  }
+
+  /**
+   * Returns the given rows in sorted order.
+   *
+   * @param run the rows.
+   * @return the sorted rows.
+   */
+  private List<List<Object>> sortRun(List<List<Object>> run) {
+    SortKey[] keys = new SortKey[specs.length];
+
+    for (int i = 0; i < specs.length; i++) {
+      Object[] values = new Object[run.size()];
+
+      for (int row = 0; row < values.length; row++) {
+        values[row] = run.get(row).get(specs[i].getColumnIndex());
+      }
+
+      keys[i] = SortKey.of(values, specs[i]);
+    }
+
+    int[] sortedRows = RowSorter.sort(run.size(), keys);
+    List<List<Object>> sorted = new ArrayList<>(sortedRows.length);
+
+    for (int row : sortedRows) {
+      sorted.add(run.get(row));
+    }
+
+    return sorted;
+  }
+
+  /**
+   * Writes the given sorted rows as a run to the end of the temporary file and maps the run.
+   *
+   * @param run the sorted rows.
+   * @throws IllegalArgumentException if a sort column contains values which are not supported by
+   *     {@link ValueCodec}.
+   */
+  private void writeRun(List<List<Object>> run) {
+    for (List<Object> row : run) {
+      for (SortSpec spec : specs) {
+        Object value = row.get(spec.getColumnIndex());
+
+        if (!ValueCodec.isSupported(value)) {
+          throw new IllegalArgumentException(
+              "Value type not supported for external sort: " + value.getClass());
+        }
+      }
+    }
+
+    try {
+      if (channel == null) {
+        file =
+            directory != null
+                ? Files.createTempFile(directory, "grid-", ".sort")
+                : Files.createTempFile("grid-", ".sort");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+
+      long start = channel.size();
+      channel.position(start);
+
+      DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+      for (List<Object> row : run) {
+        ValueCodec.writeRow(row, out);
+      }
+
+      out.flush();
+
+      long size = channel.size() - start;
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+
+      runs.add(new Run(run.size(), mapped));
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+  }
+
+  /**
+   * Compares the given rows on the sort specifications.
+   *
+   * @param row1 the first row.
+   * @param row2 the second row.
+   * @return the comparison result.
+   */
+  private int compare(List<Object> row1, List<Object> row2) {
+    for (SortSpec spec : specs) {
+      int columnIndex = spec.getColumnIndex();
+      int result = SortKey.compare(row1.get(columnIndex), row2.get(columnIndex), spec);
+
+      if (result != 0) {
+        return result;
+      }
+    }
+
+    return 0;
+  }
+
+  /** Sorted run of rows in the temporary file. */
+  private static class Run {
+    private final int size;
+
+    private final MappedByteBuffer buffer;
+
+    Run(int size, MappedByteBuffer buffer) {
+      this.size = size;
+      this.buffer = buffer;
+    }
+  }
+
+  /** Position in a run during merging. */
+  private static class RunCursor {
+    private final int runIndex;
+
+    private final ByteBuffer buffer;
+
+    private int remaining;
+
+    private List<Object> row;
+
+    RunCursor(int runIndex, Run run) {
+      this.runIndex = runIndex;
+      this.buffer = run.buffer.duplicate();
+      this.remaining = run.size;
+    }
+
+    /**
+     * Reads the next row of the run.
+     *
+     * @return true if a row was read, false if the run is exhausted.
+     */
+    boolean advance() {
+      if (remaining == 0) {
+        return false;
+      }
+
+      row = ValueCodec.readRow(buffer);
+      remaining--;
+      return true;
+    }
+  }
+
+  /**
+   * Iterator which merges the sorted runs, preferring earlier runs on ties. The iterator throws an
+   * {@link IllegalStateException} once the rows are closed, as the runs are then unmapped.
+   */
+  private class MergeIterator implements Iterator<List<Object>> {
+    private final PriorityQueue<RunCursor> queue;
+
+    MergeIterator() {
+      queue =
+          new PriorityQueue<>(
+              Math.max(runs.size(), 1),
+              (cursor1, cursor2) -> {
+                int result = compare(cursor1.row, cursor2.row);
+                return result != 0 ? result : Integer.compare(cursor1.runIndex, cursor2.runIndex);
+              });
+
+      for (int i = 0; i < runs.size(); i++) {
+        RunCursor cursor = new RunCursor(i, runs.get(i));
+
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      checkOpen();
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public List<Object> next() {
+      checkOpen();
+      RunCursor cursor = queue.poll();
+
+      if (cursor == null) {
+        throw new NoSuchElementException();
+      }
+
+      List<Object> row = cursor.row;
+
+      if (cursor.advance()) {
+        queue.add(cursor);
+      }
+
+      return row;
+    }
+  }
+}
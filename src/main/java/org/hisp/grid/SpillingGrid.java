@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.util.HashMap;
+import org.hisp.grid.storage.SpillingRowList;
+
+/**
+ * {@link ListGrid} which keeps rows on the heap up to a memory budget, and then spills rows in
+ * blocks to memory-mapped temporary files. Spilled rows are read transparently through {@link
+ * #getRow(int)} and {@link #getRows()}, and hence by the CSV and HTML writers.
+ *
+ * <p>Spilled rows are read-only, so operations which modify existing rows, such as adding or
+ * removing columns and sorting, throw an {@link UnsupportedOperationException} once rows have been
+ * spilled. The temporary files are deleted when the grid is closed:
+ *
+ * <pre>{@code
+ * try (SpillingGrid grid = GridUtils.fromResultSet(rs, 256 * 1024 * 1024)) {
+ *   GridUtils.toCsv(grid, writer);
+ * }
+ * }</pre>
+ */
+public class SpillingGrid extends ListGrid implements AutoCloseable {
+  /** The rows of the grid. */
+  private final SpillingRowList rows;
+
+  /**
+   * Constructor. Spills to the default temporary directory.
+   *
+   * @param memoryBudget the memory budget in bytes for rows on the heap.
+   */
+  public SpillingGrid(long memoryBudget) {
+    this(memoryBudget, null);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param memoryBudget the memory budget in bytes for rows on the heap.
+   * @param directory the directory for temporary files, null for the default temporary directory.
+   */
+  public SpillingGrid(long memoryBudget, Path directory) {
+    this(new SpillingRowList(memoryBudget, directory));
+  }
+
+  private SpillingGrid(SpillingRowList rows) {
+    super(new HashMap<>(), rows);
+    this.rows = rows;
+  }
+
+  /**
+   * Indicates whether any rows have been spilled to disk.
+   *
+   * @return true if any rows have been spilled.
+   */
+  @JsonIgnore
+  public boolean isSpilled() {
+    return rows.getSpilledRows() > 0;
+  }
+
+  /** Deletes the temporary files and removes all rows. */
+  @Override
+  public void close() {
+    rows.close();
+  }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.stream.IntStream;
+import org.hisp.grid.column.Column;
+import org.hisp.grid.column.DictionaryColumn;
+import org.hisp.grid.column.NumericColumn;
+
+/**
+ * Collects the unique values of grid columns in place, without copying the columns. Large grids are
+ * split into chunks of rows which are collected in parallel into separate sets, which are then
+ * merged. Numeric columns are collected in primitive hash sets, and only the unique values are
+ * boxed.
+ */
+class UniqueValues {
+  /** Number of rows above which values are collected in parallel, and size of each chunk. */
+  private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+  private UniqueValues() {}
+
+  /**
+   * Returns the unique values of the given columns of the given rows, in a single pass over the
+   * rows. Rows are collected in parallel if the list supports fast random access.
+   *
+   * @param rows the rows.
+   * @param columnIndexes the column indexes.
+   * @return a set of unique values for each column, including null if any row is null.
+   */
+  static List<Set<Object>> of(List<List<Object>> rows, int[] columnIndexes) {
+    int height = rows.size();
+
+    if (height <= PARALLEL_THRESHOLD || !(rows instanceof RandomAccess)) {
+      return collect(rows, columnIndexes);
+    }
+
+    return IntStream.range(0, chunks(height))
+        .parallel()
+        .mapToObj(c -> collect(rows.subList(c * PARALLEL_THRESHOLD, end(c, height)), columnIndexes))
+        .reduce(UniqueValues::merge)
+        .orElseThrow();
+  }
+
+  /**
+   * Returns the unique values of the given column.
+   *
+   * @param column the {@link Column}.
+   * @param height the number of rows to include.
+   * @return a set of unique values, including null if any row is null.
+   */
+  static Set<Object> of(Column column, int height) {
+    if (column instanceof DictionaryColumn dictionaryColumn) {
+      return dictionaryColumn.getUniqueValues(height);
+    }
+
+    IntStream chunks = IntStream.range(0, chunks(height));
+
+    if (height > PARALLEL_THRESHOLD) {
+      chunks = chunks.parallel();
+    }
+
+    if (column instanceof NumericColumn numericColumn) {
+      int[][] distinctRows =
+          chunks
+              .mapToObj(c -> distinctRows(numericColumn, c * PARALLEL_THRESHOLD, end(c, height)))
+              .toArray(int[][]::new);
+
+      return mergeDistinctRows(column, numericColumn, distinctRows);
+    }
+
+    return chunks
+        .mapToObj(
+            c -> {
+              Set<Object> values = new HashSet<>();
+
+              for (int row = c * PARALLEL_THRESHOLD; row < end(c, height); row++) {
+                values.add(column.get(row));
+              }
+
+              return values;
+            })
+        .reduce(UniqueValues::merge)
+        .orElseGet(HashSet::new);
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private static int chunks(int height) {
+    return (height + PARALLEL_THRESHOLD - 1) / PARALLEL_THRESHOLD;
+  }
+
+  private static int end(int chunk, int height) {
+    return Math.min(height, (chunk + 1) * PARALLEL_THRESHOLD);
+  }
+
+  private static List<Set<Object>> collect(List<List<Object>> rows, int[] columnIndexes) {
+    List<Set<Object>> values = new ArrayList<>(columnIndexes.length);
+
+    for (int i = 0; i < columnIndexes.length; i++) {
+      values.add(new HashSet<>());
+    }
+
+    for (List<Object> row : rows) {
+      for (int i = 0; i < columnIndexes.length; i++) {
+        values.get(i).add(row.get(columnIndexes[i]));
+      }
+    }
+
+    return values;
+  }
+
+  private static List<Set<Object>> merge(List<Set<Object>> values1, List<Set<Object>> values2) {
+    for (int i = 0; i < values1.size(); i++) {
+      values1.set(i, merge(values1.get(i), values2.get(i)));
+    }
+
+    return values1;
+  }
+
+  /** Merges the smaller set into the larger set and returns the larger set. */
+  private static Set<Object> merge(Set<Object> values1, Set<Object> values2) {
+    if (values1.size() < values2.size()) {
+      values2.addAll(values1);
+      return values2;
+    }
+
+    values1.addAll(values2);
+    return values1;
+  }
+
+  /**
+   * Returns the first row of each distinct value within the given range of rows, including the
+   * first null row.
+   */
+  private static int[] distinctRows(NumericColumn column, int from, int to) {
+    LongIntMap seen = new LongIntMap(16);
+    int[] rows = new int[16];
+    int size = 0;
+    boolean seenNull = false;
+
+    for (int row = from; row < to; row++) {
+      boolean distinct;
+
+      if (column.isNull(row)) {
+        distinct = !seenNull;
+        seenNull = true;
+      } else {
+        distinct = seen.getOrPut(key(column, row), row) == row;
+      }
+
+      if (distinct) {
+        if (size == rows.length) {
+          rows = Arrays.copyOf(rows, size * 2);
+        }
+
+        rows[size++] = row;
+      }
+    }
+
+    return Arrays.copyOf(rows, size);
+  }
+
+  /** Merges the distinct rows of each chunk and boxes the value of each distinct row once. */
+  private static Set<Object> mergeDistinctRows(
+      Column column, NumericColumn numericColumn, int[][] distinctRows) {
+    int count = Arrays.stream(distinctRows).mapToInt(rows -> rows.length).max().orElse(0);
+    LongIntMap seen = new LongIntMap(count);
+    Set<Object> values = new HashSet<>((int) (count / 0.75f) + 1);
+
+    for (int[] rows : distinctRows) {
+      for (int row : rows) {
+        if (numericColumn.isNull(row)) {
+          values.add(null);
+        } else if (seen.getOrPut(key(numericColumn, row), row) == row) {
+          values.add(column.get(row));
+        }
+      }
+    }
+
+    return values;
+  }
+
+  /** Returns the value of the given row as a long key, using the bits of floating point values. */
+  private static long key(NumericColumn column, int row) {
+    return column.isIntegral()
+        ? column.getLong(row)
+        : Double.doubleToLongBits(column.getDouble(row));
+  }
+}
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Specification of a window function for {@link Grid#addWindowColumns(WindowFunction...)}. Each
+ * function reads a numeric column as primitive values, in the current row order, and produces a new
+ * column. Values which are not numbers are parsed from their string representation. Null values are
+ * treated as zero by cumulative sums, and are otherwise skipped or produce null.
+ */
+public class WindowFunction {
+  /** Window function type. */
+  enum Type {
+    CUMULATIVE_SUM("_cumulative"),
+    MOVING_AVERAGE("_moving_average"),
+    RANK("_rank"),
+    PERCENT_OF_TOTAL("_percent_of_total"),
+    DELTA("_delta");
+
+    private final String suffix;
+
+    Type(String suffix) {
+      this.suffix = suffix;
+    }
+  }
+
+  /** The function type. */
+  private final Type type;
+
+  /** Index of the source column, starting on 0. */
+  private final int columnIndex;
+
+  /** The number of rows in a moving window. */
+  private final int rows;
+
+  /** The order of ranking, null for functions other than rank. */
+  private final SortSpec spec;
+
+  /**
+   * Constructor.
+   *
+   * @param type the function type.
+   * @param columnIndex the source column index, starting on 0.
+   * @param rows the number of rows in a moving window.
+   * @param spec the order of ranking.
+   */
+  private WindowFunction(Type type, int columnIndex, int rows, SortSpec spec) {
+    this.type = type;
+    this.columnIndex = columnIndex;
+    this.rows = rows;
+    this.spec = spec;
+  }
+
+  /**
+   * Returns a function for the running sum of the given column, where null values count as zero.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link WindowFunction}.
+   */
+  public static WindowFunction cumulativeSum(int columnIndex) {
+    return new WindowFunction(Type.CUMULATIVE_SUM, columnIndex, 0, null);
+  }
+
+  /**
+   * Returns a function for the average of the non-null values of the given column in the current
+   * row and the preceding rows of the window. The value is null if the window has no values.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @param rows the number of rows in the window, including the current row.
+   * @return a {@link WindowFunction}.
+   * @throws IllegalArgumentException if the number of rows is not positive.
+   */
+  public static WindowFunction movingAverage(int columnIndex, int rows) {
+    if (rows <= 0) {
+      throw new IllegalArgumentException("Illegal number of window rows: " + rows);
+    }
+
+    return new WindowFunction(Type.MOVING_AVERAGE, columnIndex, rows, null);
+  }
+
+  /**
+   * Returns a function for the rank of the values of a column in the order of the given sort
+   * specification. Equal values have the same rank, and the rank after a tie skips the tied
+   * positions. Null values have a null rank.
+   *
+   * @param spec the {@link SortSpec} of the column to rank.
+   * @return a {@link WindowFunction}.
+   */
+  public static WindowFunction rank(SortSpec spec) {
+    return new WindowFunction(Type.RANK, spec.getColumnIndex(), 0, spec);
+  }
+
+  /**
+   * Returns a function for the percentage of each value of the given column of the total of the
+   * column. The value is null if the value is null or the total is zero.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link WindowFunction}.
+   */
+  public static WindowFunction percentOfTotal(int columnIndex) {
+    return new WindowFunction(Type.PERCENT_OF_TOTAL, columnIndex, 0, null);
+  }
+
+  /**
+   * Returns a function for the difference between the value of the given column and the value of
+   * the previous row. The value is null for the first row and if either value is null.
+   *
+   * @param columnIndex the column index, starting on 0.
+   * @return a {@link WindowFunction}.
+   */
+  public static WindowFunction delta(int columnIndex) {
+    return new WindowFunction(Type.DELTA, columnIndex, 0, null);
+  }
+
+  public int getColumnIndex() {
+    return columnIndex;
+  }
+
+  /**
+   * Returns the header of the column produced by this function, based on the header of the source
+   * column.
+   *
+   * @param header the {@link GridHeader} of the source column.
+   * @return a {@link GridHeader}.
+   */
+  GridHeader getHeader(GridHeader header) {
+    ValueType valueType =
+        switch (type) {
+          case CUMULATIVE_SUM -> header.getValueType();
+          case RANK -> ValueType.INTEGER;
+          default -> ValueType.DOUBLE;
+        };
+
+    return new GridHeader(
+        header.getName() + type.suffix,
+        header.getColumn() + type.suffix,
+        valueType,
+        header.isHidden(),
+        header.isMeta());
+  }
+
+  /**
+   * Computes the values of this function.
+   *
+   * @param values the values of the source column, indexed by row.
+   * @param nulls the rows of the source column which are null.
+   * @return the computed {@link Values}.
+   */
+  Values apply(double[] values, BitSet nulls) {
+    return switch (type) {
+      case CUMULATIVE_SUM -> cumulativeSum(values, nulls);
+      case MOVING_AVERAGE -> movingAverage(values, nulls);
+      case RANK -> rank(values, nulls);
+      case PERCENT_OF_TOTAL -> percentOfTotal(values, nulls);
+      case DELTA -> delta(values, nulls);
+    };
+  }
+
+  /**
+   * Converts the given non-null value to a double.
+   *
+   * @param value the value.
+   * @return the double value.
+   * @throws NumberFormatException if the value is not numeric.
+   */
+  static double toDouble(Object value) {
+    return value instanceof Number number
+        ? number.doubleValue()
+        : Double.parseDouble(String.valueOf(value));
+  }
+
+  @Override
+  public String toString() {
+    return "[Type: " + type + ", column: " + columnIndex + "]";
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private static Values cumulativeSum(double[] values, BitSet nulls) {
+    double[] sums = prefixSums(values, nulls);
+
+    return new Values(sums, new BitSet(), false);
+  }
+
+  /**
+   * Returns the moving averages of the given values. Each window is summed from its own values
+   * rather than as the difference of prefix sums, which would lose small values next to large ones
+   * and turn every later window into NaN after an infinite value. Windows are summed in parallel.
+   *
+   * @param values the values.
+   * @param nulls the rows which are null.
+   * @return the moving averages.
+   */
+  private Values movingAverage(double[] values, BitSet nulls) {
+    int[] counts = new int[values.length];
+
+    for (int row = 0; row < counts.length; row++) {
+      counts[row] = nulls.get(row) ? 0 : 1;
+    }
+
+    Arrays.parallelPrefix(counts, Integer::sum);
+
+    double[] averages = new double[values.length];
+    BitSet averageNulls = new BitSet(values.length);
+
+    for (int row = 0; row < values.length; row++) {
+      int start = row - rows;
+
+      if ((start < 0 ? counts[row] : counts[row] - counts[start]) == 0) {
+        averageNulls.set(row);
+      }
+    }
+
+    Arrays.parallelSetAll(
+        averages,
+        row -> {
+          if (averageNulls.get(row)) {
+            return 0d;
+          }
+
+          double sum = 0d;
+          int count = 0;
+
+          for (int i = Math.max(0, row - rows + 1); i <= row; i++) {
+            if (!nulls.get(i)) {
+              sum += values[i];
+              count++;
+            }
+          }
+
+          return sum / count;
+        });
+
+    return new Values(averages, averageNulls, false);
+  }
+
+  private Values rank(double[] values, BitSet nulls) {
+    SortKey[] keys = {SortKey.ofDoubles(values, nulls, spec)};
+    int[] order = RowSorter.sort(values.length, keys);
+    double[] ranks = new double[values.length];
+    int position = 0;
+    int previous = -1;
+
+    for (int row : order) {
+      if (nulls.get(row)) {
+        continue;
+      }
+
+      position++;
+      ranks[row] =
+          previous != -1 && RowSorter.compare(keys, previous, row) == 0
+              ? ranks[previous]
+              : position;
+      previous = row;
+    }
+
+    return new Values(ranks, (BitSet) nulls.clone(), true);
+  }
+
+  private static Values percentOfTotal(double[] values, BitSet nulls) {
+    double total = 0d;
+
+    for (int row = 0; row < values.length; row++) {
+      if (!nulls.get(row)) {
+        total += values[row];
+      }
+    }
+
+    double[] percentages = new double[values.length];
+    BitSet percentageNulls = (BitSet) nulls.clone();
+
+    for (int row = 0; row < values.length; row++) {
+      if (total == 0d) {
+        percentageNulls.set(row);
+      } else if (!nulls.get(row)) {
+        percentages[row] = values[row] / total * 100d;
+      }
+    }
+
+    return new Values(percentages, percentageNulls, false);
+  }
+
+  private static Values delta(double[] values, BitSet nulls) {
+    double[] deltas = new double[values.length];
+    BitSet deltaNulls = new BitSet(values.length);
+
+    for (int row = 0; row < values.length; row++) {
+      if (row == 0 || nulls.get(row) || nulls.get(row - 1)) {
+        deltaNulls.set(row);
+      } else {
+        deltas[row] = values[row] - values[row - 1];
+      }
+    }
+
+    return new Values(deltas, deltaNulls, false);
+  }
+
+  /**
+   * Returns the prefix sums of the given values, where null values count as zero. The sums are
+   * computed in parallel for large arrays.
+   *
+   * @param values the values.
+   * @param nulls the rows which are null.
+   * @return the prefix sums.
+   */
+  private static double[] prefixSums(double[] values, BitSet nulls) {
+    double[] sums = Arrays.copyOf(values, values.length);
+
+    for (int row = nulls.nextSetBit(0); row >= 0; row = nulls.nextSetBit(row + 1)) {
+      sums[row] = 0d;
+    }
+
+    Arrays.parallelPrefix(sums, Double::sum);
+
+    return sums;
+  }
+
+  /** Values computed by a window function. */
+  static class Values {
+    private final double[] values;
+
+    private final BitSet nulls;
+
+    private final boolean integral;
+
+    Values(double[] values, BitSet nulls, boolean integral) {
+      this.values = values;
+      this.nulls = nulls;
+      this.integral = integral;
+    }
+
+    /**
+     * Returns the value of the given row as a boxed object.
+     *
+     * @param row the row index.
+     * @return an {@link Integer} or {@link Double}, or null.
+     */
+    Object get(int row) {
+      if (nulls.get(row)) {
+        return null;
+      }
+
+      if (integral) {
+        return (int) values[row];
+      }
+
+      return values[row];
+    }
+  }
+}
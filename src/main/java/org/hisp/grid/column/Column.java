@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+/**
+ * Storage for the values of a single grid column. Rows are addressed by index starting on zero.
+ * Rows which have never been written, i.e. rows at or beyond {@link #size()}, hold null.
+ */
+public abstract class Column {
+  /** Initial capacity of the value arrays. */
+  protected static final int INITIAL_CAPACITY = 16;
+
+  /** Number of rows held by the column. */
+  protected int size;
+
+  /**
+   * Returns the number of rows held by the column.
+   *
+   * @return the number of rows.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the value at the given row.
+   *
+   * @param row the row index.
+   * @return the value, or null if the row holds no value.
+   */
+  public abstract Object get(int row);
+
+  /**
+   * Sets the value at the given row, growing the column if required.
+   *
+   * @param row the row index.
+   * @param value the value.
+   * @return true if the value was stored, false if the value type is not supported by this column,
+   *     in which case the column is left unchanged.
+   */
+  public abstract boolean set(int row, Object value);
+
+  /**
+   * Indicates whether the value at the given row is null.
+   *
+   * @param row the row index.
+   * @return true if the value at the given row is null.
+   */
+  public boolean isNull(int row) {
+    return get(row) == null;
+  }
+
+  /**
+   * Returns a new column holding the values of the given rows in the given order.
+   *
+   * @param rows the row indexes.
+   * @return a new {@link Column}.
+   */
+  public abstract Column select(int[] rows);
+
+  /**
+   * Truncates the column to the given number of rows.
+   *
+   * @param size the number of rows to keep.
+   */
+  public abstract void truncate(int size);
+
+  /**
+   * Copies the values of this column to the given column.
+   *
+   * @param target the target {@link Column}.
+   * @return true if all values were stored, false if a value type is not supported by the target.
+   */
+  public boolean copyTo(Column target) {
+    for (int i = 0; i < size; i++) {
+      if (!target.set(i, get(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /** Releases resources held by the column. The column must not be used afterwards. */
+  public void release() {}
+
+  /**
+   * Returns a capacity which can hold the given number of rows.
+   *
+   * @param current the current capacity.
+   * @param required the required capacity.
+   * @return the new capacity.
+   */
+  protected static int grow(int current, int required) {
+    int capacity = Math.max(current, INITIAL_CAPACITY);
+
+    while (capacity < required) {
+      capacity = capacity + (capacity >> 1);
+    }
+
+    return capacity;
+  }
+}
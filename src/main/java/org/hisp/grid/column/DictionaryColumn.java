@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Column} holding values as int codes referring to a dictionary of distinct values. Suitable
+ * for columns with low cardinality such as meta data identifiers. Values can be substituted by
+ * rewriting the dictionary without touching the rows.
+ */
+public class DictionaryColumn extends Column {
+  /** Code representing null. Codes of dictionary values start on 1. */
+  private static final int NULL_CODE = 0;
+
+  /** Code for each row. */
+  private int[] codes;
+
+  /** Dictionary values, where the value with code n is at index n - 1. */
+  private final List<Object> values;
+
+  /** Mapping of dictionary values to codes. */
+  private final Map<Object, Integer> index;
+
+  /** Number of rows referring to each code. */
+  private int[] counts;
+
+  /** Constructor. */
+  public DictionaryColumn() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity the initial capacity.
+   */
+  public DictionaryColumn(int capacity) {
+    this.codes = new int[capacity];
+    this.values = new ArrayList<>();
+    this.index = new HashMap<>();
+    this.counts = new int[INITIAL_CAPACITY];
+  }
+
+  @Override
+  public Object get(int row) {
+    int code = row < size ? codes[row] : NULL_CODE;
+    return code != NULL_CODE ? values.get(code - 1) : null;
+  }
+
+  @Override
+  public boolean isNull(int row) {
+    return row >= size || codes[row] == NULL_CODE;
+  }
+
+  @Override
+  public boolean set(int row, Object value) {
+    if (row >= codes.length) {
+      codes = Arrays.copyOf(codes, grow(codes.length, row + 1));
+    }
+
+    int code = value != null ? encode(value) : NULL_CODE;
+
+    if (row < size) {
+      counts[codes[row]]--;
+    } else {
+      counts[NULL_CODE] += row - size;
+      size = row + 1;
+    }
+
+    codes[row] = code;
+    counts[code]++;
+    return true;
+  }
+
+  @Override
+  public Column select(int[] rows) {
+    DictionaryColumn column = new DictionaryColumn(Math.max(rows.length, 1));
+    column.values.addAll(values);
+    column.index.putAll(index);
+    column.counts = new int[counts.length];
+
+    for (int i = 0; i < rows.length; i++) {
+      int code = rows[i] < size ? codes[rows[i]] : NULL_CODE;
+      column.codes[i] = code;
+      column.counts[code]++;
+    }
+
+    column.size = rows.length;
+    return column;
+  }
+
+  @Override
+  public void truncate(int size) {
+    for (int row = size; row < this.size; row++) {
+      counts[codes[row]]--;
+      codes[row] = NULL_CODE;
+    }
+
+    this.size = Math.min(size, this.size);
+  }
+
+  /**
+   * Returns the dictionary code of the value at the given row. Code zero represents null, and code
+   * n refers to the value at index n - 1 of {@link #getDictionaryValues()}.
+   *
+   * @param row the row index.
+   * @return the code.
+   */
+  public int getCode(int row) {
+    return row < size ? codes[row] : NULL_CODE;
+  }
+
+  /**
+   * Returns the values of the dictionary, including values which are no longer referred to by any
+   * row.
+   *
+   * @return an unmodifiable list of dictionary values.
+   */
+  public List<Object> getDictionaryValues() {
+    return Collections.unmodifiableList(values);
+  }
+
+  /**
+   * Returns the number of distinct values in the dictionary, including values which are no longer
+   * referred to by any row.
+   *
+   * @return the dictionary size.
+   */
+  public int getDictionarySize() {
+    return values.size();
+  }
+
+  /**
+   * Substitutes dictionary values based on the given mapping. Values are left unchanged when there
+   * is no match in the given map.
+   *
+   * @param substitutions map of values and substitutions.
+   */
+  public void substitute(Map<?, ?> substitutions) {
+    for (int i = 0; i < values.size(); i++) {
+      Object value = values.get(i);
+      Object substitute = substitutions.get(value);
+
+      if (substitute != null) {
+        values.set(i, substitute);
+        index.remove(value, i + 1);
+        index.putIfAbsent(substitute, i + 1);
+      }
+    }
+  }
+
+  /**
+   * Returns the distinct values of the first rows of this column, based on the dictionary.
+   *
+   * @param height the number of rows to include.
+   * @return a set of unique values, including null if any row is null.
+   */
+  public Set<Object> getUniqueValues(int height) {
+    Set<Object> uniqueValues = new HashSet<>();
+
+    for (int i = 0; i < values.size(); i++) {
+      if (counts[i + 1] > 0) {
+        uniqueValues.add(values.get(i));
+      }
+    }
+
+    if (counts[NULL_CODE] > 0 || height > size) {
+      uniqueValues.add(null);
+    }
+
+    return uniqueValues;
+  }
+
+  /**
+   * Returns the code of the given value, adding it to the dictionary if not present.
+   *
+   * @param value the value, not null.
+   * @return the code.
+   */
+  private int encode(Object value) {
+    Integer code = index.get(value);
+
+    if (code == null) {
+      values.add(value);
+      code = values.size();
+      index.put(value, code);
+
+      if (code >= counts.length) {
+        counts = Arrays.copyOf(counts, grow(counts.length, code + 1));
+      }
+    }
+
+    return code;
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** {@link Column} holding {@link Integer} values in a primitive array. */
+public class IntColumn extends Column implements NumericColumn {
+  private int[] values;
+
+  /** Rows which hold a value. */
+  private final BitSet present;
+
+  /** Constructor. */
+  public IntColumn() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param capacity the initial capacity.
+   */
+  public IntColumn(int capacity) {
+    this.values = new int[capacity];
+    this.present = new BitSet(capacity);
+  }
+
+  /**
+   * Returns the primitive value at the given row. Returns zero for null values.
+   *
+   * @param row the row index.
+   * @return the value.
+   */
+  public int getInt(int row) {
+    return row < size ? values[row] : 0;
+  }
+
+  @Override
+  public boolean isIntegral() {
+    return true;
+  }
+
+  @Override
+  public long getLong(int row) {
+    return getInt(row);
+  }
+
+  @Override
+  public double getDouble(int row) {
+    return getInt(row);
+  }
+
+  @Override
+  public Object get(int row) {
+    return present.get(row) ? values[row] : null;
+  }
+
+  @Override
+  public boolean isNull(int row) {
+    return !present.get(row);
+  }
+
+  @Override
+  public boolean set(int row, Object value) {
+    if (value != null && value.getClass() != Integer.class) {
+      return false;
+    }
+
+    if (row >= values.length) {
+      values = Arrays.copyOf(values, grow(values.length, row + 1));
+    }
+
+    if (value != null) {
+      values[row] = (Integer) value;
+      present.set(row);
+    } else {
+      values[row] = 0;
+      present.clear(row);
+    }
+
+    size = Math.max(size, row + 1);
+    return true;
+  }
+
+  @Override
+  public Column select(int[] rows) {
+    IntColumn column = new IntColumn(Math.max(rows.length, 1));
+
+    for (int i = 0; i < rows.length; i++) {
+      if (present.get(rows[i])) {
+        column.values[i] = values[rows[i]];
+        column.present.set(i);
+      }
+    }
+
+    column.size = rows.length;
+    return column;
+  }
+
+  @Override
+  public void truncate(int size) {
+    if (size < this.size) {
+      present.clear(size, this.size);
+      this.size = size;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+/**
+ * {@link Column} holding numeric values in primitive form, which allows values to be read without
+ * boxing.
+ */
+public interface NumericColumn {
+  /**
+   * Indicates whether the column holds integral values, which are read exactly through {@link
+   * #getLong(int)}. Otherwise values should be read through {@link #getDouble(int)}.
+   *
+   * @return true if the column holds integral values.
+   */
+  boolean isIntegral();
+
+  /**
+   * Returns the value at the given row as a long. Returns zero for null values.
+   *
+   * @param row the row index.
+   * @return the value.
+   */
+  long getLong(int row);
+
+  /**
+   * Returns the value at the given row as a double. Returns zero for null values.
+   *
+   * @param row the row index.
+   * @return the value.
+   */
+  double getDouble(int row);
+
+  /**
+   * Indicates whether the value at the given row is null.
+   *
+   * @param row the row index.
+   * @return true if the value is null.
+   */
+  boolean isNull(int row);
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+/** {@link Column} holding {@link Boolean} values off-heap. */
+public class OffHeapBooleanColumn extends OffHeapFixedColumn {
+  /** Constructor. */
+  public OffHeapBooleanColumn() {
+    super(1);
+  }
+
+  /**
+   * Returns the primitive value at the given row. Returns false for null values.
+   *
+   * @param row the row index.
+   * @return the value.
+   */
+  public boolean getBoolean(int row) {
+    return present.get(row) && memory.getByte(position(row)) != 0;
+  }
+
+  @Override
+  protected boolean accepts(Object value) {
+    return value.getClass() == Boolean.class;
+  }
+
+  @Override
+  protected Object read(long pos) {
+    return memory.getByte(pos) != 0;
+  }
+
+  @Override
+  protected void write(long pos, Object value) {
+    memory.putByte(pos, (byte) ((Boolean) value ? 1 : 0));
+  }
+
+  @Override
+  protected OffHeapFixedColumn newColumn() {
+    return new OffHeapBooleanColumn();
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+/** {@link Column} holding {@link Double} values off-heap. */
+public class OffHeapDoubleColumn extends OffHeapFixedColumn implements NumericColumn {
+  /** Constructor. */
+  public OffHeapDoubleColumn() {
+    super(8);
+  }
+
+  /**
+   * Returns the primitive value at the given row. Returns zero for null values.
+   *
+   * @param row the row index.
+   * @return the value.
+   */
+  public double getDouble(int row) {
+    return present.get(row) ? memory.getDouble(position(row)) : 0d;
+  }
+
+  @Override
+  public boolean isIntegral() {
+    return false;
+  }
+
+  @Override
+  public long getLong(int row) {
+    return (long) getDouble(row);
+  }
+
+  @Override
+  protected boolean accepts(Object value) {
+    return value.getClass() == Double.class;
+  }
+
+  @Override
+  protected Object read(long pos) {
+    return memory.getDouble(pos);
+  }
+
+  @Override
+  protected void write(long pos, Object value) {
+    memory.putDouble(pos, (Double) value);
+  }
+
+  @Override
+  protected OffHeapFixedColumn newColumn() {
+    return new OffHeapDoubleColumn();
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+import java.util.BitSet;
+import org.hisp.grid.storage.OffHeapMemory;
+
+/** Base class for {@link Column} implementations holding fixed width values off-heap. */
+abstract class OffHeapFixedColumn extends Column {
+  /** Memory holding the values. */
+  protected final OffHeapMemory memory = new OffHeapMemory();
+
+  /** Rows which hold a value. */
+  protected final BitSet present = new BitSet();
+
+  /** Width of a value in bytes, must be 1, 4 or 8. */
+  private final int width;
+
+  protected OffHeapFixedColumn(int width) {
+    this.width = width;
+  }
+
+  @Override
+  public Object get(int row) {
+    return present.get(row) ? read(position(row)) : null;
+  }
+
+  @Override
+  public boolean isNull(int row) {
+    return !present.get(row);
+  }
+
+  @Override
+  public boolean set(int row, Object value) {
+    if (value != null && !accepts(value)) {
+      return false;
+    }
+
+    memory.ensureCapacity(position(row + 1));
+
+    if (value != null) {
+      write(position(row), value);
+      present.set(row);
+    } else {
+      present.clear(row);
+    }
+
+    size = Math.max(size, row + 1);
+    return true;
+  }
+
+  @Override
+  public Column select(int[] rows) {
+    OffHeapFixedColumn column = newColumn();
+    column.memory.ensureCapacity(position(rows.length));
+
+    for (int i = 0; i < rows.length; i++) {
+      if (present.get(rows[i])) {
+        copy(position(rows[i]), column.memory, position(i));
+        column.present.set(i);
+      }
+    }
+
+    column.size = rows.length;
+    return column;
+  }
+
+  @Override
+  public void truncate(int size) {
+    if (size < this.size) {
+      present.clear(size, this.size);
+      this.size = size;
+    }
+  }
+
+  @Override
+  public void release() {
+    memory.close();
+  }
+
+  /**
+   * Returns the memory position of the given row.
+   *
+   * @param row the row index.
+   * @return the position.
+   */
+  protected long position(int row) {
+    return (long) row * width;
+  }
+
+  /**
+   * Indicates whether the given non-null value can be held by this column.
+   *
+   * @param value the value.
+   * @return true if the value can be held.
+   */
+  protected abstract boolean accepts(Object value);
+
+  /**
+   * Reads the value at the given memory position.
+   *
+   * @param pos the position.
+   * @return the value.
+   */
+  protected abstract Object read(long pos);
+
+  /**
+   * Writes the given non-null value at the given memory position.
+   *
+   * @param pos the position.
+   * @param value the value.
+   */
+  protected abstract void write(long pos, Object value);
+
+  /**
+   * Creates an empty column of the same type.
+   *
+   * @return a new column.
+   */
+  protected abstract OffHeapFixedColumn newColumn();
+
+  private void copy(long pos, OffHeapMemory target, long targetPos) {
+    switch (width) {
+      case 8 -> target.putLong(targetPos, memory.getLong(pos));
+      case 4 -> target.putInt(targetPos, memory.getInt(pos));
+      default -> target.putByte(targetPos, memory.getByte(pos));
+    }
+  }
+}
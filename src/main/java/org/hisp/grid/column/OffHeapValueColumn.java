@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.column;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import org.hisp.grid.storage.OffHeapMemory;
+import org.hisp.grid.storage.ValueCodec;
+
+/**
+ * {@link Column} holding values of variable width off-heap, encoded with {@link ValueCodec}. Each
+ * row refers to a length-prefixed value in a data area. Values are appended to the data area, so
+ * overwriting a value leaves the previous value unused until the column is compacted by {@link
+ * #select(int[])}.
+ */
+public class OffHeapValueColumn extends Column {
+  /** Memory holding the data area position of each row. */
+  private final OffHeapMemory offsets = new OffHeapMemory();
+
+  /** Memory holding the length-prefixed encoded values. */
+  private final OffHeapMemory data = new OffHeapMemory();
+
+  /** Rows which hold a value. */
+  private final BitSet present = new BitSet();
+
+  /** Number of bytes used in the data area. */
+  private long dataSize;
+
+  /** Buffer for encoding values. */
+  private final EncodingBuffer buffer = new EncodingBuffer();
+
+  /** Output for encoding values. */
+  private final DataOutputStream output = new DataOutputStream(buffer);
+
+  @Override
+  public Object get(int row) {
+    return present.get(row) ? ValueCodec.read(ByteBuffer.wrap(readBytes(row))) : null;
+  }
+
+  @Override
+  public boolean isNull(int row) {
+    return !present.get(row);
+  }
+
+  @Override
+  public boolean set(int row, Object value) {
+    if (!ValueCodec.isSupported(value)) {
+      return false;
+    }
+
+    offsets.ensureCapacity((row + 1L) * Long.BYTES);
+
+    if (value != null) {
+      buffer.reset();
+
+      try {
+        output.writeInt(0);
+        ValueCodec.write(value, output);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+
+      buffer.writeLength();
+      offsets.putLong((long) row * Long.BYTES, append(buffer.bytes(), buffer.size()));
+      present.set(row);
+    } else {
+      present.clear(row);
+    }
+
+    size = Math.max(size, row + 1);
+    return true;
+  }
+
+  @Override
+  public Column select(int[] rows) {
+    OffHeapValueColumn column = new OffHeapValueColumn();
+    column.offsets.ensureCapacity((long) rows.length * Long.BYTES);
+
+    for (int i = 0; i < rows.length; i++) {
+      if (present.get(rows[i])) {
+        byte[] bytes = readBytes(rows[i]);
+        byte[] prefixed = new byte[Integer.BYTES + bytes.length];
+        ByteBuffer.wrap(prefixed).putInt(bytes.length).put(bytes);
+        column.offsets.putLong((long) i * Long.BYTES, column.append(prefixed, prefixed.length));
+        column.present.set(i);
+      }
+    }
+
+    column.size = rows.length;
+    return column;
+  }
+
+  @Override
+  public void truncate(int size) {
+    if (size < this.size) {
+      present.clear(size, this.size);
+      this.size = size;
+    }
+  }
+
+  @Override
+  public void release() {
+    offsets.close();
+    data.close();
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Appends the given bytes to the data area.
+   *
+   * @param bytes the bytes.
+   * @param length the number of bytes.
+   * @return the position of the bytes in the data area.
+   */
+  private long append(byte[] bytes, int length) {
+    long pos = dataSize;
+    data.ensureCapacity(pos + length);
+    data.putBytes(pos, bytes, 0, length);
+    dataSize += length;
+    return pos;
+  }
+
+  /**
+   * Reads the encoded value of the given row without the length prefix.
+   *
+   * @param row the row index.
+   * @return the encoded value.
+   */
+  private byte[] readBytes(int row) {
+    long pos = offsets.getLong((long) row * Long.BYTES);
+
+    int length = 0;
+
+    for (int i = 0; i < Integer.BYTES; i++) {
+      length = (length << 8) | (data.getByte(pos + i) & 0xFF);
+    }
+
+    byte[] bytes = new byte[length];
+    data.getBytes(pos + Integer.BYTES, bytes, 0, length);
+    return bytes;
+  }
+
+  /** Reusable byte buffer which exposes its content and fills in the length prefix. */
+  private static class EncodingBuffer extends ByteArrayOutputStream {
+    byte[] bytes() {
+      return buf;
+    }
+
+    void writeLength() {
+      ByteBuffer.wrap(buf).putInt(count - Integer.BYTES);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.options;
+
+/** JSON writing options. */
+public class JsonWriteOptions {
+  /** Default number of rows to write between flushes. */
+  public static final int DEFAULT_FLUSH_ROWS = 1000;
+
+  /** Whether to include the meta data. */
+  private boolean metaData;
+
+  /** Whether to include hidden columns. */
+  private boolean hiddenColumns;
+
+  /** Whether to pretty print the output. */
+  private boolean prettyPrint;
+
+  /** Number of rows to write between flushes of the output. */
+  private int flushRows;
+
+  /** Constructor. */
+  private JsonWriteOptions() {
+    this.metaData = true;
+    this.hiddenColumns = true;
+    this.prettyPrint = false;
+    this.flushRows = DEFAULT_FLUSH_ROWS;
+  }
+
+  /**
+   * Returns a new instance.
+   *
+   * @return a {@link JsonWriteOptions}.
+   */
+  public static JsonWriteOptions standard() {
+    return new JsonWriteOptions();
+  }
+
+  public boolean isMetaData() {
+    return metaData;
+  }
+
+  public JsonWriteOptions withoutMetaData() {
+    this.metaData = false;
+    return this;
+  }
+
+  public boolean isHiddenColumns() {
+    return hiddenColumns;
+  }
+
+  public JsonWriteOptions withoutHiddenColumns() {
+    this.hiddenColumns = false;
+    return this;
+  }
+
+  public boolean isPrettyPrint() {
+    return prettyPrint;
+  }
+
+  public JsonWriteOptions withPrettyPrint() {
+    this.prettyPrint = true;
+    return this;
+  }
+
+  public int getFlushRows() {
+    return flushRows;
+  }
+
+  /**
+   * Sets the number of rows to write between flushes of the output.
+   *
+   * @param flushRows the number of rows, must be positive.
+   * @return this {@link JsonWriteOptions}.
+   * @throws IllegalArgumentException if the number of rows is not positive.
+   */
+  public JsonWriteOptions withFlushRows(int flushRows) {
+    if (flushRows <= 0) {
+      throw new IllegalArgumentException("Flush rows must be positive: " + flushRows);
+    }
+
+    this.flushRows = flushRows;
+    return this;
+  }
+}
@@ -29,11 +29,21 @@ package org.hisp.grid.serializer;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
 import java.util.List;
 
-/** Serializer for grid rows. */
+/**
+ * Serializer for grid rows. Common value types are written directly to the {@link JsonGenerator},
+ * avoiding a serializer lookup per value. Other types are serialized through the {@link
+ * SerializerProvider}.
+ */
 public class JacksonRowDataSerializer extends JsonSerializer<List<List<Object>>> {
   @Override
   public void serialize(List<List<Object>> values, JsonGenerator jgen, SerializerProvider provider)
@@ -44,7 +54,7 @@ public class JacksonRowDataSerializer extends JsonSerializer<List<List<Object>>>
       jgen.writeStartArray();
 
       for (Object field : row) {
-        jgen.writeObject(field);
+        writeValue(field, jgen, provider);
       }
 
       jgen.writeEndArray();
@@ -52,4 +62,73 @@ public class JacksonRowDataSerializer extends JsonSerializer<List<List<Object>>>
 
     jgen.writeEndArray();
   }
+
+  /**
+   * Writes the given value. Output is identical to the output of the default Jackson serializers
+   * for the respective types. Date and time values are written as timestamps or ISO-8601 strings
+   * depending on {@link SerializationFeature#WRITE_DATES_AS_TIMESTAMPS}.
+   *
+   * @param value the value.
+   * @param jgen the {@link JsonGenerator}.
+   * @param provider the {@link SerializerProvider}.
+   * @throws IOException for errors during writing.
+   */
+  public static void writeValue(Object value, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException {
+    if (value == null) {
+      jgen.writeNull();
+    } else if (value instanceof String string) {
+      jgen.writeString(string);
+    } else if (value instanceof Double number) {
+      jgen.writeNumber(number);
+    } else if (value instanceof Integer number) {
+      jgen.writeNumber(number);
+    } else if (value instanceof Long number) {
+      jgen.writeNumber(number);
+    } else if (value instanceof Boolean bool) {
+      jgen.writeBoolean(bool);
+    } else if (value instanceof Float number) {
+      jgen.writeNumber(number);
+    } else if (value instanceof Short number) {
+      jgen.writeNumber(number);
+    } else if (value instanceof Byte number) {
+      jgen.writeNumber(number.intValue());
+    } else if (value instanceof java.sql.Date date) {
+      if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+        jgen.writeNumber(date.getTime());
+      } else {
+        jgen.writeString(date.toString());
+      }
+    } else if (value instanceof Date date) {
+      provider.defaultSerializeDateValue(date, jgen);
+    } else if (!provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        && isIsoTemporal(value)) {
+      writeIsoTemporal(value, jgen);
+    } else {
+      provider.defaultSerializeValue(value, jgen);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /**
+   * Indicates whether the given value is a {@code java.time} type which is written as an ISO-8601
+   * string when dates are not written as timestamps.
+   */
+  private static boolean isIsoTemporal(Object value) {
+    return value instanceof LocalDate || value instanceof LocalDateTime || value instanceof Instant;
+  }
+
+  /** Writes the given {@code java.time} value as an ISO-8601 string. */
+  private static void writeIsoTemporal(Object value, JsonGenerator jgen) throws IOException {
+    if (value instanceof LocalDate date) {
+      jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE.format(date));
+    } else if (value instanceof LocalDateTime dateTime) {
+      jgen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime));
+    } else {
+      jgen.writeString(DateTimeFormatter.ISO_INSTANT.format((Instant) value));
+    }
+  }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.hisp.grid.util.BufferUtils;
+
+/**
+ * Growable block of memory outside of the Java heap, made up of fixed size direct {@link
+ * ByteBuffer} chunks and addressed by a long position. Primitive values must be accessed at
+ * positions which are a multiple of their size, so that they never span two chunks. Memory is
+ * released on {@link #close()}.
+ */
+public class OffHeapMemory implements AutoCloseable {
+  private static final int CHUNK_SHIFT = 16;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+
+  private boolean closed;
+
+  /**
+   * Returns the number of bytes currently allocated.
+   *
+   * @return the capacity in bytes.
+   */
+  public long capacity() {
+    return (long) chunks.size() << CHUNK_SHIFT;
+  }
+
+  /**
+   * Allocates memory until the capacity is at least the given number of bytes.
+   *
+   * @param capacity the required capacity in bytes.
+   */
+  public void ensureCapacity(long capacity) {
+    checkOpen();
+
+    while (capacity() < capacity) {
+      chunks.add(ByteBuffer.allocateDirect(CHUNK_SIZE).order(ByteOrder.nativeOrder()));
+    }
+  }
+
+  public byte getByte(long pos) {
+    return chunk(pos).get(offset(pos));
+  }
+
+  public void putByte(long pos, byte value) {
+    chunk(pos).put(offset(pos), value);
+  }
+
+  public int getInt(long pos) {
+    return chunk(pos).getInt(offset(pos));
+  }
+
+  public void putInt(long pos, int value) {
+    chunk(pos).putInt(offset(pos), value);
+  }
+
+  public long getLong(long pos) {
+    return chunk(pos).getLong(offset(pos));
+  }
+
+  public void putLong(long pos, long value) {
+    chunk(pos).putLong(offset(pos), value);
+  }
+
+  public double getDouble(long pos) {
+    return chunk(pos).getDouble(offset(pos));
+  }
+
+  public void putDouble(long pos, double value) {
+    chunk(pos).putDouble(offset(pos), value);
+  }
+
+  /**
+   * Copies bytes from this memory to the given array.
+   *
+   * @param pos the position to read from.
+   * @param dst the destination array.
+   * @param off the offset in the destination array.
+   * @param len the number of bytes to copy.
+   */
+  public void getBytes(long pos, byte[] dst, int off, int len) {
+    while (len > 0) {
+      int n = Math.min(len, CHUNK_SIZE - offset(pos));
+      chunk(pos).get(offset(pos), dst, off, n);
+      pos += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Copies bytes from the given array to this memory.
+   *
+   * @param pos the position to write to.
+   * @param src the source array.
+   * @param off the offset in the source array.
+   * @param len the number of bytes to copy.
+   */
+  public void putBytes(long pos, byte[] src, int off, int len) {
+    while (len > 0) {
+      int n = Math.min(len, CHUNK_SIZE - offset(pos));
+      chunk(pos).put(offset(pos), src, off, n);
+      pos += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /** Releases all memory. The memory must not be accessed afterwards. */
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      chunks.forEach(BufferUtils::free);
+      chunks.clear();
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private ByteBuffer chunk(long pos) {
+    checkOpen();
+    return chunks.get((int) (pos >>> CHUNK_SHIFT));
+  }
+
+  private static int offset(long pos) {
+    return (int) (pos & CHUNK_MASK);
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("Off-heap memory has been released");
+    }
+  }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.hisp.grid.util.BufferUtils;
+
+/**
+ * List of grid rows which keeps rows on the heap until the estimated heap size of the rows exceeds
+ * a memory budget, and then spills the rows in blocks to a temporary file. Spilled blocks are
+ * memory-mapped and rows are decoded on access. Rows are encoded with {@link ValueCodec}.
+ *
+ * <p>Rows are appended to the end of the list. The last row stays on the heap until the next row is
+ * added, so that values can be appended to it. Spilled rows are read-only, and rows can only be
+ * replaced or removed while they are on the heap. The temporary file is deleted on {@link
+ * #close()}.
+ */
+public class SpillingRowList extends AbstractList<List<Object>> implements AutoCloseable {
+  /** Maximum size of a block, must be mappable as a single buffer. */
+  private static final long MAX_BLOCK_BYTES = 1L << 30;
+
+  /** Estimated heap size of a row list. */
+  private static final long ROW_OVERHEAD = 56;
+
+  /** Estimated heap size of a cell reference and value object. */
+  private static final long CELL_OVERHEAD = 24;
+
+  /** Memory budget in bytes for rows on the heap. */
+  private final long memoryBudget;
+
+  /** Directory for the temporary file, null for the default temporary directory. */
+  private final Path directory;
+
+  /** Rows on the heap, following the spilled rows. */
+  private final List<List<Object>> buffer = new ArrayList<>();
+
+  /** Estimated heap size of the rows in the buffer, excluding the last row. */
+  private long bufferBytes;
+
+  /** Spilled blocks. */
+  private final List<Block> blocks = new ArrayList<>();
+
+  /** Number of spilled rows. */
+  private int spilledRows;
+
+  /** Temporary file, null if no rows have been spilled. */
+  private Path file;
+
+  /** Channel of the temporary file. */
+  private FileChannel channel;
+
+  /**
+   * Constructor.
+   *
+   * @param memoryBudget the memory budget in bytes for rows on the heap.
+   * @param directory the directory for the temporary file, null for the default temporary
+   *     directory.
+   */
+  public SpillingRowList(long memoryBudget, Path directory) {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Illegal memory budget: " + memoryBudget);
+    }
+
+    this.memoryBudget = memoryBudget;
+    this.directory = directory;
+  }
+
+  /**
+   * Returns the number of rows which have been spilled to disk.
+   *
+   * @return the number of spilled rows.
+   */
+  public int getSpilledRows() {
+    return spilledRows;
+  }
+
+  @Override
+  public List<Object> get(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Row index out of bounds: " + index);
+    }
+
+    if (index >= spilledRows) {
+      return buffer.get(index - spilledRows);
+    }
+
+    Block block = blocks.get(findBlock(index));
+    return Collections.unmodifiableList(ValueCodec.readRow(block.row(index)));
+  }
+
+  @Override
+  public int size() {
+    return spilledRows + buffer.size();
+  }
+
+  @Override
+  public boolean add(List<Object> row) {
+    if (!buffer.isEmpty()) {
+      bufferBytes += estimateSize(buffer.get(buffer.size() - 1));
+    }
+
+    if (bufferBytes > memoryBudget) {
+      spill();
+    }
+
+    buffer.add(row);
+    modCount++;
+    return true;
+  }
+
+  @Override
+  public void add(int index, List<Object> row) {
+    if (index != size()) {
+      throw new UnsupportedOperationException("Rows can only be added to the end of the list");
+    }
+
+    add(row);
+  }
+
+  @Override
+  public List<Object> set(int index, List<Object> row) {
+    return buffer.set(bufferIndex(index), row);
+  }
+
+  @Override
+  public List<Object> remove(int index) {
+    int bufferIndex = bufferIndex(index);
+
+    if (bufferIndex < buffer.size() - 1) {
+      bufferBytes -= estimateSize(buffer.get(bufferIndex));
+    }
+
+    modCount++;
+    return buffer.remove(bufferIndex);
+  }
+
+  /** Deletes the temporary file and releases the mapped memory. */
+  @Override
+  public void close() {
+    blocks.forEach(block -> BufferUtils.free(block.buffer));
+    blocks.clear();
+    buffer.clear();
+    spilledRows = 0;
+    bufferBytes = 0;
+
+    try {
+      if (channel != null) {
+        channel.close();
+        Files.deleteIfExists(file);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } finally {
+      channel = null;
+      file = null;
+    }
+  }
+
+  /**
+   * Returns an estimate of the heap size in bytes of the given row.
+   *
+   * @param row the row.
+   * @return the estimated size in bytes.
+   */
+  public static long estimateSize(List<Object> row) {
+    long size = ROW_OVERHEAD;
+
+    for (Object value : row) {
+      size += CELL_OVERHEAD;
+
+      if (value instanceof String string) {
+        size += 2L * string.length();
+      }
+    }
+
+    return size;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  /** Writes all rows in the buffer to the temporary file in one or more blocks. */
+  private void spill() {
+    try {
+      if (channel == null) {
+        file =
+            directory != null
+                ? Files.createTempFile(directory, "grid-", ".spill")
+                : Files.createTempFile("grid-", ".spill");
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      }
+
+      int row = 0;
+
+      while (row < buffer.size()) {
+        row = writeBlock(row);
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+
+    spilledRows += buffer.size();
+    buffer.clear();
+    bufferBytes = 0;
+  }
+
+  /**
+   * Writes rows from the buffer as a block to the end of the temporary file and maps the block.
+   *
+   * @param fromRow the index of the first row in the buffer to write.
+   * @return the index of the first row in the buffer which was not written.
+   * @throws IOException for errors during writing.
+   */
+  private int writeBlock(int fromRow) throws IOException {
+    long start = channel.size();
+    channel.position(start);
+
+    CountingOutputStream counter =
+        new CountingOutputStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    DataOutputStream out = new DataOutputStream(counter);
+
+    List<Integer> offsets = new ArrayList<>();
+
+    int row = fromRow;
+
+    while (row < buffer.size() && counter.count < MAX_BLOCK_BYTES) {
+      offsets.add((int) counter.count);
+      ValueCodec.writeRow(buffer.get(row++), out);
+    }
+
+    out.flush();
+
+    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, counter.count);
+
+    blocks.add(
+        new Block(
+            spilledRows + fromRow, offsets.stream().mapToInt(Integer::intValue).toArray(), mapped));
+
+    return row;
+  }
+
+  /**
+   * Returns the index of the block holding the given spilled row.
+   *
+   * @param row the row index.
+   * @return the block index.
+   */
+  private int findBlock(int row) {
+    int low = 0;
+    int high = blocks.size() - 1;
+
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+
+      if (blocks.get(mid).firstRow <= row) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Returns the index in the buffer of the given row.
+   *
+   * @param index the row index.
+   * @return the buffer index.
+   * @throws UnsupportedOperationException if the row has been spilled.
+   */
+  private int bufferIndex(int index) {
+    if (index < spilledRows) {
+      throw new UnsupportedOperationException("Row has been spilled to disk: " + index);
+    }
+
+    return index - spilledRows;
+  }
+
+  /** Block of spilled rows. */
+  private static class Block {
+    private final int firstRow;
+
+    private final int[] offsets;
+
+    private final MappedByteBuffer buffer;
+
+    Block(int firstRow, int[] offsets, MappedByteBuffer buffer) {
+      this.firstRow = firstRow;
+      this.offsets = offsets;
+      this.buffer = buffer;
+    }
+
+    /**
+     * Returns a buffer positioned at the start of the given row.
+     *
+     * @param row the row index.
+     * @return a {@link ByteBuffer}.
+     */
+    ByteBuffer row(int row) {
+      int offset = offsets[row - firstRow];
+      return buffer.slice(offset, buffer.capacity() - offset);
+    }
+  }
+
+  /** Output stream which counts the number of bytes written. */
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.storage;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact binary encoding of grid values. Each value is written as a type tag followed by the
+ * value. Supports null, strings, the boxed primitive types, {@link BigDecimal}, {@link BigInteger}
+ * and the common date and time types returned by JDBC drivers.
+ */
+public final class ValueCodec {
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte FLOAT = 5;
+  private static final byte SHORT = 6;
+  private static final byte BYTE = 7;
+  private static final byte TRUE = 8;
+  private static final byte FALSE = 9;
+  private static final byte CHARACTER = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte LOCAL_DATE = 17;
+  private static final byte LOCAL_DATE_TIME = 18;
+  private static final byte INSTANT = 19;
+
+  private ValueCodec() {}
+
+  /**
+   * Indicates whether the given value can be encoded.
+   *
+   * @param value the value.
+   * @return true if the value can be encoded.
+   */
+  public static boolean isSupported(Object value) {
+    return tag(value) >= 0;
+  }
+
+  /**
+   * Writes the given value.
+   *
+   * @param value the value.
+   * @param out the {@link DataOutput}.
+   * @throws IOException for errors during writing.
+   * @throws IllegalArgumentException if the value type is not supported.
+   */
+  public static void write(Object value, DataOutput out) throws IOException {
+    byte tag = tag(value);
+
+    if (tag < 0) {
+      throw new IllegalArgumentException("Value type not supported: " + value.getClass());
+    }
+
+    out.writeByte(tag);
+
+    switch (tag) {
+      case STRING -> writeBytes(((String) value).getBytes(StandardCharsets.UTF_8), out);
+      case INTEGER -> out.writeInt((Integer) value);
+      case LONG -> out.writeLong((Long) value);
+      case DOUBLE -> out.writeDouble((Double) value);
+      case FLOAT -> out.writeFloat((Float) value);
+      case SHORT -> out.writeShort((Short) value);
+      case BYTE -> out.writeByte((Byte) value);
+      case CHARACTER -> out.writeChar((Character) value);
+      case BIG_DECIMAL -> {
+        BigDecimal decimal = (BigDecimal) value;
+        out.writeInt(decimal.scale());
+        writeBytes(decimal.unscaledValue().toByteArray(), out);
+      }
+      case BIG_INTEGER -> writeBytes(((BigInteger) value).toByteArray(), out);
+      case DATE, SQL_DATE, SQL_TIME -> out.writeLong(((Date) value).getTime());
+      case SQL_TIMESTAMP -> {
+        Timestamp timestamp = (Timestamp) value;
+        out.writeLong(timestamp.getTime());
+        out.writeInt(timestamp.getNanos());
+      }
+      case LOCAL_DATE -> out.writeLong(((LocalDate) value).toEpochDay());
+      case LOCAL_DATE_TIME -> {
+        LocalDateTime dateTime = (LocalDateTime) value;
+        out.writeLong(dateTime.toLocalDate().toEpochDay());
+        out.writeLong(dateTime.toLocalTime().toNanoOfDay());
+      }
+      case INSTANT -> {
+        Instant instant = (Instant) value;
+        out.writeLong(instant.getEpochSecond());
+        out.writeInt(instant.getNano());
+      }
+      default -> {
+        // Null and booleans are represented by the tag alone
+      }
+    }
+  }
+
+  /**
+   * Reads a value from the current position of the given buffer and advances the position.
+   *
+   * @param in the {@link ByteBuffer}.
+   * @return the value.
+   */
+  public static Object read(ByteBuffer in) {
+    byte tag = in.get();
+
+    return switch (tag) {
+      case NULL -> null;
+      case STRING -> new String(readBytes(in), StandardCharsets.UTF_8);
+      case INTEGER -> in.getInt();
+      case LONG -> in.getLong();
+      case DOUBLE -> in.getDouble();
+      case FLOAT -> in.getFloat();
+      case SHORT -> in.getShort();
+      case BYTE -> in.get();
+      case TRUE -> Boolean.TRUE;
+      case FALSE -> Boolean.FALSE;
+      case CHARACTER -> in.getChar();
+      case BIG_DECIMAL -> {
+        int scale = in.getInt();
+        yield new BigDecimal(new BigInteger(readBytes(in)), scale);
+      }
+      case BIG_INTEGER -> new BigInteger(readBytes(in));
+      case DATE -> new Date(in.getLong());
+      case SQL_DATE -> new java.sql.Date(in.getLong());
+      case SQL_TIME -> new Time(in.getLong());
+      case SQL_TIMESTAMP -> {
+        Timestamp timestamp = new Timestamp(in.getLong());
+        timestamp.setNanos(in.getInt());
+        yield timestamp;
+      }
+      case LOCAL_DATE -> LocalDate.ofEpochDay(in.getLong());
+      case LOCAL_DATE_TIME -> {
+        LocalDate date = LocalDate.ofEpochDay(in.getLong());
+        yield LocalDateTime.of(date, LocalTime.ofNanoOfDay(in.getLong()));
+      }
+      case INSTANT -> Instant.ofEpochSecond(in.getLong(), in.getInt());
+      default -> throw new IllegalStateException("Invalid value tag: " + tag);
+    };
+  }
+
+  /**
+   * Writes the given row as the number of values followed by the values. Values of types which are
+   * not supported are written as their string representation.
+   *
+   * @param row the row values.
+   * @param out the {@link DataOutput}.
+   * @throws IOException for errors during writing.
+   */
+  public static void writeRow(List<Object> row, DataOutput out) throws IOException {
+    out.writeInt(row.size());
+
+    for (Object value : row) {
+      write(isSupported(value) ? value : String.valueOf(value), out);
+    }
+  }
+
+  /**
+   * Reads a row from the current position of the given buffer and advances the position.
+   *
+   * @param in the {@link ByteBuffer}.
+   * @return the row values.
+   */
+  public static List<Object> readRow(ByteBuffer in) {
+    Object[] values = new Object[in.getInt()];
+
+    for (int i = 0; i < values.length; i++) {
+      values[i] = read(in);
+    }
+
+    return Arrays.asList(values);
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private static byte tag(Object value) {
+    if (value == null) {
+      return NULL;
+    }
+
+    Class<?> type = value.getClass();
+
+    if (type == String.class) {
+      return STRING;
+    } else if (type == Integer.class) {
+      return INTEGER;
+    } else if (type == Long.class) {
+      return LONG;
+    } else if (type == Double.class) {
+      return DOUBLE;
+    } else if (type == Float.class) {
+      return FLOAT;
+    } else if (type == Short.class) {
+      return SHORT;
+    } else if (type == Byte.class) {
+      return BYTE;
+    } else if (type == Boolean.class) {
+      return (Boolean) value ? TRUE : FALSE;
+    } else if (type == Character.class) {
+      return CHARACTER;
+    } else if (type == BigDecimal.class) {
+      return BIG_DECIMAL;
+    } else if (type == BigInteger.class) {
+      return BIG_INTEGER;
+    } else if (type == Date.class) {
+      return DATE;
+    } else if (type == java.sql.Date.class) {
+      return SQL_DATE;
+    } else if (type == Time.class) {
+      return SQL_TIME;
+    } else if (type == Timestamp.class) {
+      return SQL_TIMESTAMP;
+    } else if (type == LocalDate.class) {
+      return LOCAL_DATE;
+    } else if (type == LocalDateTime.class) {
+      return LOCAL_DATE_TIME;
+    } else if (type == Instant.class) {
+      return INSTANT;
+    }
+
+    return -1;
+  }
+
+  private static void writeBytes(byte[] bytes, DataOutput out) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(ByteBuffer in) {
+    byte[] bytes = new byte[in.getInt()];
+    in.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.writer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * CSV encoder which writes fields into a reusable character buffer and flushes the buffer to the
+ * underlying {@link Writer}. Integers, integral doubles, booleans and dates are written without
+ * creating intermediate strings. Output is compatible with the javacsv library: fields are trimmed,
+ * and are qualified with double quotes if they contain the delimiter, a double quote or a line
+ * break, if the first field of a record is empty or starts with a comment character, or if
+ * qualification is forced.
+ */
+class CsvEncoder {
+  private static final char QUALIFIER = '"';
+
+  private static final char COMMENT = '#';
+
+  private static final int BUFFER_SIZE = 8192;
+
+  /** Largest magnitude for which {@link Double#toString} does not use scientific notation. */
+  private static final double MAX_PLAIN_DOUBLE = 1e7;
+
+  private static final String RECORD_DELIMITER = System.lineSeparator();
+
+  private final Writer writer;
+
+  private final char delimiter;
+
+  private final boolean forceQualifier;
+
+  /** Whether numbers can be written without checking for characters which require qualifying. */
+  private final boolean plainNumbers;
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+
+  private int pos;
+
+  private boolean firstField = true;
+
+  /**
+   * Constructor.
+   *
+   * @param writer the {@link Writer}.
+   * @param delimiter the field delimiter.
+   * @param forceQualifier whether to qualify all fields.
+   */
+  CsvEncoder(Writer writer, char delimiter, boolean forceQualifier) {
+    this.writer = writer;
+    this.delimiter = delimiter;
+    this.forceQualifier = forceQualifier;
+    this.plainNumbers = "0123456789-+.E".indexOf(delimiter) == -1;
+  }
+
+  /**
+   * Writes the given value as a field. Null is written as an empty field.
+   *
+   * @param value the value.
+   * @throws IOException for errors during writing.
+   */
+  void write(Object value) throws IOException {
+    if (value == null) {
+      write("");
+    } else if (value instanceof String string) {
+      write(string);
+    } else if (plainNumbers && (value instanceof Integer || value instanceof Long)) {
+      startField();
+      writeLong(((Number) value).longValue());
+      endField();
+    } else if (plainNumbers && value instanceof Double number && isPlainIntegral(number)) {
+      startField();
+      writeLong(number.longValue());
+      append('.');
+      append('0');
+      endField();
+    } else if (value instanceof Boolean bool) {
+      startField();
+      append(bool ? "true" : "false");
+      endField();
+    } else if (plainNumbers && value instanceof java.sql.Date date) {
+      writeDate(date.toLocalDate());
+    } else if (plainNumbers && value instanceof LocalDate date) {
+      writeDate(date);
+    } else {
+      write(String.valueOf(value));
+    }
+  }
+
+  /**
+   * Writes the given string as a field.
+   *
+   * @param value the string.
+   * @throws IOException for errors during writing.
+   */
+  void write(String value) throws IOException {
+    int start = 0;
+    int end = value.length();
+
+    while (start < end && value.charAt(start) <= ' ') {
+      start++;
+    }
+
+    while (end > start && value.charAt(end - 1) <= ' ') {
+      end--;
+    }
+
+    boolean qualify =
+        forceQualifier
+            || (firstField && (start == end || value.charAt(start) == COMMENT))
+            || requiresQualifier(value, start, end);
+
+    if (!firstField) {
+      append(delimiter);
+    }
+
+    if (qualify) {
+      append(QUALIFIER);
+
+      for (int i = start; i < end; i++) {
+        char c = value.charAt(i);
+
+        if (c == QUALIFIER) {
+          append(QUALIFIER);
+        }
+
+        append(c);
+      }
+
+      append(QUALIFIER);
+    } else {
+      append(value, start, end);
+    }
+
+    firstField = false;
+  }
+
+  /**
+   * Ends the current record.
+   *
+   * @throws IOException for errors during writing.
+   */
+  void endRecord() throws IOException {
+    append(RECORD_DELIMITER);
+    firstField = true;
+  }
+
+  /**
+   * Writes buffered characters to the underlying writer.
+   *
+   * @throws IOException for errors during writing.
+   */
+  void flush() throws IOException {
+    writer.write(buffer, 0, pos);
+    pos = 0;
+  }
+
+  // -------------------------------------------------------------------------
+  // Supportive methods
+  // -------------------------------------------------------------------------
+
+  private boolean requiresQualifier(String value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+
+      if (c == QUALIFIER || c == delimiter || c == '\n' || c == '\r') {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Indicates whether the given double is integral and is formatted by {@link Double#toString} as
+   * the integer followed by ".0".
+   */
+  private static boolean isPlainIntegral(double value) {
+    return value == Math.rint(value)
+        && Math.abs(value) < MAX_PLAIN_DOUBLE
+        && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0d);
+  }
+
+  private void startField() throws IOException {
+    if (!firstField) {
+      append(delimiter);
+    }
+
+    if (forceQualifier) {
+      append(QUALIFIER);
+    }
+  }
+
+  private void endField() throws IOException {
+    if (forceQualifier) {
+      append(QUALIFIER);
+    }
+
+    firstField = false;
+  }
+
+  /** Writes the given date in ISO-8601 format, as {@link LocalDate#toString()}. */
+  private void writeDate(LocalDate date) throws IOException {
+    int year = date.getYear();
+
+    if (year < 0 || year > 9999) {
+      write(date.toString());
+      return;
+    }
+
+    startField();
+    writeDigits(year, 4);
+    append('-');
+    writeDigits(date.getMonthValue(), 2);
+    append('-');
+    writeDigits(date.getDayOfMonth(), 2);
+    endField();
+  }
+
+  private void writeLong(long value) throws IOException {
+    if (value == Long.MIN_VALUE) {
+      append(Long.toString(value));
+      return;
+    }
+
+    if (value < 0) {
+      append('-');
+      value = -value;
+    }
+
+    int digits = 1;
+
+    for (long v = value; v >= 10; v /= 10) {
+      digits++;
+    }
+
+    writeDigits(value, digits);
+  }
+
+  /** Writes the given non-negative value as the given number of digits, padded with zeros. */
+  private void writeDigits(long value, int digits) throws IOException {
+    ensureCapacity(digits);
+
+    for (int i = pos + digits - 1; i >= pos; i--) {
+      buffer[i] = (char) ('0' + (value % 10));
+      value /= 10;
+    }
+
+    pos += digits;
+  }
+
+  private void append(char c) throws IOException {
+    ensureCapacity(1);
+    buffer[pos++] = c;
+  }
+
+  private void append(String value) throws IOException {
+    append(value, 0, value.length());
+  }
+
+  private void append(String value, int start, int end) throws IOException {
+    while (start < end) {
+      ensureCapacity(1);
+      int n = Math.min(end - start, buffer.length - pos);
+      value.getChars(start, start + n, buffer, pos);
+      pos += n;
+      start += n;
+    }
+  }
+
+  private void ensureCapacity(int length) throws IOException {
+    if (pos + length > buffer.length) {
+      flush();
+    }
+  }
+}
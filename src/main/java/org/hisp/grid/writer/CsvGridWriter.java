@@ -27,19 +27,17 @@
  */
 package org.hisp.grid.writer;
 
-import static org.apache.commons.lang3.ObjectUtils.firstNonNull;
-import static org.apache.commons.lang3.StringUtils.EMPTY;
-
-import com.csvreader.CsvWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Iterator;
 import java.util.List;
 import org.hisp.grid.Grid;
 import org.hisp.grid.GridHeader;
 import org.hisp.grid.options.CsvWriteOptions;
 
-/** {@link GridWriter} implementation for CSV format. */
+/**
+ * {@link GridWriter} implementation for CSV format. Values are encoded directly into a reusable
+ * buffer, without creating intermediate strings for numbers, booleans and dates.
+ */
 public class CsvGridWriter implements GridWriter {
   /** CSV writing options. */
   private final CsvWriteOptions options;
@@ -55,40 +53,29 @@ public class CsvGridWriter implements GridWriter {
 
   @Override
   public void write(Grid grid, Writer writer) throws IOException {
-    CsvWriter csvWriter = getCsvWriter(writer, options);
+    write(grid, grid.getRows(), writer);
+  }
 
-    Iterator<GridHeader> headers = grid.getHeaders().iterator();
+  @Override
+  public void write(Grid grid, Iterable<List<Object>> rows, Writer writer) throws IOException {
+    CsvEncoder encoder = new CsvEncoder(writer, options.getDelimiter(), options.isForceQualifier());
 
     if (!grid.getHeaders().isEmpty()) {
-      while (headers.hasNext()) {
-        csvWriter.write(headers.next().getName());
+      for (GridHeader header : grid.getHeaders()) {
+        encoder.write(header.getName());
       }
 
-      csvWriter.endRecord();
+      encoder.endRecord();
     }
 
-    for (List<Object> row : grid.getRows()) {
-      Iterator<Object> columns = row.iterator();
-
-      while (columns.hasNext()) {
-        Object value = columns.next();
-        csvWriter.write(String.valueOf(firstNonNull(value, EMPTY)));
+    for (List<Object> row : rows) {
+      for (Object value : row) {
+        encoder.write(value);
       }
 
-      csvWriter.endRecord();
+      encoder.endRecord();
     }
-  }
 
-  /**
-   * Returns a CSV writer based on the given writer and options.
-   *
-   * @param writer the {@link Writer}.
-   * @param options the {@link CsvWriteOptions}.
-   * @return a {@link CsvWriter}.
-   */
-  private CsvWriter getCsvWriter(Writer writer, CsvWriteOptions options) {
-    CsvWriter csvWriter = new CsvWriter(writer, options.getDelimiter());
-    csvWriter.setForceQualifier(options.isForceQualifier());
-    return csvWriter;
+    encoder.flush();
   }
 }
@@ -29,7 +29,9 @@ package org.hisp.grid.writer;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.List;
 import org.hisp.grid.Grid;
+import org.hisp.grid.ListGrid;
 
 /** Interface for writing a {@link Grid} in various formats. */
 public interface GridWriter {
@@ -41,4 +43,33 @@ public interface GridWriter {
    * @throws IOException if a writing error occurred.
    */
   void write(Grid grid, Writer writer) throws IOException;
+
+  /**
+   * Writes the given grid using the given writer, taking the rows from the given iterable instead
+   * of the grid. This allows for writing rows which are produced incrementally, such as rows sorted
+   * with {@link org.hisp.grid.SortedRows}, without first collecting them in the grid. The default
+   * implementation collects the rows in a copy of the grid and delegates to {@link #write(Grid,
+   * Writer)}, while the built-in writers write the rows as they are iterated.
+   *
+   * @param grid the {@link Grid} which provides headers and meta data.
+   * @param rows the rows to write.
+   * @param writer the {@link Writer}.
+   * @throws IOException if a writing error occurred.
+   */
+  default void write(Grid grid, Iterable<List<Object>> rows, Writer writer) throws IOException {
+    Grid copy =
+        new ListGrid()
+            .setTitle(grid.getTitle())
+            .setSubtitle(grid.getSubtitle())
+            .setTable(grid.getTable())
+            .setMetaData(grid.getMetaData());
+
+    grid.getHeaders().forEach(copy::addHeader);
+
+    for (List<Object> row : rows) {
+      copy.addRow().addValuesAsList(row);
+    }
+
+    write(copy, writer);
+  }
 }
@@ -27,6 +27,7 @@
  */
 package org.hisp.grid.writer;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
@@ -37,11 +38,17 @@ import org.hisp.grid.GridHeader;
 import org.hisp.grid.options.HtmlWriteOptions;
 import org.owasp.encoder.Encode;
 
-/** {@link GridWriter} implementation for HTML format. */
+/**
+ * {@link GridWriter} implementation for HTML format. The document is written incrementally through
+ * a bounded buffer, so that memory usage does not depend on the number of rows.
+ */
 public class HtmlGridWriter implements GridWriter {
   /** Line separator. */
   private static final String LS = "\n";
 
+  /** Size of the output buffer. */
+  private static final int BUFFER_SIZE = 8192;
+
   /** HTML writing options. */
   private final HtmlWriteOptions options;
 
@@ -56,30 +63,41 @@ public class HtmlGridWriter implements GridWriter {
 
   @Override
   public void write(Grid grid, Writer writer) throws IOException {
-    writer.write(getHtmlDocument(grid));
+    write(grid, grid.getRows(), writer);
+  }
+
+  @Override
+  public void write(Grid grid, Iterable<List<Object>> rows, Writer writer) throws IOException {
+    Writer out = new BufferedWriter(writer, BUFFER_SIZE);
+
+    writeHtmlDocument(grid, rows, out);
+
+    out.flush();
   }
 
   /**
-   * Returns a HTML document.
+   * Writes a HTML document.
    *
    * @param grid the {@link Grid}.
-   * @return a HTML document.
+   * @param rows the rows to write.
+   * @param out the {@link Writer}.
+   * @throws IOException if a writing error occurred.
    */
-  private String getHtmlDocument(Grid grid) {
-    return String.format(
+  private void writeHtmlDocument(Grid grid, Iterable<List<Object>> rows, Writer out)
+      throws IOException {
+    out.write(
         """
         <!DOCTYPE html>
         <html>
         <head>
         <meta charset="UTF-8">
-        <title>%s</title>
-        %s
-        </head>
-        <body>
-        %s
-        </body>
-        </html>""",
-        escape(grid.getTitle()), getHtmlStyle(grid), getHtmlTable(grid));
+        <title>""");
+    escape(grid.getTitle(), out);
+    out.write("</title>" + LS);
+    out.write(getHtmlStyle(grid));
+    out.write(LS + "</head>" + LS + "<body>" + LS);
+    writeHtmlTable(grid, rows, out);
+    out.write(LS + "</body>" + LS + "</html>");
   }
 
   /**
@@ -124,68 +142,92 @@ public class HtmlGridWriter implements GridWriter {
   }
 
   /**
-   * Returns a HTML table section.
+   * Writes a HTML table section. Rows are written one by one, restricted to the visible columns.
    *
    * @param grid the {@link Grid}.
-   * @return a HTML table section.
+   * @param rows the rows to write.
+   * @param out the {@link Writer}.
+   * @throws IOException if a writing error occurred.
    */
-  private String getHtmlTable(Grid grid) {
-    StringBuilder b = new StringBuilder();
-
-    b.append(
-        String.format(
-            """
-            <div class="gridDiv">
-            <h2>%s</h2>
-            <h3>%s</h3>
-            <table class="gridTable">
-            <thead>
-            <tr>""",
-            escape(grid.getTitle()), escape(grid.getSubtitle())));
+  private void writeHtmlTable(Grid grid, Iterable<List<Object>> rows, Writer out)
+      throws IOException {
+    out.write("""
+        <div class="gridDiv">
+        <h2>""");
+    escape(grid.getTitle(), out);
+    out.write("</h2>" + LS + "<h3>");
+    escape(grid.getSubtitle(), out);
+    out.write("""
+        </h3>
+        <table class="gridTable">
+        <thead>
+        <tr>""");
 
     if (options.isLineNumbers()) {
-      b.append("<th></th>");
+      out.write("<th></th>");
     }
 
-    for (GridHeader header : grid.getVisibleHeaders()) {
-      b.append("<th>").append(escape(header.getName())).append("</th>");
+    List<GridHeader> headers = grid.getHeaders();
+
+    for (GridHeader header : headers) {
+      if (!header.isHidden()) {
+        out.write("<th>");
+        escape(header.getName(), out);
+        out.write("</th>");
+      }
     }
 
-    b.append("""
-        </tr>
-        </thead>
-        <tbody>
-        """);
+    out.write("</tr>" + LS + "</thead>" + LS + "<tbody>" + LS);
 
     int r = 0;
 
-    for (List<Object> row : grid.getVisibleRows()) {
-      b.append("<tr>");
+    if (!headers.isEmpty()) {
+      for (List<Object> row : rows) {
+        out.write("<tr>");
 
-      if (options.isLineNumbers()) {
-        b.append("<td>").append(++r).append("</td>");
-      }
+        if (options.isLineNumbers()) {
+          out.write("<td>");
+          out.write(Integer.toString(++r));
+          out.write("</td>");
+        }
+
+        for (int i = 0; i < row.size(); i++) {
+          if (!headers.get(i).isHidden()) {
+            out.write("<td>");
+            escape(row.get(i), out);
+            out.write("</td>");
+          }
+        }
 
-      for (Object value : row) {
-        b.append("<td>").append(escape(value)).append("</td>");
+        out.write("</tr>" + LS);
       }
-      b.append("</tr>").append(LS);
     }
 
-    return b.append("""
+    out.write("""
         </tbody>
         </table>
-        </div>""").toString();
+        </div>""");
+  }
+
+  /**
+   * Writes the given input object as an HTML-escaped string value.
+   *
+   * @param input the input object.
+   * @param out the {@link Writer}.
+   * @throws IOException if a writing error occurred.
+   */
+  private void escape(Object input, Writer out) throws IOException {
+    Encode.forHtml(out, trimToEmpty(input));
   }
 
   /**
-   * Returns the given input object as an HTML-escaped string value.
+   * Returns the given input object as a trimmed string value.
    *
    * @param input the input object.
    * @return a string value.
    */
-  private String escape(Object input) {
+  private String trimToEmpty(Object input) {
     String value = String.valueOf(ObjectUtils.firstNonNull(input, StringUtils.EMPTY));
-    return Encode.forHtml(StringUtils.trimToEmpty(value));
+    return StringUtils.trimToEmpty(value);
   }
 }
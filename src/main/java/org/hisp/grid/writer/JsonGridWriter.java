@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid.writer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.hisp.grid.Grid;
+import org.hisp.grid.GridHeader;
+import org.hisp.grid.options.JsonWriteOptions;
+import org.hisp.grid.serializer.JacksonRowDataSerializer;
+
+/**
+ * {@link GridWriter} implementation for JSON format. The grid is written incrementally through a
+ * {@link JsonGenerator}, and the output is flushed after each batch of rows, so that memory usage
+ * does not depend on the number of rows. With standard options, the output has the same content as
+ * the output of serializing the grid with an {@link ObjectMapper}.
+ */
+public class JsonGridWriter implements GridWriter {
+  /** Default object mapper. */
+  private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+  /** JSON writing options. */
+  private final JsonWriteOptions options;
+
+  /** Object mapper which provides configuration and serializers for headers and values. */
+  private final ObjectMapper mapper;
+
+  /**
+   * Constructor.
+   *
+   * @param options the {@link JsonWriteOptions}.
+   */
+  public JsonGridWriter(JsonWriteOptions options) {
+    this(options, DEFAULT_MAPPER);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param options the {@link JsonWriteOptions}.
+   * @param mapper the {@link ObjectMapper} which provides configuration and serializers.
+   */
+  public JsonGridWriter(JsonWriteOptions options, ObjectMapper mapper) {
+    this.options = options;
+    this.mapper = mapper;
+  }
+
+  @Override
+  public void write(Grid grid, Writer writer) throws IOException {
+    write(grid, grid.getRows(), writer);
+  }
+
+  @Override
+  public void write(Grid grid, Iterable<List<Object>> rows, Writer writer) throws IOException {
+    SerializerProvider provider = mapper.getSerializerProviderInstance();
+
+    try (JsonGenerator jgen = mapper.getFactory().createGenerator(writer)) {
+      jgen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+      if (options.isPrettyPrint()) {
+        jgen.useDefaultPrettyPrinter();
+      }
+
+      writeGrid(grid, rows, jgen, provider);
+    }
+  }
+
+  /**
+   * Writes the grid as a JSON object.
+   *
+   * @param grid the {@link Grid}.
+   * @param rows the rows to write.
+   * @param jgen the {@link JsonGenerator}.
+   * @param provider the {@link SerializerProvider}.
+   * @throws IOException if a writing error occurred.
+   */
+  private void writeGrid(
+      Grid grid, Iterable<List<Object>> rows, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException {
+    int[] columns = getColumnIndexes(grid);
+
+    jgen.writeStartObject();
+    jgen.writeStringField("title", grid.getTitle());
+    jgen.writeStringField("subtitle", grid.getSubtitle());
+    jgen.writeStringField("table", grid.getTable());
+
+    jgen.writeArrayFieldStart("headers");
+
+    if (columns == null) {
+      for (GridHeader header : grid.getHeaders()) {
+        provider.defaultSerializeValue(header, jgen);
+      }
+    } else {
+      for (int column : columns) {
+        provider.defaultSerializeValue(grid.getHeaders().get(column), jgen);
+      }
+    }
+
+    jgen.writeEndArray();
+
+    if (options.isMetaData()) {
+      jgen.writeFieldName("metaData");
+      provider.defaultSerializeValue(grid.getMetaData(), jgen);
+    }
+
+    jgen.writeNumberField("height", grid.getHeight());
+    jgen.writeNumberField("width", columns == null ? grid.getWidth() : columns.length);
+
+    writeRows(rows, columns, jgen, provider);
+
+    jgen.writeEndObject();
+  }
+
+  /**
+   * Writes the rows of the grid as an array of arrays, flushing the output after each batch of
+   * rows.
+   *
+   * @param rows the rows to write.
+   * @param columns the indexes of the columns to write, or null to write all columns.
+   * @param jgen the {@link JsonGenerator}.
+   * @param provider the {@link SerializerProvider}.
+   * @throws IOException if a writing error occurred.
+   */
+  private void writeRows(
+      Iterable<List<Object>> rows, int[] columns, JsonGenerator jgen, SerializerProvider provider)
+      throws IOException {
+    int flushRows = options.getFlushRows();
+    int rowCount = 0;
+
+    jgen.writeArrayFieldStart("rows");
+
+    for (List<Object> row : rows) {
+      jgen.writeStartArray();
+
+      if (columns == null) {
+        for (Object value : row) {
+          JacksonRowDataSerializer.writeValue(value, jgen, provider);
+        }
+      } else {
+        for (int column : columns) {
+          JacksonRowDataSerializer.writeValue(row.get(column), jgen, provider);
+        }
+      }
+
+      jgen.writeEndArray();
+
+      if (++rowCount % flushRows == 0) {
+        jgen.flush();
+      }
+    }
+
+    jgen.writeEndArray();
+  }
+
+  /**
+   * Returns the indexes of the columns to write, or null if all columns are written.
+   *
+   * @param grid the {@link Grid}.
+   * @return the column indexes, or null.
+   */
+  private int[] getColumnIndexes(Grid grid) {
+    List<GridHeader> headers = grid.getHeaders();
+
+    if (options.isHiddenColumns() || headers.stream().noneMatch(GridHeader::isHidden)) {
+      return null;
+    }
+
+    List<Integer> indexes = new ArrayList<>();
+
+    for (int i = 0; i < headers.size(); i++) {
+      if (!headers.get(i).isHidden()) {
+        indexes.add(i);
+      }
+    }
+
+    return indexes.stream().mapToInt(Integer::intValue).toArray();
+  }
+}
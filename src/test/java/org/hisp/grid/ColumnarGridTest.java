@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import static org.hisp.grid.GridUtils.getList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ColumnarGridTest {
+  private Grid grid;
+
+  @BeforeEach
+  public void beforeEach() {
+    grid =
+        new ColumnarGrid()
+            .setTitle("Immunization")
+            .addHeader(new GridHeader("Data element", "dx", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Count", "count", ValueType.INTEGER, false, false))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addHeader(new GridHeader("Approved", "approved", ValueType.BOOLEAN, true, false))
+            .addRow()
+            .addValuesVar("Penta1", "201901", 12, 5128.0, true)
+            .addRow()
+            .addValuesVar("BCG", "201902", 8, 3017.5, false)
+            .addRow()
+            .addValuesVar("Penta1", "201903", null, null, null)
+            .addRow()
+            .addValuesVar("BCG", "201904", 31, 2873.0, true);
+  }
+
+  @Test
+  void testGetDimensions() {
+    assertEquals(4, grid.getHeight());
+    assertEquals(5, grid.getWidth());
+    assertEquals(4, grid.getVisibleWidth());
+  }
+
+  @Test
+  void testGetValues() {
+    assertEquals("Penta1", grid.getValue(0, 0));
+    assertEquals(12, grid.getValue(0, 2));
+    assertEquals(5128.0, grid.getValue(0, 3));
+    assertEquals(true, grid.getValue(0, 4));
+    assertEquals(false, grid.getValue(1, 4));
+    assertNull(grid.getValue(2, 2));
+    assertNull(grid.getValue(2, 3));
+    assertNull(grid.getValue(2, 4));
+    assertThrows(IllegalArgumentException.class, () -> grid.getValue(4, 0));
+  }
+
+  @Test
+  void testGetRow() {
+    assertEquals(getList("BCG", "201902", 8, 3017.5, false), grid.getRow(1));
+    assertEquals(getList("Penta1", "201903", null, null, null), grid.getRow(2));
+  }
+
+  @Test
+  void testSetRowValue() {
+    grid.getRow(1).set(2, 9);
+
+    assertEquals(9, grid.getValue(1, 2));
+  }
+
+  @Test
+  void testTypeFallback() {
+    grid.addRow().addValuesVar("OPV", "201905", 7L, "2212.0", true);
+
+    assertEquals(7L, grid.getValue(4, 2));
+    assertEquals("2212.0", grid.getValue(4, 3));
+    assertEquals(12, grid.getValue(0, 2));
+    assertEquals(5128.0, grid.getValue(0, 3));
+  }
+
+  @Test
+  void testShortRowsArePadded() {
+    grid.addRow().addValuesVar("OPV", "201905");
+
+    assertEquals(5, grid.getRow(4).size());
+    assertNull(grid.getValue(4, 3));
+  }
+
+  @Test
+  void testGetColumn() {
+    assertEquals(getList(12, 8, null, 31), grid.getColumn(2));
+  }
+
+  @Test
+  void testGetVisibleRows() {
+    List<List<Object>> rows = grid.getVisibleRows();
+
+    assertEquals(4, rows.size());
+    assertEquals(getList("Penta1", "201901", 12, 5128.0), rows.get(0));
+  }
+
+  @Test
+  void testAddColumn() {
+    grid.addColumn(1, getList(1, 2, 3, 4));
+
+    assertEquals(6, grid.getWidth());
+    assertEquals(getList("BCG", 2, "201902", 8, 3017.5, false), grid.getRow(1));
+
+    assertThrows(IllegalStateException.class, () -> grid.addColumn(getList(1, 2)));
+  }
+
+  @Test
+  void testRemoveColumn() {
+    grid.removeColumn(1);
+
+    assertEquals(4, grid.getWidth());
+    assertEquals(4, grid.getHeaders().size());
+    assertEquals(getList("BCG", 8, 3017.5, false), grid.getRow(1));
+  }
+
+  @Test
+  void testRemoveColumnWithoutRows() {
+    Grid empty =
+        new ColumnarGrid().addHeader(new GridHeader("Period")).addHeader(new GridHeader("Value"));
+
+    empty.removeColumn(1);
+
+    assertEquals(1, empty.getHeaders().size());
+    assertEquals("Period", empty.getHeaders().get(0).getName());
+  }
+
+  @Test
+  void testRetainAndRemoveColumns() {
+    grid.retainColumns(3, 0, 1);
+
+    assertEquals(3, grid.getWidth());
+    assertEquals("value", grid.getHeaders().get(0).getColumn());
+    assertEquals(getList(3017.5, "BCG", "201902"), grid.getRow(1));
+    assertEquals(1, grid.getIndexOfColumn("dx"));
+
+    grid.removeColumns(Set.of(0, 2));
+
+    assertEquals(getList("BCG"), grid.getRow(3));
+    assertThrows(IllegalArgumentException.class, () -> grid.retainColumns(1));
+  }
+
+  @Test
+  void testRemoveEmptyColumns() {
+    grid.addHeader("Empty").addAndPopulateColumn(null);
+
+    assertTrue(grid.columnIsEmpty(5));
+    assertFalse(grid.columnIsEmpty(2));
+
+    grid.removeEmptyColumns();
+
+    assertEquals(5, grid.getWidth());
+  }
+
+  @Test
+  void testAddWindowColumns() {
+    grid.addWindowColumns(
+        WindowFunction.cumulativeSum(2),
+        WindowFunction.rank(SortSpec.asc(3)),
+        WindowFunction.delta(2));
+
+    assertEquals(8, grid.getWidth());
+    assertEquals("count_cumulative", grid.getHeaders().get(5).getColumn());
+    assertEquals(getList(12.0, 20.0, 20.0, 51.0), grid.getColumn(5));
+    assertEquals(getList(3, 2, null, 1), grid.getColumn(6));
+    assertEquals(getList(null, -4.0, null, null), grid.getColumn(7));
+  }
+
+  @Test
+  void testGroupByAggregate() {
+    Grid result = grid.groupBy(0).aggregate(Aggregate.sum(3), Aggregate.max(2));
+
+    assertEquals(2, result.getHeight());
+    assertEquals("count_max", result.getHeaders().get(2).getColumn());
+    assertEquals(getList("Penta1", 5128.0, 12.0), result.getRow(0));
+    assertEquals(getList("BCG", 5890.5, 31.0), result.getRow(1));
+  }
+
+  @Test
+  void testRemoveCurrentWriteRow() {
+    grid.addRow().addValuesVar("OPV", "201905", 4, 12.0, true);
+
+    assertEquals(5, grid.getHeight());
+
+    grid.removeCurrentWriteRow();
+
+    assertEquals(4, grid.getHeight());
+    assertEquals(31, grid.getValue(3, 2));
+  }
+
+  @Test
+  void testLimitGrid() {
+    grid.limitGrid(2);
+
+    assertEquals(2, grid.getHeight());
+    assertEquals("BCG", grid.getValue(1, 0));
+
+    grid.limitGrid(1, 2);
+
+    assertEquals(1, grid.getHeight());
+    assertEquals("BCG", grid.getValue(0, 0));
+  }
+
+  @Test
+  void testSortGrid() {
+    grid.sortGrid(4, 1);
+
+    assertEquals(getList(5128.0, 3017.5, 2873.0, null), grid.getColumn(3));
+    assertEquals(getList("201901", "201902", "201904", "201903"), grid.getColumn(1));
+
+    grid.sortGrid(3, -1);
+
+    assertEquals(getList(null, 8, 12, 31), grid.getColumn(2));
+  }
+
+  @Test
+  void testSortGridMultipleKeys() {
+    grid.sortGrid(SortSpec.asc(0), SortSpec.desc(3).withNullsFirst());
+
+    assertEquals(getList("BCG", "BCG", "Penta1", "Penta1"), grid.getColumn(0));
+    assertEquals(getList("201902", "201904", "201903", "201901"), grid.getColumn(1));
+
+    grid.sortGrid(SortSpec.desc(0), SortSpec.asc(2).withNullsLast());
+
+    assertEquals(getList("201901", "201903", "201902", "201904"), grid.getColumn(1));
+    assertThrows(IllegalArgumentException.class, () -> grid.sortGrid(SortSpec.asc(5)));
+  }
+
+  @Test
+  void testSortAndLimit() {
+    grid.sortAndLimit(4, 1, 2);
+
+    assertEquals(2, grid.getHeight());
+    assertEquals(getList("201901", "201902"), grid.getColumn(1));
+
+    grid.sortAndLimit(1, SortSpec.asc(2));
+
+    assertEquals(getList(8), grid.getColumn(2));
+  }
+
+  @Test
+  void testAddCumulativeColumn() {
+    grid.addCumulativeColumn(2, true);
+
+    assertEquals(getList(12.0, 20.0, 20.0, 51.0), grid.getColumn(5));
+    assertEquals("Count_cumulative", grid.getHeaders().get(5).getName());
+  }
+
+  @Test
+  void testSubstituteMetaData() {
+    Map<Object, Object> metaData = new HashMap<>();
+    metaData.put("Penta1", "Penta 1 doses given");
+    metaData.put("201901", "January 2019");
+
+    grid.substituteMetaData(metaData);
+
+    assertEquals("Penta 1 doses given", grid.getValue(0, 0));
+    assertEquals("Penta 1 doses given", grid.getValue(2, 0));
+    assertEquals("BCG", grid.getValue(1, 0));
+    assertEquals("January 2019", grid.getValue(0, 1));
+  }
+
+  @Test
+  void testSubstituteMetaDataToSameValue() {
+    Map<Object, Object> metaData = new HashMap<>();
+    metaData.put("Penta1", "Vaccine");
+    metaData.put("BCG", "Vaccine");
+
+    grid.substituteMetaData(metaData);
+
+    assertEquals(getList("Vaccine", "Vaccine", "Vaccine", "Vaccine"), grid.getColumn(0));
+    assertEquals(Set.of("Vaccine"), grid.getUniqueValues("Data element"));
+
+    grid.getRow(1).set(0, "BCG");
+
+    assertEquals(Set.of("Vaccine", "BCG"), grid.getUniqueValues("Data element"));
+  }
+
+  @Test
+  void testSubstituteMetaDataForIndex() {
+    Map<Object, Object> metaData = new HashMap<>();
+    metaData.put("Penta1", "201801");
+
+    grid.substituteMetaData(0, 1, metaData);
+
+    assertEquals(getList("201801", "201902", "201801", "201904"), grid.getColumn(1));
+    assertEquals(getList("Penta1", "BCG", "Penta1", "BCG"), grid.getColumn(0));
+  }
+
+  @Test
+  void testGetUniqueValues() {
+    assertEquals(Set.of("Penta1", "BCG"), grid.getUniqueValues("Data element"));
+    assertEquals(Set.of(12, 8, 31), Set.copyOf(filterNull(grid.getUniqueValues("Count"))));
+  }
+
+  @Test
+  void testGetUniqueValuesAfterLimit() {
+    grid.limitGrid(1);
+
+    assertEquals(Set.of("Penta1"), grid.getUniqueValues("Data element"));
+
+    grid.addRow().addValuesVar(null, "201905");
+
+    assertEquals(new HashSet<>(getList("Penta1", null)), grid.getUniqueValues("Data element"));
+  }
+
+  @Test
+  void testGetUniqueValuesParallel() {
+    Grid grid =
+        new ColumnarGrid()
+            .addHeader(new GridHeader("Count", "count", ValueType.INTEGER, false, false))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+
+    for (int i = 0; i < 50_000; i++) {
+      grid.addRow().addValuesVar(i % 500, i % 3 == 0 ? null : (i % 40) / 4.0, "pe" + (i % 12));
+    }
+
+    Set<Object> counts = grid.getUniqueValues("Count");
+    Map<String, Set<Object>> values = grid.getUniqueValues(List.of("Value", "Period"));
+
+    assertEquals(500, counts.size());
+    assertTrue(counts.contains(499));
+    assertEquals(41, values.get("Value").size());
+    assertTrue(values.get("Value").contains(9.75));
+    assertTrue(values.get("Value").contains(null));
+    assertEquals(12, values.get("Period").size());
+  }
+
+  private static List<Object> filterNull(Set<Object> values) {
+    return values.stream().filter(Objects::nonNull).toList();
+  }
+
+  @Test
+  void testGetAsMap() {
+    Map<String, Double> map =
+        new ColumnarGrid().addRow().addValuesVar("a", "b", 1.0).getAsMap(2, "-");
+
+    assertEquals(Map.of("a-b", 1.0), map);
+    assertEquals(3017.5, grid.<Double>getAsMap(3, true).get(RowKey.of("BCG", "201902", 8, false)));
+  }
+
+  @Test
+  void testFilter() {
+    GridSelection selection =
+        grid.filter(GridPredicate.between(3, 2900, 5200).and(GridPredicate.eq(4, true)));
+
+    assertEquals(1, selection.size());
+    assertEquals(getList("Penta1", "201901", 12, 5128.0, true), selection.getRows().get(0));
+    assertEquals(
+        2, grid.filter(GridPredicate.isNotNull(2).not().or(GridPredicate.atMost(2, 8))).size());
+    assertEquals(
+        2, grid.filter(GridPredicate.eq(0, "BCG")).filter(GridPredicate.isNotNull(3)).size());
+    assertEquals(4, grid.filter(GridPredicate.matches(1, "2019.*")).toGrid().getHeight());
+  }
+
+  @Test
+  void testFilterRangeWithNaN() {
+    GridHeader header = new GridHeader("A", "a", ValueType.DOUBLE, false, false);
+    Grid columnar = new ColumnarGrid().addHeader(header).addRow().addValue(Double.NaN);
+    Grid list = new ListGrid().addHeader(header).addRow().addValue(Double.NaN);
+
+    columnar.addRow().addValue(5.0);
+    list.addRow().addValue(5.0);
+
+    assertEquals(1, columnar.filter(GridPredicate.between(0, 0, 10)).size());
+    assertEquals(1, list.filter(GridPredicate.between(0, 0, 10)).size());
+  }
+
+  @Test
+  void testQuery() {
+    Grid result =
+        grid.query()
+            .filter(GridPredicate.isNotNull(3))
+            .sort(SortSpec.asc(3))
+            .limit(2)
+            .project(0, 3)
+            .substituteMetaData(Map.of("BCG", "Bacillus Calmette-Guerin"))
+            .execute();
+
+    assertEquals(
+        List.of(
+            getList("Bacillus Calmette-Guerin", 2873.0),
+            getList("Bacillus Calmette-Guerin", 3017.5)),
+        result.getRows());
+    assertEquals(4, grid.getHeight());
+    assertEquals("BCG", grid.getValue(1, 0));
+  }
+
+  @Test
+  void testCreateIndex() {
+    GridIndex index = grid.createIndex("dx");
+
+    assertEquals(2, index.getRows("BCG").size());
+
+    grid.sortGrid(SortSpec.asc(2));
+
+    assertEquals(getList("BCG", "201902", 8, 3017.5, false), index.getRows("BCG").get(0));
+
+    grid.limitGrid(2);
+
+    assertEquals(1, index.getRows("Penta1").size());
+    assertEquals(
+        "201902", grid.createSortedIndex("pe").getRowsInRange("201902", null).get(0).get(1));
+  }
+
+  @Test
+  void testCreateBitmapIndexes() {
+    grid.createBitmapIndexes();
+
+    BitmapIndex index = grid.getBitmapIndex("dx");
+
+    assertEquals(Set.of("Penta1", "BCG"), grid.getUniqueValues("Data element"));
+    assertEquals(Map.of("Penta1", 2, "BCG", 2), index.getCounts());
+    assertEquals("[0, 1, 2, 3]", index.getBitmap(List.of("BCG", "Penta1")).toString());
+    assertEquals(Map.of("BCG", 1), index.getCounts(grid.getBitmapIndex("pe").getBitmap("201904")));
+    assertEquals(1, grid.filter(GridPredicate.eq(0, "BCG").and(GridPredicate.eq(2, 8))).size());
+
+    grid.substituteMetaData(Map.of("BCG", "Bacillus Calmette-Guerin"));
+
+    assertEquals(
+        Set.of("Penta1", "Bacillus Calmette-Guerin"), grid.getUniqueValues("Data element"));
+  }
+
+  @Test
+  void testAddAndPopulateColumnInvalidatesIndexes() {
+    Grid grid = new ColumnarGrid().addHeader(new GridHeader("a")).addHeader(new GridHeader("b"));
+
+    grid.addRow().addValue(1);
+    grid.addRow().addValue(2);
+    grid.createBitmapIndex("b");
+    grid.addAndPopulateColumn("x");
+
+    assertEquals(Set.of("x"), grid.getUniqueValues("b"));
+    assertEquals(2, grid.filter(GridPredicate.eq(1, "x")).size());
+  }
+
+  @Test
+  void testAddColumnInvalidatesIndexes() {
+    Grid grid = new ColumnarGrid().addHeader(new GridHeader("a")).addHeader(new GridHeader("b"));
+
+    grid.addRow().addValue(1);
+    grid.addRow().addValue(2);
+    grid.createBitmapIndex("b");
+    grid.addColumn(List.of("x", "y"));
+
+    assertEquals(Set.of("x", "y"), grid.getUniqueValues("b"));
+    assertEquals(1, grid.filter(GridPredicate.eq(1, "x")).size());
+  }
+
+  @Test
+  void testToCsv() throws IOException {
+    StringWriter writer = new StringWriter();
+
+    GridUtils.toCsv(grid, writer);
+
+    assertTrue(
+        writer
+            .toString()
+            .startsWith(
+                """
+                Data element,Period,Count,Value,Approved
+                Penta1,201901,12,5128.0,true
+                """),
+        writer.toString());
+  }
+
+  @Test
+  void testToJson() throws IOException {
+    String json = new ObjectMapper().writeValueAsString(grid);
+
+    assertTrue(json.contains("\"rows\":[[\"Penta1\",\"201901\",12,5128.0,true]"), json);
+    assertTrue(json.contains("\"height\":4"), json);
+  }
+}
@@ -58,15 +58,25 @@ package org.hisp.grid;
 import static org.hisp.grid.GridUtils.getList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -369,6 +379,19 @@ class GridTest {
     assertEquals(2, gridA.getVisibleRows().get(3).size());
   }
 
+  @Test
+  void testGetVisibleRowsIsView() {
+    List<List<Object>> rows = gridA.getVisibleRows();
+
+    assertEquals(getList(11, 12), rows.get(0));
+    assertEquals(2, gridA.getVisibleWidth());
+
+    gridA.getRow(0).set(1, 99);
+
+    assertEquals(getList(11, 99), rows.get(0));
+    assertThrows(UnsupportedOperationException.class, () -> rows.get(0).set(0, 1));
+  }
+
   @Test
   void testGetColumn() {
     List<Object> column1 = gridA.getColumn(1);
@@ -468,6 +491,31 @@ class GridTest {
     assertEquals(2, gridA.getWidth());
   }
 
+  @Test
+  void testRetainColumns() {
+    List<Object> row = gridA.getRow(1);
+
+    gridA.retainColumns(2, 0);
+
+    assertEquals(2, gridA.getWidth());
+    assertEquals(getList(headerC, headerA), gridA.getHeaders());
+    assertEquals(getList(23, 21), gridA.getRow(1));
+    assertEquals(getList(23, 21), row);
+    assertEquals(0, gridA.getIndexOfColumn("colC"));
+    assertThrows(IllegalArgumentException.class, () -> gridA.retainColumns(0, 0));
+    assertThrows(IllegalArgumentException.class, () -> gridA.retainColumns(2));
+  }
+
+  @Test
+  void testRemoveColumns() {
+    gridA.removeColumns(Set.of(0, 2));
+
+    assertEquals(1, gridA.getWidth());
+    assertEquals(getList(headerB), gridA.getHeaders());
+    assertEquals(getList(32), gridA.getRow(2));
+    assertThrows(IllegalArgumentException.class, () -> gridA.removeColumns(Set.of(1, 5)));
+  }
+
   @Test
   void testRemoveCurrentWriteRow() {
     assertEquals(4, gridA.getRows().size());
@@ -538,6 +586,30 @@ class GridTest {
     assertTrue(rowB.contains(31));
   }
 
+  @Test
+  void testLimitsWithMixedRowWidths() {
+    Grid grid = new ListGrid();
+    grid.addRow().addValuesVar(1, 2, 3);
+    grid.addRow().addValuesVar(4, 5, 6);
+    grid.addRow().addValuesVar(7, 8);
+    grid.addRow().addValuesVar(9, 10);
+
+    assertThrows(IllegalStateException.class, grid::getWidth);
+
+    grid.limitGrid(1, 4);
+
+    assertThrows(IllegalStateException.class, grid::getWidth);
+
+    grid.limitGrid(1, 3);
+
+    assertEquals(2, grid.getWidth());
+
+    grid.limitGrid(1);
+
+    assertEquals(1, grid.getHeight());
+    assertEquals(2, grid.getWidth());
+  }
+
   @Test
   void testSortA() {
     Grid grid = new ListGrid();
@@ -712,6 +784,273 @@ class GridTest {
     assertTrue(column.contains(140.0));
   }
 
+  @Test
+  void testAddWindowColumns() {
+    Grid grid =
+        new ListGrid().addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false));
+
+    grid.addRow().addValue(10.0);
+    grid.addRow().addValue("30");
+    grid.addRow().addValue(null);
+    grid.addRow().addValue(10);
+
+    grid.addWindowColumns(
+        WindowFunction.cumulativeSum(0),
+        WindowFunction.movingAverage(0, 2),
+        WindowFunction.rank(SortSpec.desc(0)),
+        WindowFunction.percentOfTotal(0),
+        WindowFunction.delta(0));
+
+    assertEquals(6, grid.getWidth());
+    assertEquals(6, grid.getHeaders().size());
+    assertEquals("value_moving_average", grid.getHeaders().get(2).getColumn());
+    assertEquals(ValueType.INTEGER, grid.getHeaders().get(3).getValueType());
+    assertEquals(getList(10.0, 40.0, 40.0, 50.0), grid.getColumn(1));
+    assertEquals(getList(10.0, 20.0, 30.0, 10.0), grid.getColumn(2));
+    assertEquals(getList(2, 1, null, 2), grid.getColumn(3));
+    assertEquals(getList(20.0, 60.0, null, 20.0), grid.getColumn(4));
+    assertEquals(getList(null, 20.0, null, null), grid.getColumn(5));
+    assertThrows(
+        IllegalArgumentException.class, () -> grid.addWindowColumns(WindowFunction.delta(9)));
+  }
+
+  @Test
+  void testAddMovingAverageWithLargeAndInfiniteValues() {
+    Grid grid = new ListGrid().addHeader(new GridHeader("A")).addHeader(new GridHeader("B"));
+
+    grid.addRow().addValuesVar(1e17, Double.POSITIVE_INFINITY);
+    grid.addRow().addValuesVar(1, 1);
+    grid.addRow().addValuesVar(1, 1);
+    grid.addRow().addValuesVar(1, 1);
+
+    grid.addWindowColumns(WindowFunction.movingAverage(0, 2), WindowFunction.movingAverage(1, 1));
+
+    assertEquals(getList(1e17, 5e16, 1.0, 1.0), grid.getColumn(2));
+    assertEquals(getList(Double.POSITIVE_INFINITY, 1.0, 1.0, 1.0), grid.getColumn(3));
+  }
+
+  @Test
+  void testAddCumulativesToGrid() {
+    gridA.addCumulativesToGrid(0, 2);
+
+    assertEquals(5, gridA.getWidth());
+    assertEquals("colA_cumulative", gridA.getHeaders().get(3).getColumn());
+    assertEquals(getList(11.0, 32.0, 63.0, 104.0), gridA.getColumn(3));
+    assertEquals(getList(12.0, 34.0, 66.0, 108.0), gridA.getColumn(4));
+  }
+
+  @Test
+  void testGroupByAggregate() {
+    Grid grid =
+        new ListGrid()
+            .addHeader(new GridHeader("Data element", "dx", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addRow()
+            .addValuesVar("Penta1", "201901", 10.0)
+            .addRow()
+            .addValuesVar("BCG", "201901", 4)
+            .addRow()
+            .addValuesVar("Penta1", "201902", "30")
+            .addRow()
+            .addValuesVar("BCG", "201902", null)
+            .addRow()
+            .addValuesVar(null, "201901", 2.0);
+
+    Grid result =
+        grid.groupBy(0)
+            .aggregate(
+                Aggregate.sum(2),
+                Aggregate.count(2),
+                Aggregate.avg(2),
+                Aggregate.min(2),
+                Aggregate.max(2));
+
+    assertEquals(3, result.getHeight());
+    assertEquals(6, result.getWidth());
+    assertEquals("dx", result.getHeaders().get(0).getColumn());
+    assertEquals("value_sum", result.getHeaders().get(1).getColumn());
+    assertEquals(ValueType.INTEGER, result.getHeaders().get(2).getValueType());
+    assertEquals(getList("Penta1", 40.0, 2, 20.0, 10.0, 30.0), result.getRow(0));
+    assertEquals(getList("BCG", 4.0, 1, 4.0, 4.0, 4.0), result.getRow(1));
+    assertEquals(getList(null, 2.0, 1, 2.0, 2.0, 2.0), result.getRow(2));
+
+    result = grid.groupBy(0, 1).aggregate(Aggregate.sum(2));
+
+    assertEquals(5, result.getHeight());
+    assertEquals(getList("BCG", "201902", null), result.getRow(3));
+    assertThrows(IllegalArgumentException.class, () -> grid.groupBy(3));
+  }
+
+  @Test
+  void testGroupByAggregateParallel() {
+    Grid grid = new ListGrid().addHeader("Key").addHeader("Sub").addHeader("Value");
+    Map<Integer, Long> sums = new HashMap<>();
+
+    for (int i = 0; i < 100_000; i++) {
+      int key = i % 37;
+      grid.addRow().addValuesVar("k" + key, key % 2 == 0, (long) i);
+      sums.merge(key, (long) i, Long::sum);
+    }
+
+    Grid result = grid.groupBy(0, 1).aggregate(Aggregate.sum(2), Aggregate.count(2));
+
+    assertEquals(37, result.getHeight());
+
+    for (int key = 0; key < 37; key++) {
+      List<Object> row = result.getRow(key);
+
+      assertEquals("k" + key, row.get(0));
+      assertEquals(key % 2 == 0, row.get(1));
+      assertEquals(sums.get(key).doubleValue(), row.get(2));
+      assertEquals(100_000 / 37 + (key < 100_000 % 37 ? 1 : 0), row.get(3));
+    }
+  }
+
+  @Test
+  void testPivot() {
+    Grid grid =
+        new ListGrid()
+            .addHeader(new GridHeader("Data element", "dx", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addRow()
+            .addValuesVar("Penta1", "201901", 10.0)
+            .addRow()
+            .addValuesVar("BCG", "201902", 4.0)
+            .addRow()
+            .addValuesVar("Penta1", "201902", 30.0)
+            .addRow()
+            .addValuesVar("Penta1", "201901", 5.0);
+
+    Grid result = grid.pivot(new int[] {0}, new int[] {1}, 2, AggregateType.SUM);
+
+    assertEquals(2, result.getHeight());
+    assertEquals(3, result.getWidth());
+    assertEquals("dx", result.getHeaders().get(0).getColumn());
+    assertEquals("201901", result.getHeaders().get(1).getName());
+    assertEquals("201902", result.getHeaders().get(2).getName());
+    assertEquals(getList("Penta1", 15.0, 30.0), result.getRow(0));
+    assertEquals(getList("BCG", null, 4.0), result.getRow(1));
+
+    result = grid.pivot(new int[] {}, new int[] {0, 1}, 2, AggregateType.COUNT);
+
+    assertEquals(1, result.getHeight());
+    assertEquals("Penta1_201902", result.getHeaders().get(2).getColumn());
+    assertEquals(getList(2, 1, 1), result.getRow(0));
+
+    result = grid.pivot(new int[] {0}, new int[] {1}, 2, AggregateType.COUNT);
+
+    assertEquals(getList("Penta1", 2, 1), result.getRow(0));
+    assertEquals(getList("BCG", null, 1), result.getRow(1));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> grid.pivot(new int[] {0}, new int[] {}, 2, AggregateType.SUM));
+  }
+
+  @Test
+  void testPivotLarge() {
+    Grid grid = new ListGrid().addHeader("Org unit").addHeader("Period").addHeader("Value");
+
+    for (int ou = 0; ou < 2000; ou++) {
+      for (int pe = 0; pe < 100; pe++) {
+        grid.addRow().addValuesVar("ou" + ou, "pe" + pe, ou + pe);
+      }
+    }
+
+    Grid result = grid.pivot(new int[] {0}, new int[] {1}, 2, AggregateType.MAX);
+
+    assertEquals(2000, result.getHeight());
+    assertEquals(101, result.getWidth());
+    assertEquals("pe42", result.getHeaders().get(43).getName());
+    assertEquals(1541.0, result.getValue(1499, 43));
+  }
+
+  @Test
+  void testJoin() {
+    Grid values =
+        new ListGrid()
+            .addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addRow()
+            .addValuesVar("Bo", "201901", 10.0)
+            .addRow()
+            .addValuesVar("Bo", "201902", 12.0)
+            .addRow()
+            .addValuesVar("Ke", "201901", 7.0)
+            .addRow()
+            .addValuesVar(null, "201901", 1.0);
+    Grid targets =
+        new ListGrid()
+            .addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true))
+            .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+            .addRow()
+            .addValuesVar("201901", "Bo", 20.0)
+            .addRow()
+            .addValuesVar("201901", "Ke", 8.0)
+            .addRow()
+            .addValuesVar("201901", "Ke", 9.0)
+            .addRow()
+            .addValuesVar("201903", "Ma", 5.0);
+
+    int[] leftKeys = {0, 1};
+    int[] rightKeys = {1, 0};
+
+    Grid inner = values.join(targets, JoinSpec.inner(leftKeys, rightKeys));
+
+    assertEquals(4, inner.getWidth());
+    assertEquals("value_2", inner.getHeaders().get(3).getColumn());
+    assertEquals("Value_2", inner.getHeaders().get(3).getName());
+    assertEquals(3, inner.getHeight());
+    assertEquals(getList("Bo", "201901", 10.0, 20.0), inner.getRow(0));
+    assertEquals(getList("Ke", "201901", 7.0, 8.0), inner.getRow(1));
+    assertEquals(getList("Ke", "201901", 7.0, 9.0), inner.getRow(2));
+
+    Grid left = values.join(targets, JoinSpec.left(leftKeys, rightKeys));
+
+    assertEquals(5, left.getHeight());
+    assertEquals(getList("Bo", "201902", 12.0, null), left.getRow(1));
+    assertEquals(getList(null, "201901", 1.0, null), left.getRow(4));
+
+    Grid full = values.join(targets, JoinSpec.full(leftKeys, rightKeys));
+
+    assertEquals(6, full.getHeight());
+    assertEquals(getList("Ma", "201903", null, 5.0), full.getRow(5));
+
+    Grid reversed = targets.join(values, JoinSpec.inner(rightKeys, leftKeys));
+
+    assertEquals(getList("201901", "Ke", 9.0, 7.0), reversed.getRow(2));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> values.join(targets, JoinSpec.inner(new int[] {0}, new int[] {3})));
+  }
+
+  @Test
+  void testJoinParallel() {
+    Grid small = new ListGrid().addHeader("Key").addHeader("Name");
+    Grid large = new ListGrid().addHeader("Key").addHeader("Value");
+
+    for (int i = 0; i < 100; i++) {
+      small.addRow().addValuesVar(i, "n" + i);
+    }
+
+    for (int i = 0; i < 50_000; i++) {
+      large.addRow().addValuesVar(i % 200, i);
+    }
+
+    Grid result = large.join(small, JoinSpec.inner(new int[] {0}, new int[] {0}));
+
+    assertEquals(25_000, result.getHeight());
+    assertEquals(getList(1, 1, "n1"), result.getRow(1));
+
+    result = small.join(large, JoinSpec.left(new int[] {0}, new int[] {0}));
+
+    assertEquals(25_000, result.getHeight());
+    assertEquals(getList(0, "n0", 200), result.getRow(1));
+  }
+
   @Test
   void testGetMetaColumnIndexes() {
     List<Integer> expected = new ArrayList<>();
@@ -737,6 +1076,27 @@ class GridTest {
     assertEquals(expected, gridA.getUniqueValues("ColB"));
   }
 
+  @Test
+  void testGetUniqueValuesBatch() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+
+    for (int i = 0; i < 50_000; i++) {
+      grid.addRow().addValuesVar("ou" + (i % 100), i % 7 == 0 ? null : i % 1000);
+    }
+
+    Map<String, Set<Object>> values = grid.getUniqueValues(List.of("Value", "Org unit", "Period"));
+
+    assertEquals(List.of("Value", "Org unit", "Period"), List.copyOf(values.keySet()));
+    assertEquals(100, values.get("Org unit").size());
+    assertEquals(1001, values.get("Value").size());
+    assertTrue(values.get("Value").contains(null));
+    assertTrue(values.get("Period").isEmpty());
+    assertEquals(values.get("Value"), grid.getUniqueValues("Value"));
+    assertTrue(grid.getUniqueValues("Period").isEmpty());
+  }
+
   @Test
   void testGetAsMap() {
     Map<String, Integer> map = gridA.getAsMap(2, "-");
@@ -748,6 +1108,407 @@ class GridTest {
     assertEquals(Integer.valueOf(43), map.get("41-42"));
   }
 
+  @Test
+  void testGetAsMapWithRowKeys() {
+    Map<RowKey, Integer> map = gridA.getAsMap(1, false);
+
+    assertEquals(4, map.size());
+    assertEquals(Integer.valueOf(12), map.get(RowKey.of(11, 13)));
+    assertEquals(Integer.valueOf(42), map.get(RowKey.of(41, 43)));
+    assertEquals(null, map.get(RowKey.of(41, 42)));
+    assertThrows(IllegalArgumentException.class, () -> gridA.getAsMap(3, false));
+
+    Grid grid = new ListGrid();
+
+    for (int i = 0; i < 20_000; i++) {
+      grid.addRow().addValuesVar("k" + (i % 5000), i % 5000 % 7, i);
+    }
+
+    Map<RowKey, Integer> parallel = grid.getAsMap(2, true);
+
+    assertEquals(5000, parallel.size());
+    assertEquals(Integer.valueOf(15_001), parallel.get(RowKey.of("k1", 1)));
+    assertEquals(grid.getAsMap(2, false), parallel);
+  }
+
+  @Test
+  void testFilter() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Name", "name", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.addRow().addValuesVar("alpha", 10);
+    grid.addRow().addValuesVar("beta", 20);
+    grid.addRow().addValuesVar("gamma", null);
+    grid.addRow().addValuesVar("alpine", 40);
+    grid.addRow().addValuesVar(null, 50);
+
+    assertEquals(2, grid.filter(GridPredicate.between(1, 15, 45)).size());
+    assertEquals(3, grid.filter(GridPredicate.atLeast(1, 20)).size());
+    assertEquals(1, grid.filter(GridPredicate.atMost(1, 10)).size());
+    assertEquals(1, grid.filter(GridPredicate.eq(0, "beta")).size());
+    assertEquals(1, grid.filter(GridPredicate.eq(1, null)).size());
+    assertEquals(2, grid.filter(GridPredicate.in(0, List.of("beta", "gamma"))).size());
+    assertEquals(1, grid.filter(GridPredicate.isNull(0)).size());
+    assertEquals(4, grid.filter(GridPredicate.isNotNull(1)).size());
+    assertEquals(2, grid.filter(GridPredicate.matches(0, "al.*")).size());
+    assertEquals(
+        3, grid.filter(GridPredicate.eq(0, "beta").or(GridPredicate.atLeast(1, 40))).size());
+    assertEquals(4, grid.filter(GridPredicate.eq(0, "beta").not()).size());
+
+    GridSelection selection =
+        grid.filter(GridPredicate.matches(0, "al.*").and(GridPredicate.isNotNull(1)));
+
+    assertEquals(List.of(getList("alpha", 10), getList("alpine", 40)), selection.getRows());
+
+    GridSelection chained = selection.filter(GridPredicate.atLeast(1, 20));
+
+    assertEquals(1, chained.size());
+    assertEquals(2, selection.size());
+    assertTrue(chained.isSelected(3));
+    assertFalse(chained.isSelected(0));
+
+    Grid result = chained.toGrid();
+
+    assertEquals(1, result.getHeight());
+    assertEquals(2, result.getHeaders().size());
+    assertEquals(getList("alpine", 40), result.getRow(0));
+    assertThrows(IllegalArgumentException.class, () -> grid.filter(GridPredicate.isNull(2)));
+  }
+
+  @Test
+  void testQuery() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+
+    Random random = new Random(7);
+
+    for (int i = 0; i < 20_000; i++) {
+      grid.addRow().addValuesVar("ou" + (i % 13), "pe" + (i % 4), random.nextInt(1000));
+    }
+
+    Map<Object, Object> metaData = Map.of("ou1", "Bo", "ou2", "Bombali", "Value", "Doses");
+
+    Grid result =
+        grid.query()
+            .filter(GridPredicate.in(0, List.of("ou1", "ou2")))
+            .filter(GridPredicate.atLeast(2, 100))
+            .sort(SortSpec.asc(1))
+            .sort(SortSpec.desc(2))
+            .limit(25)
+            .project(2, 0)
+            .substituteMetaData(metaData)
+            .execute();
+
+    Grid expected = new ListGrid();
+    expected.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    expected.addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+    expected.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.getRows().stream()
+        .filter(row -> List.of("ou1", "ou2").contains(row.get(0)) && (int) row.get(2) >= 100)
+        .forEach(row -> expected.addRow().addValuesAsList(row));
+    expected.sortGrid(SortSpec.desc(2), SortSpec.asc(1)).limitGrid(25).retainColumns(2, 0);
+    expected.substituteMetaData(metaData);
+
+    assertEquals(20_000, grid.getHeight());
+    assertEquals(25, result.getHeight());
+    assertEquals("Doses", result.getHeaders().get(0).getName());
+    assertEquals("Org unit", result.getHeaders().get(1).getName());
+    assertEquals(expected.getRows(), result.getRows());
+    assertEquals(
+        0,
+        grid.query().filter(GridPredicate.isNull(0)).sort(SortSpec.asc(2)).execute().getHeight());
+    assertThrows(IllegalArgumentException.class, () -> grid.query().project(3).execute());
+    assertThrows(IllegalStateException.class, () -> grid.query().limit(-1));
+  }
+
+  @Test
+  void testQueryAggregate() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.addRow().addValuesVar("ou1", 10);
+    grid.addRow().addValuesVar("ou2", 20);
+    grid.addRow().addValuesVar("ou1", 30);
+    grid.addRow().addValuesVar("ou3", 5);
+    grid.addRow().addValuesVar("ou2", 1);
+
+    Grid result =
+        grid.query()
+            .filter(GridPredicate.atLeast(1, 5))
+            .aggregate(new int[] {0}, Aggregate.sum(1), Aggregate.count(1))
+            .sort(SortSpec.desc(1))
+            .limit(2)
+            .substituteMetaData(Map.of("ou1", "Bo"))
+            .execute();
+
+    assertEquals(
+        List.of("ou", "value_sum", "value_count"),
+        result.getHeaders().stream().map(GridHeader::getColumn).toList());
+    assertEquals(List.of(getList("Bo", 40.0, 2), getList("ou2", 20.0, 1)), result.getRows());
+    assertThrows(
+        IllegalStateException.class,
+        () -> grid.query().aggregate(new int[] {0}).aggregate(new int[] {1}));
+  }
+
+  @Test
+  void testQueryInOrderOfOperations() {
+    Map<String, String> metaData = Map.of("ou1", "Moyamba", "ou2", "Bombali", "ou3", "Kenema");
+    GridPredicate atLeast = GridPredicate.atLeast(2, 20);
+
+    Grid result =
+        createQueryGrid().query().substituteMetaData(metaData).sort(SortSpec.asc(0)).execute();
+    Grid expected = createQueryGrid().substituteMetaData(metaData).sortGrid(SortSpec.asc(0));
+
+    assertEquals("Bombali", result.getValue(0, 0));
+    assertEquals(expected.getRows(), result.getRows());
+
+    result = createQueryGrid().query().limit(3).filter(atLeast).execute();
+    expected = createQueryGrid().limitGrid(3).filter(atLeast).toGrid();
+
+    assertEquals(List.of(getList("ou2", "pe1", 20)), result.getRows());
+    assertEquals(expected.getRows(), result.getRows());
+
+    result =
+        createQueryGrid()
+            .query()
+            .sort(SortSpec.desc(2))
+            .limit(4)
+            .project(2, 0)
+            .substituteMetaData(1, 1, metaData)
+            .filter(GridPredicate.eq(1, "Moyamba"))
+            .sort(SortSpec.asc(0))
+            .execute();
+    expected = createQueryGrid().sortGrid(SortSpec.desc(2)).limitGrid(4).retainColumns(2, 0);
+    expected.substituteMetaData(1, 1, metaData);
+    expected = expected.filter(GridPredicate.eq(1, "Moyamba")).toGrid().sortGrid(SortSpec.asc(0));
+
+    assertEquals(List.of(getList(30, "Moyamba"), getList(40, "Moyamba")), result.getRows());
+    assertEquals(expected.getRows(), result.getRows());
+
+    result =
+        createQueryGrid()
+            .query()
+            .project(2, 0)
+            .aggregate(new int[] {1}, Aggregate.sum(0))
+            .sort(SortSpec.desc(1))
+            .limit(1)
+            .execute();
+
+    assertEquals(List.of(getList("ou1", 80.0)), result.getRows());
+  }
+
+  private static Grid createQueryGrid() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.addRow().addValuesVar("ou1", "pe1", 10);
+    grid.addRow().addValuesVar("ou2", "pe1", 20);
+    grid.addRow().addValuesVar("ou3", "pe1", 5);
+    grid.addRow().addValuesVar("ou1", "pe2", 30);
+    grid.addRow().addValuesVar("ou2", "pe2", 25);
+    grid.addRow().addValuesVar("ou1", "pe3", 40);
+    return grid;
+  }
+
+  @Test
+  void testCreateIndex() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.addRow().addValuesVar("ou1", "pe1", 1);
+    grid.addRow().addValuesVar("ou2", "pe1", 2);
+    grid.addRow().addValuesVar("ou1", "pe2", 3);
+    grid.addRow().addValuesVar("ou1", "pe1", 4);
+
+    GridIndex index = grid.createIndex("ou", "pe");
+    GridIndex orgUnits = grid.createIndex("ou");
+
+    assertEquals(3, index.getKeyCount());
+    assertEquals(List.of(0, 3), toList(index.getRowIndexes("ou1", "pe1")));
+    assertEquals(List.of(getList("ou2", "pe1", 2)), index.getRows("ou2", "pe1"));
+    assertEquals(0, index.getRowIndexes("ou3", "pe1").length);
+
+    grid.addRow().addValuesVar("ou2", "pe1", 5);
+
+    assertEquals(List.of(1, 4), toList(index.getRowIndexes("ou2", "pe1")));
+
+    grid.limitGrid(4);
+
+    assertEquals(List.of(1), toList(index.getRowIndexes("ou2", "pe1")));
+
+    grid.sortGrid(SortSpec.desc(2));
+
+    assertEquals(List.of(0, 1, 3), toList(orgUnits.getRowIndexes("ou1")));
+    assertEquals(List.of(0, 3), toList(index.getRowIndexes("ou1", "pe1")));
+
+    grid.removeColumn(2);
+
+    assertEquals(List.of(2), toList(orgUnits.getRowIndexes("ou2")));
+
+    grid.removeColumn(1);
+
+    assertThrows(IllegalStateException.class, () -> index.getRowIndexes("ou1", "pe1"));
+    assertThrows(IllegalArgumentException.class, () -> orgUnits.getRowIndexes("ou1", "pe1"));
+    assertThrows(IllegalArgumentException.class, () -> grid.createIndex("dx"));
+  }
+
+  @Test
+  void testCreateIndexWithRowBeingWritten() {
+    Grid grid = new ListGrid().addHeader(new GridHeader("a"));
+    GridIndex index = grid.createIndex("a");
+
+    grid.addRow();
+
+    assertEquals(1, index.getKeyCount());
+
+    grid.addValue("x");
+
+    assertEquals(List.of(0), toList(index.getRowIndexes("x")));
+    assertEquals(0, index.getRowIndexes((Object) null).length);
+    assertEquals(1, index.getKeyCount());
+
+    grid.addRow().addValue("x");
+
+    assertEquals(List.of(0, 1), toList(index.getRowIndexes("x")));
+  }
+
+  @Test
+  void testCreateSortedIndex() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Name", "name", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+    grid.addRow().addValuesVar("a", 30);
+    grid.addRow().addValuesVar("b", 10);
+    grid.addRow().addValuesVar("c", null);
+    grid.addRow().addValuesVar("d", 20);
+    grid.addRow().addValuesVar("e", 10);
+
+    SortedGridIndex index = grid.createSortedIndex("value");
+
+    assertEquals(List.of(1, 4, 3), toList(index.getRowIndexesInRange(10, 20)));
+    assertEquals(List.of(3, 0), toList(index.getRowIndexesInRange(15, null)));
+    assertEquals(List.of(1, 4, 3, 0), toList(index.getRowIndexesInRange(null, null)));
+    assertEquals(List.of(2), toList(index.getRowIndexes((Object) null)));
+    assertEquals(List.of(getList("b", 10), getList("e", 10)), index.getRowsInRange(null, 10));
+
+    grid.addRow().addValuesVar("f", 15);
+
+    assertEquals(List.of(1, 4, 5, 3), toList(index.getRowIndexesInRange(10, 20)));
+  }
+
+  @Test
+  void testCreateSortedIndexWithValuesNotComparable() {
+    Object value = new Object();
+    Grid grid = new ListGrid().addHeader(new GridHeader("a"));
+    grid.addRow().addValue(value);
+    grid.addRow().addValue(null);
+    grid.addRow().addValue("x");
+
+    SortedGridIndex index = grid.createSortedIndex("a");
+
+    assertEquals(List.of(2), toList(index.getRowIndexesInRange(null, null)));
+    assertEquals(List.of(0), toList(index.getRowIndexes(value)));
+    assertEquals(List.of(1), toList(index.getRowIndexes((Object) null)));
+    assertEquals(3, index.getKeyCount());
+  }
+
+  @Test
+  void testCreateBitmapIndexes() {
+    Grid grid = new ListGrid();
+    grid.addHeader(new GridHeader("Org unit", "ou", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Period", "pe", ValueType.TEXT, false, true));
+    grid.addHeader(new GridHeader("Value", "value", ValueType.INTEGER, false, false));
+
+    for (int i = 0; i < 200_000; i++) {
+      grid.addRow().addValuesVar(i % 10 == 0 ? null : "ou" + (i % 3), "pe" + (i % 4), i);
+    }
+
+    grid.createBitmapIndexes();
+
+    BitmapIndex orgUnits = grid.getBitmapIndex("ou");
+    BitmapIndex periods = grid.getBitmapIndex("pe");
+
+    assertEquals(null, grid.getBitmapIndex("value"));
+    assertEquals(
+        new HashSet<>(getList("ou0", "ou1", "ou2", null)), grid.getUniqueValues("Org unit"));
+
+    RowBitmap ou1 = orgUnits.getBitmap("ou1");
+    RowBitmap pe2 = periods.getBitmap("pe2");
+    int expected = 0;
+
+    for (int i = 0; i < 200_000; i++) {
+      if (i % 10 != 0 && i % 3 == 1 && i % 4 == 2) {
+        expected++;
+      }
+    }
+
+    assertEquals(expected, ou1.andCardinality(pe2));
+    assertEquals(expected, ou1.and(pe2).getCardinality());
+    assertEquals(expected, periods.getCounts(ou1).get("pe2"));
+    assertEquals(
+        ou1.getCardinality() + pe2.getCardinality() - expected, ou1.or(pe2).getCardinality());
+    assertEquals(ou1.getCardinality() - expected, ou1.andNot(pe2).getCardinality());
+    assertEquals(20_000, orgUnits.getCounts().get(null));
+    assertEquals(
+        orgUnits.getBitmap(List.of("ou1", "ou2")).getCardinality(),
+        orgUnits.getCounts().get("ou1") + orgUnits.getCounts().get("ou2"));
+    assertEquals(
+        expected,
+        grid.filter(GridPredicate.eq(0, "ou1").and(GridPredicate.in(1, List.of("pe2")))).size());
+    assertEquals(20_000, grid.filter(GridPredicate.isNull(0)).size());
+
+    grid.limitGrid(100_000);
+
+    assertEquals(50_000, periods.getCounts().get("pe2") + periods.getCounts().get("pe0"));
+    assertTrue(pe2.contains(199_998));
+    assertFalse(periods.getBitmap("pe2").contains(199_998));
+
+    grid.removeColumn(0);
+
+    assertEquals(Set.of("pe0", "pe1", "pe2", "pe3"), grid.getUniqueValues("Period"));
+    assertEquals(
+        List.of(0, 4, 70_000),
+        toList(
+            grid.getBitmapIndex("pe")
+                .getBitmap("pe0")
+                .and(RowBitmap.of(0, 1, 2, 4, 70_000))
+                .toArray()));
+  }
+
+  private static List<Integer> toList(int[] values) {
+    return Arrays.stream(values).boxed().toList();
+  }
+
+  @Test
+  void testAddAndPopulateColumnInvalidatesIndexes() {
+    Grid grid = new ListGrid().addHeader(new GridHeader("a")).addHeader(new GridHeader("b"));
+
+    grid.addRow().addValue(1);
+    grid.addRow().addValue(2);
+    grid.createBitmapIndex("b");
+    grid.addAndPopulateColumn("x");
+
+    assertEquals(Set.of("x"), grid.getUniqueValues("b"));
+    assertEquals(2, grid.filter(GridPredicate.eq(1, "x")).size());
+  }
+
+  @Test
+  void testAddColumnInvalidatesIndexes() {
+    Grid grid = new ListGrid().addHeader(new GridHeader("a")).addHeader(new GridHeader("b"));
+
+    grid.addRow().addValue(1);
+    grid.addRow().addValue(2);
+    grid.createBitmapIndex("b");
+    grid.addColumn(List.of("x", "y"));
+
+    assertEquals(Set.of("x", "y"), grid.getUniqueValues("b"));
+    assertEquals(1, grid.filter(GridPredicate.eq(1, "x")).size());
+  }
+
   @Test
   void testAddValuesAsList() {
     Grid grid = new ListGrid();
@@ -760,4 +1521,173 @@ class GridTest {
     assertEquals("colB1", grid.getRow(0).get(1));
     assertEquals("colC2", grid.getRow(1).get(2));
   }
+
+  @Test
+  void testSerializeRows() throws Exception {
+    Grid grid = new ListGrid();
+
+    grid.addRow()
+        .addValuesVar(
+            "a", 1, 2L, 1.5, true, null, (short) 3, (byte) 4, 2.5f, new BigDecimal("1.50"));
+    grid.addRow()
+        .addValuesVar(
+            new Date(1551916800123L),
+            new java.sql.Date(1551916800123L),
+            LocalDate.of(2019, 3, 7),
+            LocalDateTime.of(2019, 3, 7, 10, 15),
+            Instant.ofEpochMilli(1551916800123L),
+            null,
+            null,
+            null,
+            null,
+            null);
+
+    ObjectMapper mapper =
+        new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    String json = mapper.writeValueAsString(grid);
+    assertTrue(json.contains("[\"a\",1,2,1.5,true,null,3,4,2.5,1.50]"), json);
+    assertTrue(
+        json.contains(
+            "[\"2019-03-07T00:00:00.123+00:00\",\"2019-03-07\",\"2019-03-07\","
+                + "\"2019-03-07T10:15:00\",\"2019-03-07T00:00:00.123Z\",null,null,null,null,null]"),
+        json);
+
+    String gridJson =
+        new ObjectMapper()
+            .writeValueAsString(new ListGrid().addRow().addValuesVar(new Date(1551916800123L), 7));
+    assertTrue(gridJson.contains("\"rows\":[[1551916800123,7]]"), gridJson);
+  }
+
+  @Test
+  void testVerifyGridState() {
+    Grid grid = new ListGrid();
+
+    grid.addRow().addValuesVar(1, 2, 3);
+    grid.addRow().addValuesVar(4, 5);
+
+    assertThrows(IllegalStateException.class, grid::getWidth);
+
+    grid.addValue(6);
+
+    assertEquals(3, grid.getWidth());
+
+    grid.addRow().addValuesVar(7, 8, 9).removeCurrentWriteRow();
+
+    assertEquals(3, grid.getWidth());
+
+    grid.getRow(1).add(10);
+
+    assertThrows(IllegalStateException.class, () -> grid.addAndPopulateColumn(0).getWidth());
+  }
+
+  @Test
+  void testGetIndexOfColumn() {
+    assertEquals(0, gridA.getIndexOfColumn("colA"));
+    assertEquals(2, gridA.getIndexOfColumn("colC"));
+    assertEquals(-1, gridA.getIndexOfColumn("ColC"));
+    assertEquals(2, gridA.getIndexOfHeader("ColC"));
+
+    gridA.removeColumn(0);
+
+    assertEquals(-1, gridA.getIndexOfColumn("colA"));
+    assertEquals(1, gridA.getIndexOfColumn("colC"));
+
+    gridA.substituteMetaData(Map.of("ColB", "Column B"));
+
+    assertEquals(0, gridA.getIndexOfHeader("Column B"));
+    assertEquals(-1, gridA.getIndexOfHeader("ColB"));
+
+    gridA.getHeaders().get(1).setColumn("colX");
+
+    assertEquals(1, gridA.getIndexOfColumn("colX"));
+  }
+
+  @Test
+  void testGetValueByColumn() {
+    Integer value = gridA.getValue(1, "colB");
+
+    assertEquals(22, value);
+    assertThrows(IllegalArgumentException.class, () -> gridA.getValue(1, "colX"));
+  }
+
+  @Test
+  void testSortGridMultipleKeys() {
+    Grid grid = new ListGrid();
+    grid.addRow().addValuesVar("B", 2, "r1");
+    grid.addRow().addValuesVar("A", null, "r2");
+    grid.addRow().addValuesVar("B", 1, "r3");
+    grid.addRow().addValuesVar(null, 3, "r4");
+    grid.addRow().addValuesVar("A", 2, "r5");
+    grid.addRow().addValuesVar("B", 1, "r6");
+
+    grid.sortGrid(SortSpec.asc(0), SortSpec.desc(1));
+
+    assertEquals(getList("r4", "r5", "r2", "r1", "r3", "r6"), grid.getColumn(2));
+
+    grid.sortGrid(SortSpec.asc(0).withNullsLast(), SortSpec.asc(1).withNullsLast());
+
+    assertEquals(getList("r5", "r2", "r3", "r6", "r1", "r4"), grid.getColumn(2));
+  }
+
+  @Test
+  void testSortSpecWithNullsIsImmutable() {
+    SortSpec spec = SortSpec.asc(0);
+    SortSpec nullsLast = spec.withNullsLast();
+
+    assertTrue(spec.isNullsFirst());
+    assertFalse(nullsLast.isNullsFirst());
+    assertTrue(nullsLast.withNullsFirst().isNullsFirst());
+    assertFalse(nullsLast.isNullsFirst());
+  }
+
+  @Test
+  void testSortGridParallel() {
+    Random random = new Random(42);
+    Grid grid = new ListGrid();
+
+    for (int i = 0; i < 50_000; i++) {
+      grid.addRow()
+          .addValuesVar(
+              random.nextInt(20) == 0 ? null : random.nextInt(100),
+              random.nextDouble(),
+              "p" + random.nextInt(12),
+              i);
+    }
+
+    List<List<Object>> expected = new ArrayList<>(grid.getRows());
+    expected.sort(
+        Comparator.comparing((List<Object> row) -> (String) row.get(2))
+            .thenComparing(
+                row -> (Integer) row.get(0), Comparator.nullsLast(Comparator.reverseOrder())));
+
+    grid.sortGrid(SortSpec.asc(2), SortSpec.desc(0));
+
+    assertEquals(expected, grid.getRows());
+  }
+
+  @Test
+  void testSortAndLimit() {
+    Random random = new Random(7);
+    Grid gridA = new ListGrid();
+    Grid gridB = new ListGrid();
+
+    for (int i = 0; i < 40_000; i++) {
+      Object value = random.nextInt(10) == 0 ? null : random.nextInt(500);
+      gridA.addRow().addValuesVar(value, i);
+      gridB.addRow().addValuesVar(value, i);
+    }
+
+    gridA.sortGrid(1, 1).limitGrid(100);
+    gridB.sortAndLimit(1, 1, 100);
+
+    assertEquals(100, gridB.getHeight());
+    assertEquals(gridA.getRows(), gridB.getRows());
+
+    gridA.sortGrid(SortSpec.asc(0)).limitGrid(10);
+    gridB.sortAndLimit(10, SortSpec.asc(0));
+
+    assertEquals(gridA.getRows(), gridB.getRows());
+    assertThrows(IllegalStateException.class, () -> gridB.sortAndLimit(-1, SortSpec.asc(0)));
+  }
 }
@@ -27,18 +27,34 @@
  */
 package org.hisp.grid;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 import org.hisp.grid.options.CsvWriteOptions;
 import org.hisp.grid.options.HtmlWriteOptions;
+import org.hisp.grid.options.JsonWriteOptions;
+import org.hisp.grid.writer.GridWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class GridUtilsTest {
 
+  @TempDir private Path directory;
+
   private Grid grid;
 
   @BeforeEach
@@ -96,6 +112,196 @@ class GridUtilsTest {
         output);
   }
 
+  @Test
+  void testToCsvQualifyingAndTypes() throws IOException {
+    Grid grid =
+        new ListGrid()
+            .addHeader("A")
+            .addHeader("B")
+            .addHeader("C")
+            .addHeader("D")
+            .addRow()
+            .addValuesVar("", "a\"b", "a,b", null)
+            .addRow()
+            .addValuesVar("#a", "#b", " c ", "a\nb")
+            .addRow()
+            .addValuesVar(-42, 7L, 3.0, true)
+            .addRow()
+            .addValuesVar(1.5, -0.0, 1.0e7, LocalDate.of(2019, 3, 7));
+    StringWriter writer = new StringWriter();
+
+    GridUtils.toCsv(grid, writer);
+
+    String ls = System.lineSeparator();
+    assertEquals(
+        "A,B,C,D"
+            + ls
+            + "\"\",\"a\"\"b\",\"a,b\","
+            + ls
+            + "\"#a\",#b,c,\"a\nb\""
+            + ls
+            + "-42,7,3.0,true"
+            + ls
+            + "1.5,-0.0,1.0E7,2019-03-07"
+            + ls,
+        writer.toString());
+  }
+
+  @Test
+  void testToJson() throws IOException {
+    grid.addMetaData("key", "value");
+    StringWriter writer = new StringWriter();
+
+    GridUtils.toJson(grid, writer);
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    assertEquals(mapper.valueToTree(grid), mapper.readTree(writer.toString()));
+  }
+
+  @Test
+  void testToJsonWithOptions() throws IOException {
+    Grid grid =
+        new ListGrid()
+            .addHeader(new GridHeader("A", "a", ValueType.TEXT, true, false))
+            .addHeader(new GridHeader("B", "b", ValueType.INTEGER, false, false))
+            .addMetaData("key", "value");
+
+    for (int i = 0; i < 5; i++) {
+      grid.addRow().addValuesVar("a" + i, i);
+    }
+
+    StringWriter writer = new StringWriter();
+    JsonWriteOptions options =
+        JsonWriteOptions.standard().withoutMetaData().withoutHiddenColumns().withFlushRows(2);
+
+    GridUtils.toJson(grid, writer, options);
+
+    assertEquals(
+        "{\"title\":null,\"subtitle\":null,\"table\":null,\"headers\":[{\"name\":\"B\","
+            + "\"column\":\"b\",\"valueType\":\"INTEGER\",\"hidden\":false,\"meta\":false}],"
+            + "\"height\":5,\"width\":1,\"rows\":[[0],[1],[2],[3],[4]]}",
+        writer.toString());
+
+    writer = new StringWriter();
+    GridUtils.toJson(grid, writer, JsonWriteOptions.standard().withPrettyPrint());
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    assertTrue(writer.toString().startsWith("{\n  \"title\" : null,\n"), writer.toString());
+    assertEquals(mapper.valueToTree(grid), mapper.readTree(writer.toString()));
+  }
+
+  @Test
+  void testSortExternally() throws IOException {
+    Grid grid = new ListGrid().addHeader("A").addHeader("B").addHeader("C");
+    Grid sorted = new ListGrid().addHeader("A").addHeader("B").addHeader("C");
+
+    for (int i = 0; i < 5000; i++) {
+      grid.addRow().addValuesVar(i % 7 == 0 ? null : "v" + (i % 13), (i * 31) % 101, i);
+      sorted.addRow().addValuesVar(i % 7 == 0 ? null : "v" + (i % 13), (i * 31) % 101, i);
+    }
+
+    SortSpec[] specs = {SortSpec.asc(0), SortSpec.desc(1)};
+    List<List<Object>> expected = sorted.sortGrid(specs).getRows();
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, 16 * 1024, directory, specs)) {
+      assertTrue(rows.getRunCount() > 1, "Runs: " + rows.getRunCount());
+
+      List<List<Object>> actual = new ArrayList<>();
+      rows.forEach(actual::add);
+
+      assertEquals(expected, actual);
+      assertEquals(expected.get(0), rows.iterator().next());
+    }
+
+    SortedRows closedRows = GridUtils.sortExternally(grid, 16 * 1024, directory, specs);
+    Iterator<List<Object>> iterator = closedRows.iterator();
+    iterator.next();
+    closedRows.close();
+
+    assertThrows(IllegalStateException.class, iterator::hasNext);
+    assertThrows(IllegalStateException.class, iterator::next);
+    assertThrows(IllegalStateException.class, closedRows::iterator);
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, Long.MAX_VALUE, specs)) {
+      assertEquals(0, rows.getRunCount());
+      assertEquals(expected.get(0), rows.iterator().next());
+    }
+  }
+
+  private enum Level {
+    LOW,
+    MEDIUM,
+    HIGH
+  }
+
+  @Test
+  void testSortExternallyWithUnsupportedSortValues() throws IOException {
+    Grid grid = new ListGrid().addHeader("A").addHeader("B");
+
+    for (int i = 0; i < 60; i++) {
+      grid.addRow().addValuesVar(Level.values()[(i * 7) % 3], i);
+    }
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> GridUtils.sortExternally(grid, 400, directory, SortSpec.desc(0)));
+
+    try (Stream<Path> files = Files.list(directory)) {
+      assertEquals(0, files.count());
+    }
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, 400, directory, SortSpec.desc(1))) {
+      assertTrue(rows.getRunCount() > 1, "Runs: " + rows.getRunCount());
+      assertEquals(List.of("HIGH", 59), rows.iterator().next());
+    }
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, Long.MAX_VALUE, SortSpec.desc(0))) {
+      assertEquals(Level.HIGH, rows.iterator().next().get(0));
+    }
+  }
+
+  @Test
+  void testToCsvWithSortedRows() throws IOException {
+    StringWriter writer = new StringWriter();
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, 64, directory, SortSpec.asc(1))) {
+      GridUtils.toCsv(grid, rows, writer, CsvWriteOptions.standard());
+    }
+
+    String ls = System.lineSeparator();
+    assertEquals(
+        "Name,Period,Organisation unit,Value"
+            + ls
+            + "Penta1 doses given,Apr to Jun 2019,Bombali,5128.0"
+            + ls
+            + "Fully Immunized child,Jul to Sep 2019,Moyamba,3357.0"
+            + ls
+            + "Fully Immunized child,Oct to Dec 2019,Moyamba,3017.0"
+            + ls
+            + "Penta1 doses given,Oct to Dec 2019,Bombali,2873.0"
+            + ls,
+        writer.toString());
+  }
+
+  @Test
+  void testWriteSortedRowsWithCustomWriter() throws IOException {
+    StringWriter writer = new StringWriter();
+    GridWriter gridWriter =
+        (g, w) -> w.write(g.getTitle() + ": " + g.getHeight() + " " + g.getRow(0).get(1));
+
+    try (SortedRows rows = GridUtils.sortExternally(grid, 64, directory, SortSpec.asc(1))) {
+      gridWriter.write(grid, rows, writer);
+    }
+
+    assertEquals("Immunization: 4 Apr to Jun 2019", writer.toString());
+  }
+
   @Test
   void testToHtml() throws IOException {
     StringWriter writer = new StringWriter();
@@ -142,4 +348,29 @@ class GridUtilsTest {
         output);
     assertTrue(output.endsWith("</html>"));
   }
+
+  @Test
+  void testToHtmlHiddenColumnsAndEscaping() throws IOException {
+    StringWriter writer = new StringWriter();
+
+    Grid grid =
+        new ListGrid()
+            .setTitle("Stock <levels>")
+            .addHeader("Item")
+            .addHeader(new GridHeader("Id", true, false))
+            .addHeader("Amount")
+            .addRow()
+            .addValuesVar(" Syringes & needles ", "kj3Hsd1", 12)
+            .addRow()
+            .addValuesVar("Gloves", "Uy7Hsj2", null);
+
+    GridUtils.toHtml(grid, writer);
+    String output = writer.toString();
+
+    assertTrue(output.contains("<title>Stock &lt;levels&gt;</title>"), output);
+    assertTrue(output.contains("<tr><th>Item</th><th>Amount</th></tr>\n"), output);
+    assertTrue(output.contains("<tr><td>Syringes &amp; needles</td><td>12</td></tr>\n"), output);
+    assertTrue(output.contains("<tr><td>Gloves</td><td></td></tr>\n</tbody>"), output);
+    assertFalse(output.contains("kj3Hsd1"), output);
+  }
 }
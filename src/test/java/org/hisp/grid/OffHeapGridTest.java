@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import static org.hisp.grid.GridUtils.getList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapGridTest {
+  private OffHeapGrid grid;
+
+  @BeforeEach
+  public void beforeEach() {
+    grid = new OffHeapGrid();
+    grid.setTitle("Immunization")
+        .addHeader(new GridHeader("Data element", "dx", ValueType.TEXT, false, true))
+        .addHeader(new GridHeader("Count", "count", ValueType.INTEGER, false, false))
+        .addHeader(new GridHeader("Value", "value", ValueType.DOUBLE, false, false))
+        .addHeader(new GridHeader("Approved", "approved", ValueType.BOOLEAN, false, false))
+        .addRow()
+        .addValuesVar("Penta1", 12, 5128.0, true)
+        .addRow()
+        .addValuesVar("BCG", 8, 3017.5, false)
+        .addRow()
+        .addValuesVar("Fully immunized ÆØÅ", null, null, null);
+  }
+
+  @AfterEach
+  public void afterEach() {
+    grid.close();
+  }
+
+  @Test
+  void testGetValues() {
+    assertEquals(getList("Penta1", 12, 5128.0, true), grid.getRow(0));
+    assertEquals(getList("BCG", 8, 3017.5, false), grid.getRow(1));
+    assertEquals(getList("Fully immunized ÆØÅ", null, null, null), grid.getRow(2));
+  }
+
+  @Test
+  void testMixedValueTypes() {
+    Timestamp timestamp = Timestamp.valueOf("2019-03-01 10:15:30.123456789");
+
+    grid.addRow().addValuesVar(new BigDecimal("12.50"), 4L, "3.0", LocalDate.of(2019, 3, 1));
+    grid.addRow().addValuesVar(timestamp, 5, 2.0, new StringBuilder("heap"));
+
+    assertEquals(new BigDecimal("12.50"), grid.getValue(3, 0));
+    assertEquals(4L, grid.getValue(3, 1));
+    assertEquals("3.0", grid.getValue(3, 2));
+    assertEquals(LocalDate.of(2019, 3, 1), grid.getValue(3, 3));
+    assertEquals(timestamp, grid.getValue(4, 0));
+    assertEquals(5, grid.getValue(4, 1));
+    assertEquals(2.0, grid.getValue(4, 2));
+    assertEquals("heap", grid.getValue(4, 3).toString());
+    assertEquals(12, grid.getValue(0, 1));
+    assertEquals(true, grid.getValue(0, 3));
+  }
+
+  @Test
+  void testOverwriteValue() {
+    grid.getRow(1).set(0, "Bacillus Calmette-Guerin");
+
+    assertEquals("Bacillus Calmette-Guerin", grid.getValue(1, 0));
+    assertEquals("Penta1", grid.getValue(0, 0));
+  }
+
+  @Test
+  void testSortAndLimit() {
+    grid.sortGrid(3, 1).limitGrid(2);
+
+    assertEquals(2, grid.getHeight());
+    assertEquals(getList("Penta1", "BCG"), grid.getColumn(0));
+  }
+
+  @Test
+  void testLargeGrid() {
+    for (int i = 0; i < 100_000; i++) {
+      grid.addRow().addValuesVar("Org unit " + i, i, i * 0.5, i % 2 == 0);
+    }
+
+    assertEquals(100_003, grid.getHeight());
+    assertEquals(getList("Org unit 99999", 99999, 49999.5, false), grid.getRow(100_002));
+  }
+
+  @Test
+  void testToCsv() throws IOException {
+    StringWriter writer = new StringWriter();
+
+    GridUtils.toCsv(grid, writer);
+
+    assertTrue(
+        writer
+            .toString()
+            .startsWith(
+                """
+                Data element,Count,Value,Approved
+                Penta1,12,5128.0,true
+                """),
+        writer.toString());
+  }
+
+  @Test
+  void testToJson() throws IOException {
+    String json = new ObjectMapper().writeValueAsString(grid);
+
+    assertTrue(json.contains("\"rows\":[[\"Penta1\",12,5128.0,true]"), json);
+  }
+
+  @Test
+  void testClose() {
+    grid.close();
+
+    assertEquals(0, grid.getHeight());
+    assertEquals(0, grid.getWidth());
+    assertTrue(grid.getRows().isEmpty());
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004-2024, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.hisp.grid;
+
+import static org.hisp.grid.GridUtils.getList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpillingGridTest {
+  @TempDir private Path directory;
+
+  @Test
+  void testSpillRows() throws IOException {
+    try (SpillingGrid grid = new SpillingGrid(4 * 1024, directory)) {
+      grid.addHeader("Org unit").addHeader("Period").addHeader("Value");
+
+      for (int i = 0; i < 1000; i++) {
+        grid.addRow().addValuesVar("Org unit " + i, "2019" + (i % 12), i * 1.5);
+      }
+
+      assertTrue(grid.isSpilled());
+      assertEquals(1000, grid.getHeight());
+      assertEquals(3, grid.getWidth());
+      assertEquals(getList("Org unit 0", "20190", 0.0), grid.getRow(0));
+      assertEquals(getList("Org unit 500", "20198", 750.0), grid.getRow(500));
+      assertEquals(getList("Org unit 999", "20193", 1498.5), grid.getRow(999));
+
+      int i = 0;
+
+      for (List<Object> row : grid.getRows()) {
+        assertEquals("Org unit " + i++, row.get(0));
+      }
+
+      assertEquals(1000, i);
+      assertEquals(1, countFiles());
+    }
+
+    assertEquals(0, countFiles());
+  }
+
+  @Test
+  void testWithinBudget() {
+    try (SpillingGrid grid = new SpillingGrid(1024 * 1024, directory)) {
+      grid.addRow().addValuesVar("A", 1).addRow().addValuesVar("B", 2);
+
+      assertFalse(grid.isSpilled());
+      assertEquals(getList("B", 2), grid.getRow(1));
+    }
+  }
+
+  @Test
+  void testSpilledRowsAreReadOnly() {
+    try (SpillingGrid grid = new SpillingGrid(256, directory)) {
+      for (int i = 0; i < 20; i++) {
+        grid.addRow().addValuesVar("Row " + i, i);
+      }
+
+      assertTrue(grid.isSpilled());
+      assertThrows(UnsupportedOperationException.class, () -> grid.getRow(0).set(0, "A"));
+      assertThrows(UnsupportedOperationException.class, () -> grid.sortGrid(2, 1));
+
+      grid.limitGrid(5);
+
+      assertEquals(5, grid.getHeight());
+      assertEquals(getList("Row 4", 4), grid.getRow(4));
+    }
+  }
+
+  @Test
+  void testToCsv() throws IOException {
+    try (SpillingGrid grid = new SpillingGrid(256, directory)) {
+      grid.addHeader("Name").addHeader("Value");
+
+      for (int i = 0; i < 20; i++) {
+        grid.addRow().addValuesVar("Row " + i, i);
+      }
+
+      StringWriter writer = new StringWriter();
+
+      GridUtils.toCsv(grid, writer);
+
+      String[] lines = writer.toString().split("\\R");
+
+      assertEquals(21, lines.length);
+      assertEquals("Row 0,0", lines[1]);
+      assertEquals("Row 19,19", lines[20]);
+    }
+  }
+
+  @Test
+  void testFromResultSet() {
+    try (SpillingGrid grid = GridUtils.fromResultSet(resultSet(100), 512)) {
+      assertTrue(grid.isSpilled());
+      assertEquals(100, grid.getHeight());
+      assertEquals(ValueType.INTEGER, grid.getHeaders().get(1).getValueType());
+      assertEquals(getList("Row 42", 42), grid.getRow(42));
+    }
+  }
+
+  private long countFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  /**
+   * Returns a result set with a text and an integer column and the given number of rows.
+   *
+   * @param rows the number of rows.
+   * @return a {@link ResultSet}.
+   */
+  private static ResultSet resultSet(int rows) {
+    ResultSetMetaData metaData =
+        (ResultSetMetaData)
+            Proxy.newProxyInstance(
+                SpillingGridTest.class.getClassLoader(),
+                new Class<?>[] {ResultSetMetaData.class},
+                (proxy, method, args) ->
+                    switch (method.getName()) {
+                      case "getColumnCount" -> 2;
+                      case "getColumnLabel", "getColumnName" ->
+                          (int) args[0] == 1 ? "name" : "value";
+                      case "getColumnType" -> (int) args[0] == 1 ? Types.VARCHAR : Types.INTEGER;
+                      default -> throw new UnsupportedOperationException(method.getName());
+                    });
+
+    int[] row = {-1};
+
+    return (ResultSet)
+        Proxy.newProxyInstance(
+            SpillingGridTest.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            (proxy, method, args) ->
+                switch (method.getName()) {
+                  case "getMetaData" -> metaData;
+                  case "next" -> ++row[0] < rows;
+                  case "getObject" -> (int) args[0] == 1 ? "Row " + row[0] : row[0];
+                  default -> throw new UnsupportedOperationException(method.getName());
+                });
+  }
+}